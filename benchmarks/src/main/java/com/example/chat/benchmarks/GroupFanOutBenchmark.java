@@ -0,0 +1,141 @@
+package com.example.chat.benchmarks;
+
+import com.example.chat.config.BrokerProperties;
+import com.example.chat.config.GroupProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.service.ConversationMembership;
+import com.example.chat.service.ConversationSubscriptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One message to a group whose members are all subscribed on a real simple broker. The
+ * membership check goes to {@link ConversationMembership} with the member list cached, as on
+ * the send path. The payload is converted to JSON once; each subscriber then costs one STOMP
+ * frame encoded to bytes, the work the server does per session before the socket write.
+ * {@code membershipCheck} and {@code fanOut} separate the two costs of {@code send}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupFanOutBenchmark {
+
+    private static final long GROUP_ID = -1L;
+    private static final String DESTINATION = ConversationSubscriptions.TOPIC_PREFIX + GROUP_ID;
+
+    @Param({"5000"})
+    public int members;
+
+    private final StompEncoder encoder = new StompEncoder();
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate template;
+    private ConversationMembership membership;
+    private MessageView view;
+    private long senderId;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(this::write);
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.setCacheLimit(new BrokerProperties().getCacheLimit());
+        broker.start();
+
+        GroupProperties properties = new GroupProperties();
+        properties.setMembershipTimeToLive(Duration.ofHours(1));
+        membership = new ConversationMembership(null, properties, new SimpleMeterRegistry(), null);
+        List<Long> userIds = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            long userId = 1000L + 7L * i;
+            userIds.add(userId);
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId("session-" + i);
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId("session-" + i);
+            subscribe.setSubscriptionId("sub-0");
+            subscribe.setDestination(DESTINATION);
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+        membership.replace(GROUP_ID, userIds);
+        senderId = userIds.get(members / 2);
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.getObjectMapper().findAndRegisterModules();
+        template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(converter);
+        view = new MessageView(1L, GROUP_ID, senderId, "Sender", "hello everyone", Instant.now());
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public boolean membershipCheck() {
+        return membership.isMember(GROUP_ID, senderId);
+    }
+
+    @Benchmark
+    public void fanOut() {
+        template.convertAndSend(DESTINATION, view);
+    }
+
+    @Benchmark
+    public void send() {
+        if (membership.isMember(GROUP_ID, senderId)) {
+            template.convertAndSend(DESTINATION, view);
+        }
+    }
+
+    /** What {@code StompSubProtocolHandler} does with each outbound message before writing it. */
+    private void write(Message<?> message) {
+        SimpMessageHeaderAccessor simp = SimpMessageHeaderAccessor.wrap(message);
+        if (simp.getMessageType() != SimpMessageType.MESSAGE) {
+            return;
+        }
+        StompHeaderAccessor stomp = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        stomp.setDestination(simp.getDestination());
+        stomp.setSubscriptionId(simp.getSubscriptionId());
+        stomp.setMessageId(simp.getSessionId() + "-" + message.getHeaders().getId());
+        stomp.setContentType(simp.getContentType());
+        blackhole.consume(encoder.encode(stomp.getMessageHeaders(), (byte[]) message.getPayload()));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.chat.benchmarks;
+
+import com.example.chat.dto.ChatMessagePayload;
+import com.example.chat.dto.MessageView;
+import com.example.chat.websocket.CborCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload encoding as the STOMP layer does it: the JSON mapper is built the way Spring Boot
+ * builds the application's mapper, the CBOR side uses the server's {@link CborCodec}. The
+ * {@code frame*} benchmarks also wrap the view in the STOMP MESSAGE frame a subscriber
+ * receives and report its size as the {@code frameBytes} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageEncodingBenchmark {
+
+    @Param({"32", "1024"})
+    public int contentLength;
+
+    private ObjectMapper jsonMapper;
+    private CborCodec cborCodec;
+    private MessageView view;
+    private ChatMessagePayload payload;
+    private byte[] payloadJson;
+    private byte[] payloadCbor;
+    private final StompEncoder stompEncoder = new StompEncoder();
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborCodec = new CborCodec();
+        String content = "x".repeat(contentLength);
+        view = new MessageView(1_234_567L, 42L, 7L, "Seven", content, Instant.now().truncatedTo(ChronoUnit.MICROS));
+        payload = new ChatMessagePayload(42L, 7L, 8L, content);
+        payloadJson = jsonMapper.writeValueAsBytes(payload);
+        payloadCbor = cborCodec.encode(payload);
+    }
+
+    @Benchmark
+    public byte[] encodeViewJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(view);
+    }
+
+    @Benchmark
+    public byte[] encodeViewCbor() {
+        return cborCodec.encode(view);
+    }
+
+    @Benchmark
+    public byte[] encodePayloadJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public ChatMessagePayload decodePayloadJson() throws IOException {
+        return jsonMapper.readValue(payloadJson, ChatMessagePayload.class);
+    }
+
+    @Benchmark
+    public ChatMessagePayload decodePayloadCbor() throws IOException {
+        return cborCodec.decode(payloadCbor, ChatMessagePayload.class);
+    }
+
+    @Benchmark
+    public byte[] frameViewJson(FrameSize size) throws IOException {
+        return size.record(frame(jsonMapper.writeValueAsBytes(view), MimeTypeUtils.APPLICATION_JSON));
+    }
+
+    @Benchmark
+    public byte[] frameViewCbor(FrameSize size) {
+        return size.record(frame(cborCodec.encode(view), CborCodec.APPLICATION_CBOR));
+    }
+
+    private byte[] frame(byte[] body, MimeType contentType) {
+        StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        headers.setDestination("/topic/conversations/42");
+        headers.setSubscriptionId("sub-0");
+        headers.setMessageId("a1b2c3d4-0001");
+        headers.setContentType(contentType);
+        return stompEncoder.encode(headers.getMessageHeaders(), body);
+    }
+
+    /**
+     * Bytes per frame, the same for every message of one content length. JMH sums event counters
+     * over threads and measurement iterations, so each records its share of the frame size.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameSize {
+
+        public double frameBytes;
+        private double share;
+
+        @Setup
+        public void setUp(BenchmarkParams params) {
+            share = 1.0 / (params.getMeasurement().getCount() * params.getThreads());
+        }
+
+        byte[] record(byte[] frame) {
+            frameBytes = frame.length * share;
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.chat.benchmarks;
+
+import com.example.chat.ChatApplication;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.model.ChatUser;
+import com.example.chat.repository.ChatUserRepository;
+import com.example.chat.service.ChatService;
+import com.example.chat.service.DirectConversations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full {@link ChatService#persistDirectMessage} transaction against an in-memory H2
+ * database in PostgreSQL mode, with the application context booted exactly as in production
+ * apart from the datasource. Each invocation writes to one of {@code conversations} direct
+ * conversations in round-robin order; all of them exist before measurement starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistDirectMessageBenchmark {
+
+    @Param({"1", "512"})
+    public int conversations;
+
+    private ConfigurableApplicationContext context;
+    private ChatService chatService;
+    private final List<UserSummary[]> pairs = new ArrayList<>();
+    private final List<Long> conversationIds = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ChatApplication.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=");
+        chatService = context.getBean(ChatService.class);
+        ChatUserRepository users = context.getBean(ChatUserRepository.class);
+        DirectConversations directConversations = context.getBean(DirectConversations.class);
+
+        for (int i = 0; i < conversations; i++) {
+            long senderId = 2L * i + 1;
+            long recipientId = 2L * i + 2;
+            users.save(new ChatUser(senderId, "user_" + senderId, "User " + senderId, "{noop}bench"));
+            users.save(new ChatUser(recipientId, "user_" + recipientId, "User " + recipientId, "{noop}bench"));
+            UserSummary sender = chatService.requireUser(senderId);
+            UserSummary recipient = chatService.requireUser(recipientId);
+            long conversationId = directConversations.resolve(senderId, recipientId);
+            chatService.persistDirectMessage(conversationId, sender, recipient, "warm-up");
+            pairs.add(new UserSummary[] {sender, recipient});
+            conversationIds.add(conversationId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MessageView persistDirectMessage() {
+        int i = next++ % conversations;
+        UserSummary[] pair = pairs.get(i);
+        return chatService.persistDirectMessage(conversationIds.get(i), pair[0], pair[1], "benchmark message");
+    }
+}
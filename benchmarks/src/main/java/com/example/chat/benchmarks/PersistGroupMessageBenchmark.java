@@ -0,0 +1,102 @@
+package com.example.chat.benchmarks;
+
+import com.example.chat.ChatApplication;
+import com.example.chat.dto.InboxPage;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.service.ChatService;
+import com.example.chat.service.GroupService;
+import com.example.chat.service.InboxService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The database side of a group message: the full {@link ChatService#persistGroupMessage}
+ * transaction against an in-memory H2 database in PostgreSQL mode, and the inbox page a member
+ * reads afterwards, with {@value #UNREAD} unread messages in the group. {@link GroupFanOutBenchmark}
+ * covers the broker side of the same message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistGroupMessageBenchmark {
+
+    private static final int UNREAD = 200;
+
+    @Param({"10", "5000"})
+    public int members;
+
+    private ConfigurableApplicationContext context;
+    private ChatService chatService;
+    private InboxService inboxService;
+    private UserSummary sender;
+    private long readerId;
+    private long groupId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(ChatApplication.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:group-bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--chat.search.index-path=" + Files.createTempDirectory("group-bench-index"));
+        chatService = context.getBean(ChatService.class);
+        inboxService = context.getBean(InboxService.class);
+
+        List<Object[]> users = new ArrayList<>(members);
+        List<Long> memberIds = new ArrayList<>(members);
+        for (long userId = 1; userId <= members; userId++) {
+            users.add(new Object[] {userId, "user_" + userId, "User " + userId});
+            memberIds.add(userId);
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "insert into users (id, username, display_name, password_hash) values (?, ?, ?, '{noop}bench')", users);
+        sender = chatService.requireUser(1L);
+        readerId = members;
+        groupId = context.getBean(GroupService.class).createGroup(sender, "Bench", memberIds).getId();
+        for (int i = 0; i < UNREAD; i++) {
+            chatService.persistGroupMessage(groupId, sender, "unread " + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MessageView persistGroupMessage() {
+        return chatService.persistGroupMessage(groupId, sender, "benchmark message");
+    }
+
+    @Benchmark
+    public InboxPage readInbox() {
+        return inboxService.getInbox(readerId, null, null);
+    }
+}
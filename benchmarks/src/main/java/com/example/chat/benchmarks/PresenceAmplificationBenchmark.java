@@ -0,0 +1,148 @@
+package com.example.chat.benchmarks;
+
+import com.example.chat.cluster.LocalOnlyClusterRelay;
+import com.example.chat.config.BrokerProperties;
+import com.example.chat.config.PresenceProperties;
+import com.example.chat.presence.PresenceService;
+import com.example.chat.service.ConversationSubscriptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link PresenceService} with N connected users paired into direct conversations, each
+ * subscribed to its conversation and to its presence topic on a real simple broker. Every
+ * invocation is one keystroke burst: each user sends {@code keystrokes} typing signals, a flush
+ * runs, each user stops typing, and a second flush runs. The aux counters report signals in,
+ * presence frames published and frames delivered to sessions; deliveries stay at four per
+ * conversation per invocation whatever the keystroke count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresenceAmplificationBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"1", "20"})
+    public int keystrokes;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private SimpleBrokerMessageHandler broker;
+    private PresenceService presence;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Amplification {
+        public long signals;
+        public long frames;
+        public long deliveries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            signals = 0;
+            frames = 0;
+            deliveries = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> delivered.incrementAndGet());
+        brokerChannel.addInterceptor(new ChannelInterceptor() {
+            @Override
+            public void afterSendCompletion(Message<?> message,
+                                            MessageChannel channel, boolean sent, Exception ex) {
+                published.incrementAndGet();
+            }
+        });
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.setCacheLimit(new BrokerProperties().getCacheLimit());
+        broker.start();
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(converter);
+        presence = new PresenceService(template, new PresenceProperties(), new LocalOnlyClusterRelay(), new SimpleMeterRegistry());
+
+        for (int user = 0; user < users; user++) {
+            long conversationId = conversationOf(user);
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId(sessionOf(user));
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+            presence.subscribed(sessionOf(user), "messages", (long) user, ConversationSubscriptions.TOPIC_PREFIX + conversationId);
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId(sessionOf(user));
+            subscribe.setSubscriptionId("presence");
+            subscribe.setDestination(PresenceService.topic(conversationId));
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+        presence.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public void keystrokeBurst(Amplification counts) {
+        long publishedBefore = published.get();
+        long deliveredBefore = delivered.get();
+        for (int user = 0; user < users; user++) {
+            for (int i = 0; i < keystrokes; i++) {
+                presence.typing(sessionOf(user), conversationOf(user), true);
+            }
+        }
+        presence.flush();
+        for (int user = 0; user < users; user++) {
+            presence.typing(sessionOf(user), conversationOf(user), false);
+        }
+        presence.flush();
+        counts.signals += (long) users * (keystrokes + 1);
+        counts.frames += published.get() - publishedBefore;
+        counts.deliveries += delivered.get() - deliveredBefore;
+    }
+
+    private static String sessionOf(int user) {
+        return "session-" + user;
+    }
+
+    private static long conversationOf(int user) {
+        return user / 2;
+    }
+}
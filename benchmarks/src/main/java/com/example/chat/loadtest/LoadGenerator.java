@@ -0,0 +1,350 @@
+package com.example.chat.loadtest;
+
+import com.example.chat.ChatApplication;
+import com.example.chat.dto.ChatMessagePayload;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.model.ChatUser;
+import com.example.chat.repository.ChatUserRepository;
+import com.example.chat.security.SessionTokenService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens {@code --clients} STOMP-over-SockJS sessions against {@code /ws-chat}, pairs them into
+ * direct conversations and sends at a fixed aggregate {@code --rate}. Each message carries the
+ * time it was scheduled to be sent, so latency includes any time the generator fell behind
+ * instead of hiding it. Latency is recorded when the recipient's subscription receives the
+ * broadcast. Without {@code --target} the application is started in-process against H2.
+ */
+public final class LoadGenerator {
+
+    private static final String PASSWORD = "loadtest";
+
+    private final LoadGeneratorOptions options;
+    private final String baseUrl;
+    private final Map<Long, String> tokens;
+    private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong sendErrors = new AtomicLong();
+    private final List<Client> clients = new ArrayList<>();
+
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+    private volatile long measureEndNanos = Long.MAX_VALUE;
+
+    private LoadGenerator(LoadGeneratorOptions options, String baseUrl, Map<Long, String> tokens) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.tokens = tokens;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorOptions options = LoadGeneratorOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        try {
+            String baseUrl;
+            Map<Long, String> tokens;
+            if (options.getTarget() == null) {
+                context = startServer(options);
+                baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                tokens = createUsers(context, options);
+            } else {
+                baseUrl = options.getTarget();
+                tokens = registerUsers(baseUrl, options);
+            }
+            new LoadGenerator(options, baseUrl, tokens).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startServer(LoadGeneratorOptions options) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password="));
+        args.addAll(options.getServerArgs());
+        return new SpringApplicationBuilder(ChatApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static Map<Long, String> createUsers(ConfigurableApplicationContext context, LoadGeneratorOptions options) {
+        ChatUserRepository users = context.getBean(ChatUserRepository.class);
+        SessionTokenService tokenService = context.getBean(SessionTokenService.class);
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<ChatUser> batch = new ArrayList<>();
+        Map<Long, String> tokens = new ConcurrentHashMap<>();
+        for (int i = 0; i < options.getClients(); i++) {
+            long id = options.getFirstUserId() + i;
+            batch.add(new ChatUser(id, "user_" + id, "Load " + id, passwordHash));
+            tokens.put(id, tokenService.issue(new UserSummary(id, "Load " + id)).getToken());
+        }
+        users.saveAll(batch);
+        return tokens;
+    }
+
+    private static Map<Long, String> registerUsers(String baseUrl, LoadGeneratorOptions options) throws InterruptedException {
+        HttpClient http = HttpClient.newHttpClient();
+        ObjectMapper mapper = new ObjectMapper();
+        Semaphore permits = new Semaphore(options.getConnectConcurrency());
+        Map<Long, String> tokens = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (int i = 0; i < options.getClients(); i++) {
+            long id = options.getFirstUserId() + i;
+            String body = "{\"userId\":%d,\"password\":\"%s\",\"displayName\":\"Load %d\"}".formatted(id, PASSWORD, id);
+            permits.acquire();
+            pending.add(http.sendAsync(post(baseUrl + "/api/auth/register", body), HttpResponse.BodyHandlers.discarding())
+                    .thenCompose(registered -> http.sendAsync(post(baseUrl + "/api/auth/login", body), HttpResponse.BodyHandlers.ofString()))
+                    .thenAccept(response -> {
+                        try {
+                            JsonNode login = mapper.readTree(response.body());
+                            tokens.put(id, login.path("token").asText());
+                        } catch (IOException ex) {
+                            throw new IllegalStateException("Login failed for user " + id + ": " + response.body(), ex);
+                        }
+                    })
+                    .whenComplete((ignored, ex) -> permits.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        return tokens;
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private void run() throws Exception {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(mapper);
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(converter);
+        // The server drops sessions that miss their heart-beats, so the clients must send them.
+        ThreadPoolTaskScheduler heartbeats = new ThreadPoolTaskScheduler();
+        heartbeats.setThreadNamePrefix("loadtest-heartbeat-");
+        heartbeats.initialize();
+        stompClient.setTaskScheduler(heartbeats);
+
+        connectAll(stompClient);
+        Thread.sleep(1_000);
+
+        long start = System.nanoTime();
+        measureStartNanos = start + options.getWarmup().toNanos();
+        measureEndNanos = measureStartNanos + options.getDuration().toNanos();
+        ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        String padding = "x".repeat(Math.max(0, options.getMessageSize() - 20));
+        long[] scheduled = {0};
+        sender.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            while (true) {
+                long intended = start + (long) (scheduled[0] * intervalNanos);
+                if (intended > now || intended >= measureEndNanos) {
+                    return;
+                }
+                Client client = clients.get((int) (scheduled[0] % clients.size()));
+                scheduled[0]++;
+                client.send(intended, padding);
+            }
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        System.out.printf("Running %d clients at %.0f msg/s: %ds warm-up, %ds measured%n", clients.size(),
+                options.getRate(), options.getWarmup().toSeconds(), options.getDuration().toSeconds());
+        TimeUnit.NANOSECONDS.sleep(measureEndNanos - System.nanoTime());
+        sender.shutdown();
+        sender.awaitTermination(5, TimeUnit.SECONDS);
+        Thread.sleep(5_000);
+
+        clients.forEach(Client::disconnect);
+        stompClient.stop();
+        heartbeats.shutdown();
+        report();
+    }
+
+    private void connectAll(WebSocketStompClient stompClient) throws InterruptedException {
+        Semaphore permits = new Semaphore(options.getConnectConcurrency());
+        String url = baseUrl + "/ws-chat";
+        Map<Long, Long> conversations = resolveConversations(permits);
+        for (int i = 0; i < options.getClients(); i += 2) {
+            long first = options.getFirstUserId() + i;
+            long second = first + 1;
+            long conversationId = conversations.get(first);
+            clients.add(new Client(first, second, conversationId));
+            clients.add(new Client(second, first, conversationId));
+        }
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (Client client : clients) {
+            permits.acquire();
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.set("Authorization", "Bearer " + tokens.get(client.userId));
+            pending.add(stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, client)
+                    .whenComplete((session, ex) -> permits.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        System.out.printf("Connected %d clients to %s%n", clients.size(), url);
+    }
+
+    private void report() throws IOException {
+        double seconds = options.getDuration().toNanos() / 1e9;
+        long measured = latency.getTotalCount();
+        System.out.printf("Sent %d messages (%d send errors); %d delivered in the measured window%n",
+                sent.get(), sendErrors.get(), received.get());
+        System.out.printf("Throughput: %.1f deliveries/s%n", measured / seconds);
+        System.out.printf("Latency ms: p50=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                latency.getValueAtPercentile(99.9) / 1e6, latency.getMaxValue() / 1e6);
+        latency.outputPercentileDistribution(System.out, 1e6);
+
+        Path output = Path.of(options.getOutput());
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(output.toFile()))) {
+            latency.outputPercentileDistribution(out, 1e6);
+        }
+        System.out.println("Histogram written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Asks the server for the direct conversation of each pair, keyed by the pair's first user.
+     * Conversation ids are assigned by the server, so they cannot be computed locally.
+     */
+    private Map<Long, Long> resolveConversations(Semaphore permits) throws InterruptedException {
+        HttpClient http = HttpClient.newHttpClient();
+        ObjectMapper mapper = new ObjectMapper();
+        Map<Long, Long> conversations = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (int i = 0; i < options.getClients(); i += 2) {
+            long first = options.getFirstUserId() + i;
+            long second = first + 1;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/conversations/direct/" + second))
+                    .header("Authorization", "Bearer " + tokens.get(first))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            permits.acquire();
+            pending.add(http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenAccept(response -> {
+                        try {
+                            JsonNode resolved = mapper.readTree(response.body());
+                            conversations.put(first, resolved.path("conversationId").asLong());
+                        } catch (IOException ex) {
+                            throw new IllegalStateException("Could not resolve conversation for " + first + ": " + response.body(), ex);
+                        }
+                    })
+                    .whenComplete((ignored, ex) -> permits.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        return conversations;
+    }
+
+    private final class Client extends StompSessionHandlerAdapter {
+
+        private final long userId;
+        private final long peerId;
+        private final long conversationId;
+        private volatile StompSession session;
+
+        private Client(long userId, long peerId, long conversationId) {
+            this.userId = userId;
+            this.peerId = peerId;
+            this.conversationId = conversationId;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            this.session = session;
+            session.subscribe("/topic/conversations/" + conversationId, this);
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return MessageView.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            MessageView view = (MessageView) payload;
+            if (view.getSenderId() == null || view.getSenderId() == userId || view.getContent() == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            int separator = view.getContent().indexOf(':');
+            long intended = Long.parseLong(view.getContent(), 0, separator, 10);
+            if (intended >= measureStartNanos && intended < measureEndNanos) {
+                latency.recordValue(Math.min(now - intended, latency.getHighestTrackableValue()));
+                received.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            sendErrors.incrementAndGet();
+        }
+
+        private void send(long intendedNanos, String padding) {
+            StompSession current = session;
+            if (current == null || !current.isConnected()) {
+                sendErrors.incrementAndGet();
+                return;
+            }
+            try {
+                current.send("/app/chat.send", new ChatMessagePayload(conversationId, userId, peerId, intendedNanos + ":" + padding));
+                sent.incrementAndGet();
+            } catch (RuntimeException ex) {
+                sendErrors.incrementAndGet();
+            }
+        }
+
+        private void disconnect() {
+            StompSession current = session;
+            if (current != null && current.isConnected()) {
+                current.disconnect();
+            }
+        }
+    }
+}
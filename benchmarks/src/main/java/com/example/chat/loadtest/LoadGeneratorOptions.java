@@ -0,0 +1,93 @@
+package com.example.chat.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of {@link LoadGenerator}. Options are given as {@code --name=value};
+ * any other {@code --} argument is passed through to the embedded server.
+ */
+public class LoadGeneratorOptions {
+
+    private int clients = 2_000;
+    private double rate = 1_000;
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(60);
+    private int messageSize = 64;
+    private int connectConcurrency = 64;
+    private long firstUserId = 1_000_000;
+    private String target;
+    private String output = "target/loadtest-latency.hgrm";
+    private final List<String> serverArgs = new ArrayList<>();
+
+    public static LoadGeneratorOptions parse(String[] args) {
+        LoadGeneratorOptions options = new LoadGeneratorOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator > 0 ? arg.substring(0, separator) : arg;
+            String value = separator > 0 ? arg.substring(separator + 1) : "";
+            switch (name) {
+                case "--clients" -> options.clients = Integer.parseInt(value);
+                case "--rate" -> options.rate = Double.parseDouble(value);
+                case "--warmup" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                case "--duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                case "--message-size" -> options.messageSize = Integer.parseInt(value);
+                case "--connect-concurrency" -> options.connectConcurrency = Integer.parseInt(value);
+                case "--first-user-id" -> options.firstUserId = Long.parseLong(value);
+                case "--target" -> options.target = value;
+                case "--output" -> options.output = value;
+                default -> {
+                    if (!arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unexpected argument " + arg);
+                    }
+                    options.serverArgs.add(arg);
+                }
+            }
+        }
+        if (options.clients < 2 || options.clients % 2 != 0) {
+            throw new IllegalArgumentException("--clients must be an even number of at least 2");
+        }
+        return options;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public int getMessageSize() {
+        return messageSize;
+    }
+
+    public int getConnectConcurrency() {
+        return connectConcurrency;
+    }
+
+    public long getFirstUserId() {
+        return firstUserId;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public List<String> getServerArgs() {
+        return serverArgs;
+    }
+}
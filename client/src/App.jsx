@@ -1,13 +1,14 @@
 import React, { useCallback, useEffect, useMemo, useRef, useState } from 'react';
 import { Client } from '@stomp/stompjs';
 
-const computeConversationId = (firstId, secondId) => {
-  const a = Math.min(firstId, secondId);
-  const b = Math.max(firstId, secondId);
-  const sum = a + b;
-  return Math.floor(((sum) * (sum + 1)) / 2 + b);
+const compareMessages = (first, second) => {
+  const bySentAt = new Date(first.sentAt).getTime() - new Date(second.sentAt).getTime();
+  return bySentAt !== 0 ? bySentAt : first.id - second.id;
 };
 
+// The server keeps a typing signal alive for six seconds, so resending every three is enough.
+const TYPING_RESEND_MS = 3000;
+
 const App = () => {
   const [messages, setMessages] = useState([]);
   const [input, setInput] = useState('');
@@ -20,10 +21,11 @@ const App = () => {
   const [displayName, setDisplayName] = useState('');
   const [authError, setAuthError] = useState(null);
   const [isSubmitting, setIsSubmitting] = useState(false);
+  const [peerPresence, setPeerPresence] = useState({ online: false, typing: false });
 
   const client = useMemo(() => {
     const stompClient = new Client({
-      brokerURL: `${window.location.protocol === 'https:' ? 'wss' : 'ws'}://${window.location.host.replace('3000', '8080')}/ws-chat`,
+      brokerURL: `${window.location.protocol === 'https:' ? 'wss' : 'ws'}://${window.location.host.replace('3000', '8080')}/ws-chat-native`,
       reconnectDelay: 5000,
       heartbeatIncoming: 4000,
       heartbeatOutgoing: 4000
@@ -38,27 +40,99 @@ const App = () => {
     return Number.isInteger(parsed) && parsed >= 0 ? parsed : null;
   }, [peerId]);
 
-  const conversationId = useMemo(() => {
-    if (numericUserId == null || numericPeerId == null) {
-      return null;
+  const sessionToken = currentUser?.token ?? null;
+  const [conversationId, setConversationId] = useState(null);
+
+  // Direct conversation ids are assigned by the server, so ask it which one this pair uses.
+  useEffect(() => {
+    setConversationId(null);
+    if (!sessionToken || numericPeerId == null) {
+      return undefined;
     }
-    return computeConversationId(numericUserId, numericPeerId);
-  }, [numericPeerId, numericUserId]);
+    let cancelled = false;
+    fetch(`/api/conversations/direct/${numericPeerId}`, {
+      method: 'POST',
+      headers: { Authorization: `Bearer ${sessionToken}` }
+    })
+      .then(resp => resp.ok ? resp.json() : null)
+      .then(data => {
+        if (!cancelled && data) {
+          setConversationId(data.conversationId);
+        }
+      })
+      .catch(() => setStatus('error'));
+    return () => {
+      cancelled = true;
+    };
+  }, [numericPeerId, sessionToken]);
 
   const subscriptionRef = useRef(null);
+  const presenceSubscriptionRef = useRef(null);
+  const lastSeenIdRef = useRef(null);
+  const typingSentAtRef = useRef(0);
+
+  const unsubscribeAll = useCallback(() => {
+    subscriptionRef.current?.unsubscribe();
+    subscriptionRef.current = null;
+    presenceSubscriptionRef.current?.unsubscribe();
+    presenceSubscriptionRef.current = null;
+  }, []);
+
+  const loadHistory = useCallback(() => {
+    if (!conversationId) {
+      return Promise.resolve();
+    }
+    // The token lets the server read our own latest messages from the primary database.
+    return fetch(`/api/conversations/${conversationId}/messages`, {
+      headers: sessionToken ? { Authorization: `Bearer ${sessionToken}` } : {}
+    })
+      .then(resp => resp.ok ? resp.json() : { messages: [] })
+      .then(data => {
+        const loaded = Array.isArray(data.messages) ? data.messages : [];
+        lastSeenIdRef.current = loaded.length ? loaded[loaded.length - 1].id : null;
+        setMessages(loaded);
+      })
+      .catch(() => setStatus('error'));
+  }, [conversationId, sessionToken]);
 
   const handleIncomingMessage = useCallback(message => {
+    if (message.headers['resync'] === 'true') {
+      loadHistory();
+      return;
+    }
     const payload = JSON.parse(message.body);
-    setMessages(prev => [...prev, payload]);
-  }, []);
+    lastSeenIdRef.current = Math.max(lastSeenIdRef.current ?? payload.id, payload.id);
+    setMessages(prev => {
+      if (prev.some(existing => existing.id === payload.id)) {
+        return prev;
+      }
+      const next = [...prev, payload];
+      const last = prev[prev.length - 1];
+      if (last && compareMessages(last, payload) > 0) {
+        next.sort(compareMessages);
+      }
+      return next;
+    });
+  }, [loadHistory]);
+
+  const handlePresence = useCallback(message => {
+    const update = JSON.parse(message.body);
+    const peer = (update.participants ?? []).find(participant => participant.userId === numericPeerId);
+    if (peer) {
+      setPeerPresence({ online: peer.online, typing: peer.typing });
+    }
+  }, [numericPeerId]);
 
   const subscribeToConversation = useCallback(() => {
     if (!conversationId || !client.connected) {
       return;
     }
-    subscriptionRef.current?.unsubscribe();
-    subscriptionRef.current = client.subscribe(`/topic/conversations/${conversationId}`, handleIncomingMessage);
-  }, [client, conversationId, handleIncomingMessage]);
+    unsubscribeAll();
+    presenceSubscriptionRef.current = client.subscribe(`/topic/conversations/${conversationId}/presence`, handlePresence);
+    // Resuming from the last message we hold lets the server replay only what was missed.
+    const headers = lastSeenIdRef.current != null ? { 'last-seen-id': String(lastSeenIdRef.current) } : {};
+    subscriptionRef.current = client.subscribe(`/topic/conversations/${conversationId}`, handleIncomingMessage, headers);
+  }, [client, conversationId, handleIncomingMessage, handlePresence, unsubscribeAll]);
 
   useEffect(() => {
     client.onConnect = () => {
@@ -71,39 +145,60 @@ const App = () => {
     };
     client.onWebSocketClose = () => {
       setStatus('disconnected');
-      subscriptionRef.current?.unsubscribe();
-      subscriptionRef.current = null;
+      unsubscribeAll();
     };
-  }, [client, subscribeToConversation]);
+  }, [client, subscribeToConversation, unsubscribeAll]);
+
 
   useEffect(() => {
+    if (!sessionToken) {
+      return undefined;
+    }
+    client.connectHeaders = { Authorization: `Bearer ${sessionToken}` };
     setStatus('connecting');
     client.activate();
 
     return () => {
-      subscriptionRef.current?.unsubscribe();
-      subscriptionRef.current = null;
+      unsubscribeAll();
       client.deactivate();
+      setStatus('disconnected');
     };
-  }, [client]);
+  }, [client, sessionToken, unsubscribeAll]);
 
   useEffect(() => {
+    lastSeenIdRef.current = null;
+    typingSentAtRef.current = 0;
+    setPeerPresence({ online: false, typing: false });
     if (!conversationId) {
       setMessages([]);
-      subscriptionRef.current?.unsubscribe();
-      subscriptionRef.current = null;
+      unsubscribeAll();
       return;
     }
 
-    fetch(`/api/conversations/${conversationId}/messages`)
-      .then(resp => resp.ok ? resp.json() : [])
-      .then(data => setMessages(Array.isArray(data) ? data : []))
-      .catch(() => setStatus('error'));
+    loadHistory().then(subscribeToConversation);
+  }, [conversationId, loadHistory, subscribeToConversation, unsubscribeAll]);
 
-    if (client.connected) {
-      subscribeToConversation();
+  const publishTyping = useCallback(typing => {
+    if (!conversationId || !client.connected) {
+      return;
     }
-  }, [client, conversationId, subscribeToConversation]);
+    typingSentAtRef.current = typing ? Date.now() : 0;
+    client.publish({
+      destination: '/app/chat.typing',
+      body: JSON.stringify({ conversationId, typing })
+    });
+  }, [client, conversationId]);
+
+  const handleInputChange = event => {
+    setInput(event.target.value);
+    if (!event.target.value) {
+      if (typingSentAtRef.current) {
+        publishTyping(false);
+      }
+    } else if (Date.now() - typingSentAtRef.current > TYPING_RESEND_MS) {
+      publishTyping(true);
+    }
+  };
 
   const resetAuthForm = useCallback(() => {
     setLoginUserId('');
@@ -164,7 +259,8 @@ const App = () => {
         id: data.userId,
         userId: data.userId,
         username: data.username,
-        displayName: data.displayName
+        displayName: data.displayName,
+        token: data.token
       };
 
       setCurrentUser(normalizedUser);
@@ -188,11 +284,11 @@ const App = () => {
       destination: '/app/chat.send',
       body: JSON.stringify({
         conversationId,
-        senderId: numericUserId,
         recipientId: numericPeerId,
         content: input
       })
     });
+    publishTyping(false);
     setInput('');
   };
 
@@ -286,6 +382,8 @@ const App = () => {
             {conversationId && (
               <p className="conversation-hint">
                 Conversation #{conversationId}
+                {' · '}
+                {peerPresence.typing ? 'typing…' : peerPresence.online ? 'online' : 'offline'}
               </p>
             )}
           </section>
@@ -304,7 +402,7 @@ const App = () => {
             <input
               type="text"
               value={input}
-              onChange={event => setInput(event.target.value)}
+              onChange={handleInputChange}
               placeholder={numericPeerId == null ? 'Select a partner to start chatting' : 'Type a message'}
               disabled={numericPeerId == null}
             />
@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first accepted WebSocket handshake
+# (HTTP 101 on /ws-chat-native). The CDS archive records the absolute jar path
+# of the training run, so the fast layout must be started from the same place.
+#
+# usage: scripts/measure-startup.sh [plain|fast] [runs] [-- application args...]
+#   plain  java -jar target/chat-application-*-exec.jar
+#   fast   AOT + CDS layout built with: mvn -Pfast-startup package
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+mode="${1:-plain}"
+runs="${2:-5}"
+shift $(( $# < 2 ? $# : 2 ))
+[ "${1:-}" = "--" ] && shift
+
+port="${PORT:-8080}"
+version="0.0.1-SNAPSHOT"
+
+case "$mode" in
+    plain)
+        cmd=(java -jar "target/chat-application-$version-exec.jar")
+        ;;
+    fast)
+        [ -f target/chat-application.jsa ] || { echo "target/chat-application.jsa missing; run mvn -Pfast-startup package" >&2; exit 1; }
+        cmd=(java -XX:SharedArchiveFile=target/chat-application.jsa -Dspring.aot.enabled=true
+             -jar "$PWD/target/chat-application-$version.jar")
+        ;;
+    *)
+        echo "unknown mode: $mode" >&2
+        exit 1
+        ;;
+esac
+
+handshake() {
+    curl --silent --http1.1 --max-time 1 --output /dev/null --write-out '%{http_code}' \
+        -H 'Connection: Upgrade' -H 'Upgrade: websocket' \
+        -H 'Sec-WebSocket-Version: 13' -H 'Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==' \
+        "http://localhost:$port/ws-chat-native" || true
+}
+
+total=0
+for run in $(seq 1 "$runs"); do
+    start=$(date +%s%N)
+    "${cmd[@]}" --server.port="$port" --spring.main.banner-mode=off "$@" > "target/startup-run-$run.log" 2>&1 &
+    pid=$!
+    until [ "$(handshake)" = "101" ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "run $run: application exited, see target/startup-run-$run.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    total=$(( total + elapsed ))
+    echo "run $run: first WebSocket accepted after ${elapsed} ms"
+done
+echo "$mode: mean ${total}/${runs} = $(( total / runs )) ms"
@@ -0,0 +1,50 @@
+package com.example.chat.cluster;
+
+import com.example.chat.dto.MessageView;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Forwards conversation broadcasts between server nodes. Implementations deliver a published
+ * message only to peers that have declared interest in its conversation and hand messages
+ * received from peers to the registered listener.
+ */
+public interface ClusterRelay {
+
+    void publish(MessageView view);
+
+    void updateInterest(Long conversationId, boolean interested);
+
+    /**
+     * Whether other nodes write to the same conversations. If so, this node only sees every
+     * message of the conversations it has declared interest in.
+     */
+    boolean isClustered();
+
+    void setListener(Consumer<MessageView> listener);
+
+    /**
+     * Whether every peer has acknowledged this node's interest in a conversation and has
+     * forwarded it without a break since, so that this node has seen all of its messages.
+     */
+    boolean isInterestAcknowledged(Long conversationId);
+
+    /**
+     * Loads the messages of a conversation sent after an instant. Once every peer has
+     * acknowledged interest, the relay asks it for the messages sent since the interest was
+     * declared or a link was lost, and hands those it has not delivered yet to the listener.
+     */
+    void setReplaySource(BiFunction<Long, Instant, List<MessageView>> replaySource);
+
+    /**
+     * Tells every connected peer that the members of a conversation changed, so that it reloads
+     * them and revokes {@code removedUserId}'s subscriptions. Unlike messages this does not
+     * depend on the peer's interest.
+     */
+    void publishMembershipChange(long conversationId, Long removedUserId);
+
+    void setMembershipListener(MembershipListener listener);
+}
@@ -0,0 +1,45 @@
+package com.example.chat.cluster;
+
+import com.example.chat.dto.MessageView;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+public class LocalOnlyClusterRelay implements ClusterRelay {
+
+    @Override
+    public void publish(MessageView view) {
+    }
+
+    @Override
+    public void updateInterest(Long conversationId, boolean interested) {
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+
+    @Override
+    public void setListener(Consumer<MessageView> listener) {
+    }
+
+    @Override
+    public boolean isInterestAcknowledged(Long conversationId) {
+        return true;
+    }
+
+    @Override
+    public void setReplaySource(BiFunction<Long, Instant, List<MessageView>> replaySource) {
+    }
+
+    @Override
+    public void publishMembershipChange(long conversationId, Long removedUserId) {
+    }
+
+    @Override
+    public void setMembershipListener(MembershipListener listener) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.chat.cluster;
+
+/**
+ * Receives group membership changes committed on other nodes. Changes made while a peer was
+ * disconnected are not replayed; {@link #peerConnected} is the cue to reload instead.
+ */
+public interface MembershipListener {
+
+    /** The members of a conversation changed; {@code removedUserId} is null when members were only added. */
+    default void membershipChanged(long conversationId, Long removedUserId) {
+    }
+
+    default void peerConnected(String nodeId) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.chat.cluster;
+
+import com.example.chat.dto.MessageView;
+
+import java.util.Set;
+
+public class RelayFrame {
+
+    public enum Type {
+        HELLO,
+        AUTH,
+        SNAPSHOT,
+        INTEREST,
+        MESSAGE,
+        MEMBERSHIP,
+        ACK
+    }
+
+    private Type type;
+    private String nodeId;
+    private Integer idNodeId;
+    private String nonce;
+    private String proof;
+    private Long conversationId;
+    private boolean interested;
+    private Long userId;
+    private Long sequence;
+    private Set<Long> conversationIds;
+    private MessageView message;
+
+    public static RelayFrame hello(String nodeId, int idNodeId, String nonce, String proof) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.HELLO);
+        frame.setNodeId(nodeId);
+        frame.setIdNodeId(idNodeId);
+        frame.setNonce(nonce);
+        frame.setProof(proof);
+        return frame;
+    }
+
+    public static RelayFrame auth(String proof) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.AUTH);
+        frame.setProof(proof);
+        return frame;
+    }
+
+    public static RelayFrame snapshot(Set<Long> conversationIds, long sequence) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.SNAPSHOT);
+        frame.setConversationIds(conversationIds);
+        frame.setSequence(sequence);
+        return frame;
+    }
+
+    public static RelayFrame interest(Long conversationId, boolean interested, long sequence) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.INTEREST);
+        frame.setConversationId(conversationId);
+        frame.setInterested(interested);
+        frame.setSequence(sequence);
+        return frame;
+    }
+
+    public static RelayFrame ack(long sequence) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.ACK);
+        frame.setSequence(sequence);
+        return frame;
+    }
+
+    public static RelayFrame message(MessageView message) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.MESSAGE);
+        frame.setConversationId(message.getConversationId());
+        frame.setMessage(message);
+        return frame;
+    }
+
+    public static RelayFrame membership(Long conversationId, Long removedUserId) {
+        RelayFrame frame = new RelayFrame();
+        frame.setType(Type.MEMBERSHIP);
+        frame.setConversationId(conversationId);
+        frame.setUserId(removedUserId);
+        return frame;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /** The sender's {@code chat.ids.node-id}, carried in HELLO. */
+    public Integer getIdNodeId() {
+        return idNodeId;
+    }
+
+    public void setIdNodeId(Integer idNodeId) {
+        this.idNodeId = idNodeId;
+    }
+
+    public String getNonce() {
+        return nonce;
+    }
+
+    public void setNonce(String nonce) {
+        this.nonce = nonce;
+    }
+
+    public String getProof() {
+        return proof;
+    }
+
+    public void setProof(String proof) {
+        this.proof = proof;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public boolean isInterested() {
+        return interested;
+    }
+
+    public void setInterested(boolean interested) {
+        this.interested = interested;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Numbers SNAPSHOT and INTEREST frames on a link. The peer answers each with an ACK carrying
+     * the same number once it has applied the frame.
+     */
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Set<Long> getConversationIds() {
+        return conversationIds;
+    }
+
+    public void setConversationIds(Set<Long> conversationIds) {
+        this.conversationIds = conversationIds;
+    }
+
+    public MessageView getMessage() {
+        return message;
+    }
+
+    public void setMessage(MessageView message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,655 @@
+package com.example.chat.cluster;
+
+import com.example.chat.config.ClusterProperties;
+import com.example.chat.config.IdGeneratorProperties;
+import com.example.chat.dto.MessageView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Broker-less relay: every node dials every configured peer and keeps one outbound link per
+ * peer. Over its outbound link a node announces which conversations its local sessions are
+ * subscribed to and sends the messages its peer is interested in. Inbound connections are
+ * only read from, apart from the HELLO reply that tells the dialer who it reached.
+ * <p>
+ * Both ends prove knowledge of {@code chat.cluster.secret} during the handshake: each HELLO
+ * carries a fresh nonce, the listener answers with an HMAC over both nonces and the dialer
+ * follows with its own in an AUTH frame, so neither side accepts a peer that lacks the secret
+ * or replays an old handshake. HELLO also carries the node's {@code chat.ids.node-id}, covered by
+ * the HMAC, and a peer with the same one is refused because the two would issue the same message
+ * ids. Interest changes are coalesced per peer and written ahead of
+ * queued messages, so a full outbox can delay them but never lose them.
+ * <p>
+ * Interest travels asynchronously, so a peer drops the messages it publishes before our
+ * INTEREST frame reaches it. Each SNAPSHOT and INTEREST frame carries a sequence number that the
+ * peer echoes in an ACK over the same connection once it has applied the frame. A conversation
+ * has a gap from the moment interest is declared, and again whenever a link in either direction
+ * drops. When every peer has acknowledged the interest, the replay source fills the gap from the
+ * database and the gap closes; until then {@link #isInterestAcknowledged} is false. Membership changes
+ * travel the same way to every connected peer; those made while a link was down are not
+ * replayed, the peer reloads when the link comes back.
+ */
+public class TcpMeshClusterRelay implements ClusterRelay, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpMeshClusterRelay.class);
+
+    private static final int MAX_FRAME_BYTES = 1 << 20;
+    private static final String HMAC = "HmacSHA256";
+    private static final RelayFrame WAKE = new RelayFrame();
+
+    private final ClusterProperties properties;
+    private final int idNodeId;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec secret;
+    private final SecureRandom random = new SecureRandom();
+    private final Set<Long> localInterest = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Gap> gaps = new ConcurrentHashMap<>();
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
+    private final Map<String, Set<Long>> peerInterest = new ConcurrentHashMap<>();
+    private final List<PeerLink> links = new CopyOnWriteArrayList<>();
+    private final Cache<Long, Boolean> delivered;
+    private final Counter forwarded;
+    private final Counter received;
+    private final Counter duplicates;
+    private final Counter dropped;
+    private final Counter replayed;
+
+    private volatile Consumer<MessageView> listener = view -> { };
+    private volatile BiFunction<Long, Instant, List<MessageView>> replaySource = (conversationId, since) -> List.of();
+    private volatile MembershipListener membershipListener = new MembershipListener() { };
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private ExecutorService replays;
+
+    public TcpMeshClusterRelay(ClusterProperties properties, IdGeneratorProperties idProperties, ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry) {
+        if (properties.getBindAddress() == null || properties.getBindAddress().isBlank()) {
+            throw new IllegalStateException("chat.cluster.bind-address must be set when the cluster relay is enabled");
+        }
+        if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+            throw new IllegalStateException("chat.cluster.secret must be set when the cluster relay is enabled");
+        }
+        if (idProperties.getNodeId() == null) {
+            throw new IllegalStateException("chat.ids.node-id must be set to a value unique in the cluster when the cluster relay is enabled");
+        }
+        this.properties = properties;
+        this.idNodeId = idProperties.getNodeId();
+        this.objectMapper = objectMapper;
+        this.secret = new SecretKeySpec(Base64.getDecoder().decode(properties.getSecret()), HMAC);
+        this.delivered = Caffeine.newBuilder().maximumSize(properties.getDedupCapacity()).build();
+        this.forwarded = meterRegistry.counter("chat.cluster.messages", "direction", "forwarded");
+        this.received = meterRegistry.counter("chat.cluster.messages", "direction", "received");
+        this.duplicates = meterRegistry.counter("chat.cluster.messages", "direction", "duplicate");
+        this.dropped = meterRegistry.counter("chat.cluster.messages", "direction", "dropped");
+        this.replayed = meterRegistry.counter("chat.cluster.messages", "direction", "replayed");
+    }
+
+    @Override
+    public void publish(MessageView view) {
+        delivered.put(view.getId(), Boolean.TRUE);
+        RelayFrame frame = RelayFrame.message(view);
+        for (PeerLink link : links) {
+            String peerId = link.remoteNodeId;
+            Set<Long> interest = peerId != null ? peerInterest.get(peerId) : null;
+            if (interest != null && interest.contains(view.getConversationId())) {
+                if (link.offer(frame)) {
+                    forwarded.increment();
+                } else {
+                    dropped.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void updateInterest(Long conversationId, boolean interested) {
+        if (interested && !localInterest.contains(conversationId)) {
+            gaps.put(conversationId, new Gap(Instant.now()));
+            localInterest.add(conversationId);
+            links.forEach(link -> link.queueInterest(conversationId, true));
+            scheduleReplay();
+        } else if (!interested && localInterest.remove(conversationId)) {
+            gaps.remove(conversationId);
+            links.forEach(link -> link.queueInterest(conversationId, false));
+        }
+    }
+
+    @Override
+    public boolean isClustered() {
+        return true;
+    }
+
+    @Override
+    public void setListener(Consumer<MessageView> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean isInterestAcknowledged(Long conversationId) {
+        if (!localInterest.contains(conversationId) || gaps.containsKey(conversationId)) {
+            return false;
+        }
+        for (PeerLink link : links) {
+            if (!link.isAcknowledged(conversationId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void setReplaySource(BiFunction<Long, Instant, List<MessageView>> replaySource) {
+        this.replaySource = replaySource;
+    }
+
+    @Override
+    public void publishMembershipChange(long conversationId, Long removedUserId) {
+        RelayFrame frame = RelayFrame.membership(conversationId, removedUserId);
+        links.forEach(link -> link.queueControl(frame));
+    }
+
+    @Override
+    public void setMembershipListener(MembershipListener membershipListener) {
+        this.membershipListener = membershipListener;
+    }
+
+    @Override
+    public void start() {
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(properties.getBindAddress(), properties.getPort()));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot bind cluster relay to %s:%d".formatted(properties.getBindAddress(), properties.getPort()), ex);
+        }
+        running = true;
+        replays = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "cluster-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startThread("cluster-accept", this::acceptLoop);
+        for (String peer : properties.getPeers()) {
+            PeerLink link = new PeerLink(peer);
+            links.add(link);
+            startThread("cluster-link-" + peer, link::run);
+        }
+        log.info("Cluster relay {} listening on {}:{} with peers {}", properties.getNodeId(), properties.getBindAddress(),
+                properties.getPort(), properties.getPeers());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeQuietly(serverSocket);
+        links.forEach(PeerLink::close);
+        links.clear();
+        if (replays != null) {
+            replays.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                startThread("cluster-inbound-" + socket.getRemoteSocketAddress(), () -> readPeer(socket));
+            } catch (IOException ex) {
+                if (running) {
+                    log.warn("Cluster accept failed: {}", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void readPeer(Socket socket) {
+        String peerId = null;
+        Set<Long> interest = null;
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            RelayFrame hello = readFrame(in);
+            if (hello.getType() != RelayFrame.Type.HELLO || hello.getNodeId() == null || hello.getIdNodeId() == null
+                    || hello.getNonce() == null) {
+                log.warn("Dropping cluster connection from {} without HELLO", socket.getRemoteSocketAddress());
+                return;
+            }
+            String nonce = newNonce();
+            writeFrame(out, RelayFrame.hello(properties.getNodeId(), idNodeId, nonce,
+                    prove("accept", hello.getNonce(), nonce, properties.getNodeId(), idNodeId)));
+            out.flush();
+            RelayFrame auth = readFrame(in);
+            if (auth.getType() != RelayFrame.Type.AUTH
+                    || !verify(auth.getProof(), "dial", nonce, hello.getNonce(), hello.getNodeId(), hello.getIdNodeId())) {
+                log.warn("Dropping cluster connection from {}: handshake failed", socket.getRemoteSocketAddress());
+                return;
+            }
+            if (hello.getIdNodeId() == idNodeId) {
+                log.error("Refusing cluster peer {} at {}: it shares chat.ids.node-id {} with this node",
+                        hello.getNodeId(), socket.getRemoteSocketAddress(), idNodeId);
+                return;
+            }
+            peerId = hello.getNodeId();
+            interest = ConcurrentHashMap.newKeySet();
+            peerInterest.put(peerId, interest);
+            notifyMembership(listener -> listener.peerConnected(hello.getNodeId()));
+            scheduleReplay();
+
+            while (running) {
+                RelayFrame frame = readFrame(in);
+                switch (frame.getType()) {
+                    case SNAPSHOT -> {
+                        interest.clear();
+                        if (frame.getConversationIds() != null) {
+                            interest.addAll(frame.getConversationIds());
+                        }
+                        acknowledge(out, frame);
+                    }
+                    case INTEREST -> {
+                        if (frame.isInterested()) {
+                            interest.add(frame.getConversationId());
+                        } else {
+                            interest.remove(frame.getConversationId());
+                        }
+                        acknowledge(out, frame);
+                    }
+                    case MESSAGE -> {
+                        if (deliver(frame.getMessage())) {
+                            received.increment();
+                        }
+                    }
+                    case MEMBERSHIP -> notifyMembership(listener ->
+                            listener.membershipChanged(frame.getConversationId(), frame.getUserId()));
+                    default -> log.debug("Ignoring {} frame from {}", frame.getType(), peerId);
+                }
+            }
+        } catch (IOException ex) {
+            if (running) {
+                log.info("Cluster peer {} disconnected: {}", peerId, ex.getMessage());
+            }
+        } finally {
+            if (interest != null) {
+                peerInterest.remove(peerId, interest);
+                openGaps();
+            }
+        }
+    }
+
+    private void acknowledge(DataOutputStream out, RelayFrame frame) throws IOException {
+        if (frame.getSequence() != null) {
+            writeFrame(out, RelayFrame.ack(frame.getSequence()));
+            out.flush();
+        }
+    }
+
+    /** Hands a message to the listener unless it was already delivered; true if it was new. */
+    private boolean deliver(MessageView view) {
+        if (view == null || view.getId() == null) {
+            return false;
+        }
+        if (delivered.asMap().putIfAbsent(view.getId(), Boolean.TRUE) != null) {
+            duplicates.increment();
+            return false;
+        }
+        try {
+            listener.accept(view);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to deliver relayed message {}", view.getId(), ex);
+        }
+        return true;
+    }
+
+    /**
+     * Starts a gap for every conversation of interest after a link dropped, keeping the start of
+     * one already open. The replacement is a new {@link Gap}, so a replay running for the old one
+     * cannot close it.
+     */
+    private void openGaps() {
+        Instant now = Instant.now();
+        for (Long conversationId : localInterest) {
+            gaps.merge(conversationId, new Gap(now), (open, lost) -> new Gap(open.since));
+        }
+    }
+
+    private void scheduleReplay() {
+        ExecutorService executor = replays;
+        if (executor != null && replayScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::replayAcknowledged);
+            } catch (RuntimeException ex) {
+                replayScheduled.set(false);
+            }
+        }
+    }
+
+    /** Fills and closes the gaps of conversations every peer has acknowledged. */
+    private void replayAcknowledged() {
+        replayScheduled.set(false);
+        for (Map.Entry<Long, Gap> entry : gaps.entrySet()) {
+            Long conversationId = entry.getKey();
+            Gap gap = entry.getValue();
+            if (!localInterest.contains(conversationId)) {
+                gaps.remove(conversationId, gap);
+                continue;
+            }
+            if (!links.stream().allMatch(link -> link.isAcknowledged(conversationId))) {
+                continue;
+            }
+            try {
+                if (!links.isEmpty()) {
+                    Instant since = gap.since.minus(properties.getMaxClockSkew());
+                    for (MessageView view : replaySource.apply(conversationId, since)) {
+                        if (deliver(view)) {
+                            replayed.increment();
+                        }
+                    }
+                }
+                gaps.remove(conversationId, gap);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to replay conversation {} after peers acknowledged interest", conversationId, ex);
+            }
+        }
+    }
+
+    private void notifyMembership(Consumer<MembershipListener> notification) {
+        try {
+            notification.accept(membershipListener);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to apply a cluster membership change", ex);
+        }
+    }
+
+    private RelayFrame readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return objectMapper.readValue(bytes, RelayFrame.class);
+    }
+
+    private void writeFrame(DataOutputStream out, RelayFrame frame) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(frame);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String newNonce() {
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        return Base64.getEncoder().encodeToString(nonce);
+    }
+
+    /** HMAC over the handshake role, both nonces and the sender's node ids. */
+    private String prove(String role, String firstNonce, String secondNonce, String nodeId, int idNodeId) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(secret);
+            String signed = String.join("|", role, firstNonce, secondNonce, nodeId, Integer.toString(idNodeId));
+            byte[] proof = mac.doFinal(signed.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(proof);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot compute cluster handshake proof", ex);
+        }
+    }
+
+    private boolean verify(String proof, String role, String firstNonce, String secondNonce, String nodeId, Integer idNodeId) {
+        if (proof == null || firstNonce == null || secondNonce == null || nodeId == null || idNodeId == null) {
+            return false;
+        }
+        byte[] expected = prove(role, firstNonce, secondNonce, nodeId, idNodeId).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, proof.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private final class PeerLink {
+
+        private final String address;
+        private final BlockingQueue<RelayFrame> outbox;
+        private final Map<Long, Boolean> pendingInterest = new ConcurrentHashMap<>();
+        private final Queue<RelayFrame> pendingControl = new ConcurrentLinkedQueue<>();
+        private final Map<Long, Long> interestSequence = new ConcurrentHashMap<>();
+        private long nextSequence;
+        private volatile long acknowledgedSequence = -1;
+        private volatile String remoteNodeId;
+        private volatile Socket socket;
+
+        private PeerLink(String address) {
+            this.address = address;
+            this.outbox = new ArrayBlockingQueue<>(Math.max(1, properties.getPeerQueueCapacity()));
+        }
+
+        private boolean offer(RelayFrame frame) {
+            return socket != null && outbox.offer(frame);
+        }
+
+        /**
+         * Whether the peer has applied the frame that declared interest in a conversation and
+         * still forwards to this node over its own link.
+         */
+        private boolean isAcknowledged(Long conversationId) {
+            String peerId = remoteNodeId;
+            Long sequence = interestSequence.get(conversationId);
+            return peerId != null && peerInterest.containsKey(peerId)
+                    && sequence != null && sequence <= acknowledgedSequence;
+        }
+
+        /**
+         * Records the latest interest in a conversation for the next write. A full outbox only
+         * means the pump is busy and will reach the pending interest after its current batch.
+         */
+        private void queueInterest(Long conversationId, boolean interested) {
+            pendingInterest.put(conversationId, interested);
+            outbox.offer(WAKE);
+        }
+
+        /** Queues a frame that must not be dropped; a disconnected peer resyncs instead. */
+        private void queueControl(RelayFrame frame) {
+            if (socket != null) {
+                pendingControl.add(frame);
+                outbox.offer(WAKE);
+            }
+        }
+
+        private void run() {
+            while (running) {
+                try {
+                    connectAndPump();
+                } catch (IOException ex) {
+                    if (running) {
+                        log.debug("Cluster link to {} failed: {}", address, ex.getMessage());
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    Socket current = socket;
+                    boolean wasConnected = remoteNodeId != null;
+                    socket = null;
+                    remoteNodeId = null;
+                    closeQuietly(current);
+                    if (wasConnected) {
+                        openGaps();
+                    }
+                }
+                sleepQuietly(properties.getReconnectInterval().toMillis());
+            }
+        }
+
+        private void connectAndPump() throws IOException, InterruptedException {
+            int separator = address.lastIndexOf(':');
+            Socket connected = new Socket();
+            connected.setTcpNoDelay(true);
+            connected.connect(new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1))), 5_000);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connected.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream()));
+            String nonce = newNonce();
+            writeFrame(out, RelayFrame.hello(properties.getNodeId(), idNodeId, nonce, null));
+            out.flush();
+            RelayFrame reply = readFrame(in);
+            if (reply.getType() != RelayFrame.Type.HELLO
+                    || !verify(reply.getProof(), "accept", nonce, reply.getNonce(), reply.getNodeId(), reply.getIdNodeId())) {
+                closeQuietly(connected);
+                throw new IOException("Peer " + address + " failed the cluster handshake");
+            }
+            if (properties.getNodeId().equals(reply.getNodeId())) {
+                closeQuietly(connected);
+                throw new IOException("Peer " + address + " is this node");
+            }
+            if (reply.getIdNodeId() == idNodeId) {
+                closeQuietly(connected);
+                log.error("Refusing cluster peer {} at {}: it shares chat.ids.node-id {} with this node",
+                        reply.getNodeId(), address, idNodeId);
+                throw new IOException("Peer " + address + " shares chat.ids.node-id " + idNodeId);
+            }
+            writeFrame(out, RelayFrame.auth(prove("dial", reply.getNonce(), nonce, properties.getNodeId(), idNodeId)));
+            outbox.clear();
+            pendingInterest.clear();
+            pendingControl.clear();
+            interestSequence.clear();
+            acknowledgedSequence = -1;
+            remoteNodeId = reply.getNodeId();
+            socket = connected;
+            long sequence = nextSequence++;
+            Set<Long> snapshot = Set.copyOf(localInterest);
+            snapshot.forEach(conversationId -> interestSequence.put(conversationId, sequence));
+            writeFrame(out, RelayFrame.snapshot(snapshot, sequence));
+            out.flush();
+            startThread("cluster-ack-" + address, () -> readAcknowledgements(in, connected));
+            log.info("Connected to cluster peer {} at {}", remoteNodeId, address);
+
+            while (running) {
+                RelayFrame frame = outbox.poll(1, TimeUnit.SECONDS);
+                if (frame == null) {
+                    if (connected.isClosed()) {
+                        throw new IOException("Cluster link to " + address + " closed");
+                    }
+                    continue;
+                }
+                do {
+                    writePending(out);
+                    if (frame != WAKE) {
+                        writeFrame(out, frame);
+                    }
+                } while ((frame = outbox.poll()) != null);
+                out.flush();
+            }
+        }
+
+        private void writePending(DataOutputStream out) throws IOException {
+            for (Long conversationId : pendingInterest.keySet()) {
+                Boolean interested = pendingInterest.remove(conversationId);
+                if (interested != null) {
+                    long sequence = nextSequence++;
+                    if (interested) {
+                        interestSequence.put(conversationId, sequence);
+                    } else {
+                        interestSequence.remove(conversationId);
+                    }
+                    writeFrame(out, RelayFrame.interest(conversationId, interested, sequence));
+                }
+            }
+            RelayFrame control;
+            while ((control = pendingControl.poll()) != null) {
+                writeFrame(out, control);
+            }
+        }
+
+        /** Reads the peer's ACKs until the connection closes, which also fails the pump. */
+        private void readAcknowledgements(DataInputStream in, Socket connected) {
+            try {
+                while (running && socket == connected) {
+                    RelayFrame frame = readFrame(in);
+                    if (frame.getType() == RelayFrame.Type.ACK && frame.getSequence() != null) {
+                        acknowledgedSequence = frame.getSequence();
+                        scheduleReplay();
+                    }
+                }
+            } catch (IOException ex) {
+                closeQuietly(connected);
+            }
+        }
+
+        private void close() {
+            closeQuietly(socket);
+        }
+
+        private void sleepQuietly(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Messages of a conversation sent since {@code since} may not have been forwarded here. */
+    private static final class Gap {
+        private final Instant since;
+
+        private Gap(Instant since) {
+            this.since = since;
+        }
+    }
+}
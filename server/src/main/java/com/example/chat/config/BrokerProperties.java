@@ -0,0 +1,37 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.broker")
+public class BrokerProperties {
+
+    /**
+     * STOMP heart-beat interval the broker offers and expects. A session that stays silent for
+     * three intervals is closed, which turns a dead connection into a disconnect event.
+     */
+    private Duration heartbeat = Duration.ofSeconds(10);
+
+    /**
+     * Destinations whose subscribers the simple broker keeps resolved. A miss scans every
+     * subscription, so this should exceed the number of active conversation and presence topics.
+     */
+    private int cacheLimit = 16384;
+
+    public Duration getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(Duration heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    public int getCacheLimit() {
+        return cacheLimit;
+    }
+
+    public void setCacheLimit(int cacheLimit) {
+        this.cacheLimit = cacheLimit;
+    }
+}
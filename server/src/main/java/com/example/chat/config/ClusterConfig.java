@@ -0,0 +1,22 @@
+package com.example.chat.config;
+
+import com.example.chat.cluster.ClusterRelay;
+import com.example.chat.cluster.LocalOnlyClusterRelay;
+import com.example.chat.cluster.TcpMeshClusterRelay;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    public ClusterRelay clusterRelay(ClusterProperties properties, IdGeneratorProperties idProperties, ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry) {
+        if (!properties.isEnabled()) {
+            return new LocalOnlyClusterRelay();
+        }
+        return new TcpMeshClusterRelay(properties, idProperties, objectMapper, meterRegistry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@ConfigurationProperties(prefix = "chat.cluster")
+public class ClusterProperties {
+
+    private boolean enabled = false;
+    private String nodeId = UUID.randomUUID().toString();
+    private String bindAddress;
+    private String secret;
+    private int port = 9701;
+    private List<String> peers = new ArrayList<>();
+    private Duration reconnectInterval = Duration.ofSeconds(2);
+    private int peerQueueCapacity = 10_000;
+    private int dedupCapacity = 100_000;
+
+    /**
+     * How far apart node clocks may be. Replays after an interest acknowledgement start this
+     * much before the gap they cover, since a message's time comes from the node that wrote it.
+     */
+    private Duration maxClockSkew = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public void setBindAddress(String bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public List<String> getPeers() {
+        return peers;
+    }
+
+    public void setPeers(List<String> peers) {
+        this.peers = peers;
+    }
+
+    public Duration getReconnectInterval() {
+        return reconnectInterval;
+    }
+
+    public void setReconnectInterval(Duration reconnectInterval) {
+        this.reconnectInterval = reconnectInterval;
+    }
+
+    public int getPeerQueueCapacity() {
+        return peerQueueCapacity;
+    }
+
+    public void setPeerQueueCapacity(int peerQueueCapacity) {
+        this.peerQueueCapacity = peerQueueCapacity;
+    }
+
+    public int getDedupCapacity() {
+        return dedupCapacity;
+    }
+
+    public void setDedupCapacity(int dedupCapacity) {
+        this.dedupCapacity = dedupCapacity;
+    }
+
+    public Duration getMaxClockSkew() {
+        return maxClockSkew;
+    }
+
+    public void setMaxClockSkew(Duration maxClockSkew) {
+        this.maxClockSkew = maxClockSkew;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.auth.credentials")
+public class CredentialProperties {
+
+    /**
+     * Threads hashing and verifying passwords. BCrypt is CPU bound, so this stays below the
+     * core count to leave room for message delivery during a login storm.
+     */
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 64;
+    /** How long after submission a login or registration may still start hashing; later ones get a 503. */
+    private Duration maxQueueWait = Duration.ofSeconds(5);
+    private Duration retryAfter = Duration.ofSeconds(1);
+    private int bcryptStrength = 10;
+    /** Rehash on a successful login when the stored BCrypt cost differs from {@code bcrypt-strength}. */
+    private boolean rehashOnLogin = true;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public void setMaxQueueWait(Duration maxQueueWait) {
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    public int getBcryptStrength() {
+        return bcryptStrength;
+    }
+
+    public void setBcryptStrength(int bcryptStrength) {
+        this.bcryptStrength = bcryptStrength;
+    }
+
+    public boolean isRehashOnLogin() {
+        return rehashOnLogin;
+    }
+
+    public void setRehashOnLogin(boolean rehashOnLogin) {
+        this.rehashOnLogin = rehashOnLogin;
+    }
+}
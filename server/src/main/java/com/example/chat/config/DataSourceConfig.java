@@ -0,0 +1,122 @@
+package com.example.chat.config;
+
+import com.example.chat.datasource.ReadWriteRoutingDataSource;
+import com.example.chat.datasource.ReadYourWrites;
+import com.example.chat.security.ChatPrincipal;
+import com.example.chat.security.SessionTokenService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Splits JDBC work between the primary ({@code spring.datasource.*}) and a read replica
+ * ({@code chat.datasource.replica.*}) when {@code chat.datasource.replica.enabled=true}. Each
+ * has its own Hikari pool; read-only transactions use the replica. So that a user's reads see
+ * their own recent writes, the acting user is bound to the thread for {@code /api/*} requests
+ * that carry a session token and while an inbound STOMP frame is handled.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "chat.datasource.replica", name = "enabled", havingValue = "true")
+public class DataSourceConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final ReadYourWrites readYourWrites;
+
+    public DataSourceConfig(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(ReplicaProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 MeterRegistry meterRegistry) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, readYourWrites, meterRegistry);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> readYourWritesFilter(SessionTokenService tokenService) {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+                if (!readYourWrites.isEnabled() || authorization == null) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+                tokenService.verifyAuthorization(authorization).ifPresent(user -> readYourWrites.bind(user.getId()));
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    readYourWrites.clear();
+                }
+            }
+        });
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                if (SimpMessageHeaderAccessor.getUser(message.getHeaders()) instanceof ChatPrincipal principal) {
+                    readYourWrites.bind(principal.getUserId());
+                }
+                return message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                readYourWrites.clear();
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.chat.config;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fair permit pool sized to the JDBC connection pool. With virtual threads there is no worker
+ * pool to bound concurrency, so callers park here instead of queueing inside Hikari.
+ */
+public class DatabaseConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public DatabaseConcurrencyLimiter(int permits, Duration acquireTimeout) {
+        this.permits = new Semaphore(permits, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "chat.export")
+public class ExportProperties {
+
+    /**
+     * Rows the JDBC driver fetches per round trip while an export streams. This, not the size of
+     * the conversation, bounds how many rows an export holds in memory.
+     */
+    private int fetchSize = 500;
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.groups")
+public class GroupProperties {
+
+    private int maxMembers = 10_000;
+
+    private int defaultMemberPageSize = 100;
+
+    private int maxMemberPageSize = 1000;
+
+    /** Conversations, direct chats included, whose member list is held in memory. */
+    private long membershipCacheSize = 100_000;
+
+    /**
+     * How long a cached member list is trusted. Changes made on this node apply at once; changes
+     * made on another node are seen once the entry expires.
+     */
+    private Duration membershipTimeToLive = Duration.ofMinutes(5);
+
+    public int getMaxMembers() {
+        return maxMembers;
+    }
+
+    public void setMaxMembers(int maxMembers) {
+        this.maxMembers = maxMembers;
+    }
+
+    public int getDefaultMemberPageSize() {
+        return defaultMemberPageSize;
+    }
+
+    public void setDefaultMemberPageSize(int defaultMemberPageSize) {
+        this.defaultMemberPageSize = defaultMemberPageSize;
+    }
+
+    public int getMaxMemberPageSize() {
+        return maxMemberPageSize;
+    }
+
+    public void setMaxMemberPageSize(int maxMemberPageSize) {
+        this.maxMemberPageSize = maxMemberPageSize;
+    }
+
+    public long getMembershipCacheSize() {
+        return membershipCacheSize;
+    }
+
+    public void setMembershipCacheSize(long membershipCacheSize) {
+        this.membershipCacheSize = membershipCacheSize;
+    }
+
+    public Duration getMembershipTimeToLive() {
+        return membershipTimeToLive;
+    }
+
+    public void setMembershipTimeToLive(Duration membershipTimeToLive) {
+        this.membershipTimeToLive = membershipTimeToLive;
+    }
+}
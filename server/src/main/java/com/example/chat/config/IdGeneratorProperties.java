@@ -0,0 +1,34 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Instant;
+
+@ConfigurationProperties(prefix = "chat.ids")
+public class IdGeneratorProperties {
+
+    /**
+     * Unique per running node, 0 to 63. Two nodes sharing a node id can issue the same id. Unset
+     * means 0, which the cluster relay refuses.
+     */
+    private Integer nodeId;
+
+    /** Start of the id clock. Ids run out 69 years after it; never move it once ids exist. */
+    private Instant epoch = Instant.parse("2024-01-01T00:00:00Z");
+
+    public Integer getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(Integer nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Instant getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(Instant epoch) {
+        this.epoch = epoch;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "chat.inbox")
+public class InboxProperties {
+
+    private int defaultPageSize = 20;
+    private int maxPageSize = 100;
+    private int previewLength = 140;
+
+    /**
+     * Builds inbox rows from existing conversations at startup when {@code inbox_entries} is
+     * still empty. Unread counts start at zero.
+     */
+    private boolean backfillOnStartup = true;
+
+    public int getDefaultPageSize() {
+        return defaultPageSize;
+    }
+
+    public void setDefaultPageSize(int defaultPageSize) {
+        this.defaultPageSize = defaultPageSize;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public int getPreviewLength() {
+        return previewLength;
+    }
+
+    public void setPreviewLength(int previewLength) {
+        this.previewLength = previewLength;
+    }
+
+    public boolean isBackfillOnStartup() {
+        return backfillOnStartup;
+    }
+
+    public void setBackfillOnStartup(boolean backfillOnStartup) {
+        this.backfillOnStartup = backfillOnStartup;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "chat.cache.known-conversations")
+public class KnownConversationProperties {
+
+    /** Pairs of users whose direct conversation id is cached. */
+    private long maximumSize = 200_000;
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.monitoring")
+public class MonitoringProperties {
+
+    private Duration hotWindow = Duration.ofSeconds(10);
+    private int hotConversations = 10;
+
+    public Duration getHotWindow() {
+        return hotWindow;
+    }
+
+    public void setHotWindow(Duration hotWindow) {
+        this.hotWindow = hotWindow;
+    }
+
+    public int getHotConversations() {
+        return hotConversations;
+    }
+
+    public void setHotConversations(int hotConversations) {
+        this.hotConversations = hotConversations;
+    }
+}
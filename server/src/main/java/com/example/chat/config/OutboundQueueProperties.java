@@ -0,0 +1,63 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.outbound")
+public class OutboundQueueProperties {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DISCONNECT,
+        RESYNC
+    }
+
+    private int maxMessages = 1_000;
+    private DataSize maxBytes = DataSize.ofMegabytes(1);
+    private OverflowPolicy overflowPolicy = OverflowPolicy.RESYNC;
+    /** Longest a single write may block before the session is closed. */
+    private Duration sendTimeLimit = Duration.ofSeconds(2);
+    private int flushThreads = 16;
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public DataSize getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(DataSize maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Duration getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    public int getFlushThreads() {
+        return flushThreads;
+    }
+
+    public void setFlushThreads(int flushThreads) {
+        this.flushThreads = flushThreads;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.presence")
+public class PresenceProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * How long a typing signal lasts without being repeated. Clients resend it while the user
+     * keeps typing; the server only broadcasts when the state flips.
+     */
+    private Duration typingTimeout = Duration.ofSeconds(6);
+
+    private int shards = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTypingTimeout() {
+        return typingTimeout;
+    }
+
+    public void setTypingTimeout(Duration typingTimeout) {
+        this.typingTimeout = typingTimeout;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+}
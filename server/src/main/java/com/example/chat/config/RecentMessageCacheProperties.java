@@ -0,0 +1,47 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.cache.recent-messages")
+public class RecentMessageCacheProperties {
+
+    private boolean enabled = true;
+    private int messagesPerConversation = 200;
+    private DataSize maxMemory = DataSize.ofMegabytes(64);
+    private Duration idleTimeout = Duration.ofMinutes(15);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMessagesPerConversation() {
+        return messagesPerConversation;
+    }
+
+    public void setMessagesPerConversation(int messagesPerConversation) {
+        this.messagesPerConversation = messagesPerConversation;
+    }
+
+    public DataSize getMaxMemory() {
+        return maxMemory;
+    }
+
+    public void setMaxMemory(DataSize maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "chat.replay")
+public class ReplayProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Most messages replayed on one SUBSCRIBE. A client that missed more is sent a resync
+     * marker instead and reloads history over REST.
+     */
+    private int maxMessages = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+}
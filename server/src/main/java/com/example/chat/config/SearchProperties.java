@@ -0,0 +1,121 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.search")
+public class SearchProperties {
+
+    private boolean enabled = true;
+    private String indexPath = "data/search-index";
+    private DataSize ramBuffer = DataSize.ofMegabytes(32);
+    private int liveQueueCapacity = 10_000;
+
+    /**
+     * How far behind the clock the catch-up scan stays. Rows younger than this may belong to
+     * transactions that have not committed yet, so they are left for the next run.
+     */
+    private Duration catchUpLag = Duration.ofSeconds(10);
+
+    /**
+     * How much later than {@code catch-up-lag} a message may still commit and be indexed. A
+     * trailing scan reads each row once more when it is this much older than the catch-up horizon
+     * and indexes the ones the index does not have.
+     */
+    private Duration lateCommitWindow = Duration.ofMinutes(1);
+    private int batchSize = 1_000;
+    private int maxBatchesPerRun = 50;
+    private Duration pauseBetweenBatches = Duration.ofMillis(20);
+    private int defaultPageSize = 20;
+    private int maxPageSize = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getIndexPath() {
+        return indexPath;
+    }
+
+    public void setIndexPath(String indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    public DataSize getRamBuffer() {
+        return ramBuffer;
+    }
+
+    public void setRamBuffer(DataSize ramBuffer) {
+        this.ramBuffer = ramBuffer;
+    }
+
+    public int getLiveQueueCapacity() {
+        return liveQueueCapacity;
+    }
+
+    public void setLiveQueueCapacity(int liveQueueCapacity) {
+        this.liveQueueCapacity = liveQueueCapacity;
+    }
+
+    public Duration getCatchUpLag() {
+        return catchUpLag;
+    }
+
+    public void setCatchUpLag(Duration catchUpLag) {
+        this.catchUpLag = catchUpLag;
+    }
+
+    public Duration getLateCommitWindow() {
+        return lateCommitWindow;
+    }
+
+    public void setLateCommitWindow(Duration lateCommitWindow) {
+        this.lateCommitWindow = lateCommitWindow;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxBatchesPerRun() {
+        return maxBatchesPerRun;
+    }
+
+    public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    public Duration getPauseBetweenBatches() {
+        return pauseBetweenBatches;
+    }
+
+    public void setPauseBetweenBatches(Duration pauseBetweenBatches) {
+        this.pauseBetweenBatches = pauseBetweenBatches;
+    }
+
+    public int getDefaultPageSize() {
+        return defaultPageSize;
+    }
+
+    public void setDefaultPageSize(int defaultPageSize) {
+        this.defaultPageSize = defaultPageSize;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.auth.token")
+public class SessionTokenProperties {
+
+    /**
+     * Base64-encoded HMAC key. Every node of a cluster needs the same key; when it is left
+     * empty a random key is generated and tokens only work on the node that issued them.
+     */
+    private String secret;
+    private Duration timeToLive = Duration.ofHours(12);
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+}
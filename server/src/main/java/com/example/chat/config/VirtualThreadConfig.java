@@ -0,0 +1,112 @@
+package com.example.chat.config;
+
+import com.example.chat.presence.PresenceService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.io.IOException;
+
+/**
+ * Runs STOMP inbound handling and outbound delivery on virtual threads when
+ * {@code spring.threads.virtual.enabled=true} on Java 21+ (Spring Boot already moves Tomcat
+ * onto virtual threads in that mode). Database-bound work, inbound SEND frames and
+ * {@code /api/*} requests, is gated by a {@link DatabaseConcurrencyLimiter}.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final DatabaseConcurrencyLimiter limiter;
+
+    public VirtualThreadConfig(VirtualThreadProperties properties, MeterRegistry meterRegistry) {
+        this.limiter = new DatabaseConcurrencyLimiter(properties.getDatabaseConcurrency(), properties.getAcquireTimeout());
+        Gauge.builder("chat.db.limiter.available", limiter, DatabaseConcurrencyLimiter::availablePermits).register(meterRegistry);
+        Gauge.builder("chat.db.limiter.waiting", limiter, DatabaseConcurrencyLimiter::queueLength).register(meterRegistry);
+    }
+
+    @Bean
+    public DatabaseConcurrencyLimiter databaseConcurrencyLimiter() {
+        return limiter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> databaseConcurrencyFilter() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                if (!limiter.tryAcquire()) {
+                    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Database busy");
+                    return;
+                }
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    limiter.release();
+                }
+            }
+        });
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(virtualExecutor("clientInbound-"));
+        registration.interceptors(new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                if (isDatabaseBound(message, handler) && !limiter.tryAcquire()) {
+                    throw new MessagingException(message, "Database busy");
+                }
+                return message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                if (isDatabaseBound(message, handler)) {
+                    limiter.release();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(virtualExecutor("clientOutbound-"));
+    }
+
+    private static boolean isDatabaseBound(Message<?> message, MessageHandler handler) {
+        return handler instanceof SimpAnnotationMethodMessageHandler
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && !PresenceService.TYPING_DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+    }
+
+    private static SimpleAsyncTaskExecutor virtualExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
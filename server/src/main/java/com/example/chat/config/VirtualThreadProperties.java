@@ -0,0 +1,28 @@
+package com.example.chat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.virtual-threads")
+public class VirtualThreadProperties {
+
+    private int databaseConcurrency = 20;
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+
+    public int getDatabaseConcurrency() {
+        return databaseConcurrency;
+    }
+
+    public void setDatabaseConcurrency(int databaseConcurrency) {
+        this.databaseConcurrency = databaseConcurrency;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+}
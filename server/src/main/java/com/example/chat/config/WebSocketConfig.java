@@ -1,25 +1,95 @@
 package com.example.chat.config;
 
+import com.example.chat.security.ConversationAccessInterceptor;
+import com.example.chat.security.TokenAuthenticationInterceptor;
+import com.example.chat.websocket.BinaryEncodingNegotiator;
+import com.example.chat.websocket.BinaryFrameHandlerDecorator;
+import com.example.chat.websocket.CborCodec;
+import com.example.chat.websocket.CborMessageConverter;
+import com.example.chat.websocket.OutboundQueueHandlerDecorator;
+import com.example.chat.websocket.OutboundQueueRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final CborCodec cborCodec;
+    private final BinaryEncodingNegotiator binaryEncodingNegotiator;
+    private final OutboundQueueRegistry outboundQueueRegistry;
+    private final TokenAuthenticationInterceptor tokenAuthenticationInterceptor;
+    private final ConversationAccessInterceptor conversationAccessInterceptor;
+    private final BrokerProperties brokerProperties;
+    private final TaskScheduler brokerScheduler;
+
+    public WebSocketConfig(CborCodec cborCodec,
+                           BinaryEncodingNegotiator binaryEncodingNegotiator,
+                           OutboundQueueRegistry outboundQueueRegistry,
+                           TokenAuthenticationInterceptor tokenAuthenticationInterceptor,
+                           ConversationAccessInterceptor conversationAccessInterceptor,
+                           BrokerProperties brokerProperties,
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler brokerScheduler) {
+        this.cborCodec = cborCodec;
+        this.binaryEncodingNegotiator = binaryEncodingNegotiator;
+        this.outboundQueueRegistry = outboundQueueRegistry;
+        this.tokenAuthenticationInterceptor = tokenAuthenticationInterceptor;
+        this.conversationAccessInterceptor = conversationAccessInterceptor;
+        this.brokerProperties = brokerProperties;
+        this.brokerScheduler = brokerScheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws-chat")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        registry.addEndpoint("/ws-chat-native")
+                .setAllowedOriginPatterns("*");
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
-        registry.enableSimpleBroker("/topic", "/queue");
+        long heartbeat = brokerProperties.getHeartbeat().toMillis();
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeat, heartbeat})
+                .setTaskScheduler(brokerScheduler);
+        registry.setPreservePublishOrder(true);
+        registry.setCacheLimit(brokerProperties.getCacheLimit());
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new CborMessageConverter(cborCodec));
+        return true;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(tokenAuthenticationInterceptor, conversationAccessInterceptor,
+                binaryEncodingNegotiator.inboundInterceptor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(binaryEncodingNegotiator.outboundInterceptor());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(handler -> new BinaryFrameHandlerDecorator(handler, binaryEncodingNegotiator));
+        registration.addDecoratorFactory(handler -> new OutboundQueueHandlerDecorator(handler, outboundQueueRegistry));
     }
 }
@@ -3,10 +3,14 @@ package com.example.chat.controller;
 import com.example.chat.dto.LoginRequest;
 import com.example.chat.dto.LoginResponse;
 import com.example.chat.dto.RegisterRequest;
+import com.example.chat.dto.UserSummary;
 import com.example.chat.model.ChatUser;
-import com.example.chat.service.ChatService;
+import com.example.chat.security.SessionTokenService;
+import com.example.chat.security.SessionTokenService.IssuedToken;
+import com.example.chat.service.CredentialService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -15,28 +19,33 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
     private static final Logger log = LoggerFactory.getLogger(AuthController.class);
 
-    private final ChatService chatService;
+    private final CredentialService credentialService;
+    private final SessionTokenService tokenService;
 
-    public AuthController(ChatService chatService) {
-        this.chatService = chatService;
+    public AuthController(CredentialService credentialService, SessionTokenService tokenService) {
+        this.credentialService = credentialService;
+        this.tokenService = tokenService;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest request) {
-        ChatUser user = chatService.authenticate(request.getUserId(), request.getPassword());
-        return ResponseEntity.ok(toResponse(user));
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(@RequestBody LoginRequest request) {
+        return credentialService.authenticate(request.getUserId(), request.getPassword())
+                .thenApply(user -> ResponseEntity.ok(toResponse(user)));
     }
 
     @PostMapping("/register")
-    public ResponseEntity<LoginResponse> register(@RequestBody RegisterRequest request) {
-        ChatUser user = chatService.registerUser(request.getUserId(), request.getPassword(), request.getDisplayName());
-        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(user));
+    public CompletableFuture<ResponseEntity<LoginResponse>> register(@RequestBody RegisterRequest request) {
+        return credentialService.register(request.getUserId(), request.getPassword(), request.getDisplayName())
+                .thenApply(user -> ResponseEntity.status(HttpStatus.CREATED).body(toResponse(user)));
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
@@ -45,7 +54,16 @@ public class AuthController {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleSaturated(RejectedExecutionException ex) {
+        log.debug("Credential check shed: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(credentialService.retryAfterSeconds()))
+                .body("Too many sign-in attempts, retry shortly");
+    }
+
     private LoginResponse toResponse(ChatUser user) {
-        return new LoginResponse(user.getId(), user.getUsername(), user.getDisplayName());
+        IssuedToken token = tokenService.issue(new UserSummary(user.getId(), user.getDisplayName()));
+        return new LoginResponse(user.getId(), user.getUsername(), user.getDisplayName(), token.getToken(), token.getExpiresAt());
     }
 }
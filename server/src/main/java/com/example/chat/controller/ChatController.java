@@ -1,40 +1,123 @@
 package com.example.chat.controller;
 
-import com.example.chat.dto.MessageView;
-import com.example.chat.model.Message;
+import com.example.chat.dto.DirectConversationView;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessagePage;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.security.SessionTokenService;
 import com.example.chat.service.ChatService;
+import com.example.chat.service.ConversationExporter;
+import com.example.chat.service.ConversationMembership;
+import com.example.chat.service.DirectConversations;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/conversations")
 public class ChatController {
 
     private final ChatService chatService;
+    private final DirectConversations directConversations;
+    private final ConversationExporter exporter;
+    private final ConversationMembership membership;
+    private final SessionTokenService tokenService;
 
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, DirectConversations directConversations, ConversationExporter exporter,
+                          ConversationMembership membership, SessionTokenService tokenService) {
         this.chatService = chatService;
+        this.directConversations = directConversations;
+        this.exporter = exporter;
+        this.membership = membership;
+        this.tokenService = tokenService;
     }
 
+    /**
+     * The signed-in user's direct conversation with {@code peerId}, created if they have never
+     * talked. Takes the login token as {@code Authorization: Bearer <token>}.
+     */
+    @PostMapping("/direct/{peerId}")
+    public ResponseEntity<DirectConversationView> resolveDirect(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                                @PathVariable Long peerId) {
+        UserSummary user = tokenService.verifyAuthorization(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or missing session token"));
+        UserSummary peer = chatService.requireUser(peerId);
+        return ResponseEntity.ok(new DirectConversationView(directConversations.resolve(user.getId(), peer.getId()), peer.getId()));
+    }
+
+    /** A page of history. Only members may read it, with the login token as {@code Authorization: Bearer <token>}. */
     @GetMapping("/{conversationId}/messages")
-    public ResponseEntity<List<MessageView>> getMessages(@PathVariable Long conversationId) {
-        List<Message> messages = chatService.getConversationMessages(conversationId);
-        List<MessageView> views = messages.stream()
-                .map(message -> new MessageView(
-                        message.getId(),
-                        conversationId,
-                        message.getSender().getId(),
-                        message.getSender().getDisplayName(),
-                        message.getContent(),
-                        message.getSentAt()
-                ))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(views);
+    public ResponseEntity<MessagePage> getMessages(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                   @PathVariable Long conversationId,
+                                                   @RequestParam(required = false) String before,
+                                                   @RequestParam(required = false) String after,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(defaultValue = "false") boolean includeArchived) {
+        UserSummary user = tokenService.verifyAuthorization(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or missing session token"));
+        if (!membership.isMember(conversationId, user.getId())) {
+            throw new SecurityException("Only members may read a conversation");
+        }
+        MessagePage page = chatService.getConversationMessages(
+                conversationId,
+                MessageCursor.decode(before),
+                MessageCursor.decode(after),
+                limit,
+                includeArchived
+        );
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * The full history of a conversation, archived messages included, as NDJSON. Only members
+     * may export, with the login token as {@code Authorization: Bearer <token>}. The body is
+     * gzip-compressed when the request accepts it. Written synchronously so that a long export
+     * is not cut off by the async request timeout.
+     */
+    @GetMapping("/{conversationId}/export")
+    public void export(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                       @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       @PathVariable Long conversationId,
+                       HttpServletResponse response) throws IOException {
+        UserSummary user = tokenService.verifyAuthorization(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or missing session token"));
+        exporter.checkAccess(conversationId, user.getId());
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"conversation-" + conversationId + ".ndjson\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        OutputStream body = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+        exporter.export(conversationId, body);
+        if (body instanceof GZIPOutputStream compressed) {
+            compressed.finish();
+        }
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    public ResponseEntity<String> handleForbidden(SecurityException ex) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ex.getMessage());
     }
 }
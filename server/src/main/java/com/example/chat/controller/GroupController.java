@@ -0,0 +1,97 @@
+package com.example.chat.controller;
+
+import com.example.chat.dto.AddMembersRequest;
+import com.example.chat.dto.CreateGroupRequest;
+import com.example.chat.dto.GroupMemberPage;
+import com.example.chat.dto.GroupView;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.security.SessionTokenService;
+import com.example.chat.service.GroupService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Group conversations and their members. Messages are sent over STOMP like direct messages,
+ * with the group's id as {@code conversationId} and no recipient. Requests carry the session
+ * token from login as {@code Authorization: Bearer <token>}.
+ */
+@RestController
+@RequestMapping("/api/groups")
+public class GroupController {
+
+    private final GroupService groupService;
+    private final SessionTokenService tokenService;
+
+    public GroupController(GroupService groupService, SessionTokenService tokenService) {
+        this.groupService = groupService;
+        this.tokenService = tokenService;
+    }
+
+    @PostMapping
+    public ResponseEntity<GroupView> createGroup(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                 @RequestBody CreateGroupRequest request) {
+        UserSummary user = authenticate(authorization);
+        GroupView group = groupService.createGroup(user, request.getTitle(), request.getMemberIds());
+        return ResponseEntity.status(HttpStatus.CREATED).body(group);
+    }
+
+    @GetMapping("/{conversationId}")
+    public ResponseEntity<GroupView> getGroup(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                              @PathVariable long conversationId) {
+        UserSummary user = authenticate(authorization);
+        return ResponseEntity.ok(groupService.getGroup(user, conversationId));
+    }
+
+    @GetMapping("/{conversationId}/members")
+    public ResponseEntity<GroupMemberPage> listMembers(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                       @PathVariable long conversationId,
+                                                       @RequestParam(required = false) Long after,
+                                                       @RequestParam(required = false) Integer limit) {
+        UserSummary user = authenticate(authorization);
+        return ResponseEntity.ok(groupService.listMembers(user, conversationId, after, limit));
+    }
+
+    @PostMapping("/{conversationId}/members")
+    public ResponseEntity<GroupView> addMembers(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                @PathVariable long conversationId,
+                                                @RequestBody AddMembersRequest request) {
+        UserSummary user = authenticate(authorization);
+        return ResponseEntity.ok(groupService.addMembers(user, conversationId, request.getUserIds()));
+    }
+
+    @DeleteMapping("/{conversationId}/members/{userId}")
+    public ResponseEntity<Void> removeMember(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                             @PathVariable long conversationId,
+                                             @PathVariable long userId) {
+        UserSummary user = authenticate(authorization);
+        groupService.removeMember(user, conversationId, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    public ResponseEntity<String> handleForbidden(SecurityException ex) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ex.getMessage());
+    }
+
+    private UserSummary authenticate(String authorization) {
+        return tokenService.verifyAuthorization(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or missing session token"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chat.controller;
+
+import com.example.chat.dto.InboxPage;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.security.SessionTokenService;
+import com.example.chat.service.InboxService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The signed-in user's conversations, newest activity first. Requests carry the session token
+ * from login as {@code Authorization: Bearer <token>}.
+ */
+@RestController
+@RequestMapping("/api/inbox")
+public class InboxController {
+
+    private final InboxService inboxService;
+    private final SessionTokenService tokenService;
+
+    public InboxController(InboxService inboxService, SessionTokenService tokenService) {
+        this.inboxService = inboxService;
+        this.tokenService = tokenService;
+    }
+
+    @GetMapping
+    public ResponseEntity<InboxPage> getInbox(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                              @RequestParam(required = false) String before,
+                                              @RequestParam(required = false) Integer limit) {
+        UserSummary user = authenticate(authorization);
+        return ResponseEntity.ok(inboxService.getInbox(user.getId(), MessageCursor.decode(before), limit));
+    }
+
+    @PostMapping("/{conversationId}/read")
+    public ResponseEntity<Void> markRead(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                         @PathVariable Long conversationId,
+                                         @RequestParam(required = false) Long lastReadMessageId) {
+        UserSummary user = authenticate(authorization);
+        inboxService.markRead(user.getId(), conversationId, lastReadMessageId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    private UserSummary authenticate(String authorization) {
+        return tokenService.verifyAuthorization(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or missing session token"));
+    }
+}
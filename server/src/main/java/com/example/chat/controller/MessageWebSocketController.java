@@ -2,57 +2,144 @@ package com.example.chat.controller;
 
 import com.example.chat.dto.ChatMessagePayload;
 import com.example.chat.dto.MessageView;
-import com.example.chat.model.ChatUser;
+import com.example.chat.dto.TypingPayload;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.model.Conversation;
+import com.example.chat.monitoring.ChatMetrics;
+import com.example.chat.monitoring.ChatMetrics.Outcome;
+import com.example.chat.monitoring.ChatMetrics.Stage;
+import com.example.chat.presence.PresenceService;
+import com.example.chat.security.ChatPrincipal;
 import com.example.chat.service.ChatService;
+import com.example.chat.service.ConversationMembership;
+import com.example.chat.service.DirectConversations;
+import com.example.chat.service.GroupCommitMessageWriter;
+import com.example.chat.service.MessageBroadcaster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
+
 @Controller
 public class MessageWebSocketController {
 
     private static final Logger log = LoggerFactory.getLogger(MessageWebSocketController.class);
 
     private final ChatService chatService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupCommitMessageWriter messageWriter;
+    private final MessageBroadcaster broadcaster;
+    private final ChatMetrics metrics;
+    private final PresenceService presence;
+    private final ConversationMembership membership;
+    private final DirectConversations directConversations;
 
-    public MessageWebSocketController(ChatService chatService, SimpMessagingTemplate messagingTemplate) {
+    public MessageWebSocketController(ChatService chatService,
+                                      GroupCommitMessageWriter messageWriter,
+                                      MessageBroadcaster broadcaster,
+                                      ChatMetrics metrics,
+                                      PresenceService presence,
+                                      ConversationMembership membership,
+                                      DirectConversations directConversations) {
         this.chatService = chatService;
-        this.messagingTemplate = messagingTemplate;
+        this.messageWriter = messageWriter;
+        this.broadcaster = broadcaster;
+        this.metrics = metrics;
+        this.presence = presence;
+        this.membership = membership;
+        this.directConversations = directConversations;
     }
 
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload ChatMessagePayload payload) {
-        if (payload.getSenderId() == null || payload.getRecipientId() == null) {
-            log.warn("Rejecting message without sender ({}) or recipient ({})", payload.getSenderId(), payload.getRecipientId());
+    public void sendMessage(@Payload ChatMessagePayload payload, Principal principal) {
+        long started = System.nanoTime();
+        if (!(principal instanceof ChatPrincipal chatPrincipal)) {
+            log.warn("Rejecting message on a session without an authenticated user");
+            metrics.recordSend(Outcome.REJECTED, started);
+            return;
+        }
+        UserSummary sender = chatPrincipal.getUser();
+        if (payload.getSenderId() != null && !payload.getSenderId().equals(sender.getId())) {
+            log.warn("Rejecting message from user {} claiming to be user {}", sender.getId(), payload.getSenderId());
+            metrics.recordSend(Outcome.REJECTED, started);
+            return;
+        }
+        if (payload.getConversationId() != null && Conversation.isGroup(payload.getConversationId())) {
+            sendGroupMessage(payload.getConversationId(), sender, payload.getContent(), started);
+            return;
+        }
+        if (payload.getRecipientId() == null) {
+            log.warn("Rejecting message from user {} without recipient", sender.getId());
+            metrics.recordSend(Outcome.REJECTED, started);
             return;
         }
 
-        ChatUser sender;
-        ChatUser recipient;
+        UserSummary recipient;
         try {
-            sender = chatService.requireUser(payload.getSenderId());
-            recipient = chatService.requireUser(payload.getRecipientId());
+            recipient = metrics.time(Stage.USER_LOOKUP, () -> chatService.requireUser(payload.getRecipientId()));
         } catch (IllegalArgumentException ex) {
             log.warn("Rejecting message for unknown user: {}", ex.getMessage());
+            metrics.recordSend(Outcome.REJECTED, started);
             return;
         }
 
-        long expectedConversationId = chatService.directConversationId(sender.getId(), recipient.getId());
+        long conversationId;
+        try {
+            conversationId = metrics.time(Stage.CONVERSATION_RESOLVE, () -> directConversations.resolve(sender.getId(), recipient.getId()));
+        } catch (RuntimeException ex) {
+            log.warn("Could not resolve the conversation of users {} and {}", sender.getId(), recipient.getId(), ex);
+            metrics.recordSend(Outcome.FAILED, started);
+            return;
+        }
         Long requestedConversationId = payload.getConversationId();
-        long conversationId = requestedConversationId != null && requestedConversationId == expectedConversationId
-                ? requestedConversationId
-                : expectedConversationId;
+        if (requestedConversationId != null && requestedConversationId != conversationId) {
+            log.warn("Overriding conversation id {} with expected id {} for users {} and {}", requestedConversationId, conversationId, sender.getId(), recipient.getId());
+        }
 
-        if (requestedConversationId != null && requestedConversationId != expectedConversationId) {
-            log.warn("Overriding conversation id {} with expected id {} for users {} and {}", requestedConversationId, expectedConversationId, sender.getId(), recipient.getId());
+        messageWriter.submit(conversationId, sender, recipient, payload.getContent())
+                .whenComplete((view, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to persist message from user {} to user {}", sender.getId(), recipient.getId(), ex);
+                        metrics.recordSend(Outcome.FAILED, started);
+                        return;
+                    }
+                    broadcast(view, sender, recipient);
+                    metrics.recordSend(Outcome.DELIVERED, started);
+                });
+    }
+
+    private void sendGroupMessage(long conversationId, UserSummary sender, String content, long started) {
+        if (!metrics.time(Stage.MEMBERSHIP_CHECK, () -> membership.isMember(conversationId, sender.getId()))) {
+            log.warn("Rejecting message from user {} to group {} they are not a member of", sender.getId(), conversationId);
+            metrics.recordSend(Outcome.REJECTED, started);
+            return;
         }
+        messageWriter.submit(conversationId, sender, null, content)
+                .whenComplete((view, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to persist message from user {} to group {}", sender.getId(), conversationId, ex);
+                        metrics.recordSend(Outcome.FAILED, started);
+                        return;
+                    }
+                    log.debug("Broadcasting message {} to group {}", view.getId(), conversationId);
+                    broadcaster.broadcast(view);
+                    metrics.recordSend(Outcome.DELIVERED, started);
+                });
+    }
+
+    @MessageMapping("/chat.typing")
+    public void typing(@Payload TypingPayload payload, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        if (payload.getConversationId() == null || !presence.typing(sessionId, payload.getConversationId(), payload.isTyping())) {
+            log.debug("Ignoring typing signal from session {} for conversation {}", sessionId, payload.getConversationId());
+        }
+    }
 
-        MessageView view = chatService.persistDirectMessage(conversationId, sender, recipient, payload.getContent());
+    private void broadcast(MessageView view, UserSummary sender, UserSummary recipient) {
         log.debug("Broadcasting message {} between users {} and {}", view.getId(), sender.getId(), recipient.getId());
-        messagingTemplate.convertAndSend("/topic/conversations/" + view.getConversationId(), view);
+        broadcaster.broadcast(view);
     }
 }
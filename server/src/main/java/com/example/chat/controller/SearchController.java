@@ -0,0 +1,52 @@
+package com.example.chat.controller;
+
+import com.example.chat.dto.MessagePage;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.search.MessageSearchService;
+import com.example.chat.search.SearchCursor;
+import com.example.chat.security.SessionTokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private final MessageSearchService searchService;
+    private final SessionTokenService tokenService;
+
+    public SearchController(MessageSearchService searchService, SessionTokenService tokenService) {
+        this.searchService = searchService;
+        this.tokenService = tokenService;
+    }
+
+    @GetMapping
+    public ResponseEntity<MessagePage> search(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                              @RequestParam String q,
+                                              @RequestParam(required = false) Long conversationId,
+                                              @RequestParam(required = false) Long participantId,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
+        UserSummary user = tokenService.verifyAuthorization(authorization)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or missing session token"));
+        return ResponseEntity.ok(searchService.search(user.getId(), q, conversationId, participantId, SearchCursor.decode(cursor), limit));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> handleUnavailable(IllegalStateException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
+}
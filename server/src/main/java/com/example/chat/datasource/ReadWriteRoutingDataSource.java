@@ -0,0 +1,47 @@
+package com.example.chat.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. The route is
+ * decided when a connection is requested, so this must sit behind a
+ * {@code LazyConnectionDataSourceProxy}: the transaction manager asks for its connection before
+ * the read-only flag of the transaction is visible, and the proxy defers that until the first
+ * statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReadYourWrites readYourWrites;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites,
+                                      MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+        this.primaryRoutes = Counter.builder("chat.datasource.routed").tag("route", "primary").register(meterRegistry);
+        this.replicaRoutes = Counter.builder("chat.datasource.routed").tag("route", "replica").register(meterRegistry);
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !readYourWrites.pinnedToPrimary()) {
+            replicaRoutes.increment();
+            return Route.REPLICA;
+        }
+        primaryRoutes.increment();
+        return Route.PRIMARY;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.chat.datasource;
+
+import com.example.chat.config.ReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Remembers which users wrote within {@code chat.datasource.replica.read-your-writes-window}, so
+ * that their reads go to the primary until the replica has caught up. Writers call
+ * {@link #recordWrite} once their transaction has committed. Whoever knows the acting user binds
+ * it to the thread, and {@link ReadWriteRoutingDataSource} asks {@link #pinnedToPrimary} when
+ * a read-only transaction opens its connection.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Long> ACTING_USER = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(ReplicaProperties properties) {
+        this.enabled = properties.isEnabled() && !properties.getReadYourWritesWindow().isZero();
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(properties.getReadYourWritesMaximumSize())
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recordWrite(Long userId) {
+        if (enabled && userId != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public void bind(Long userId) {
+        if (enabled) {
+            ACTING_USER.set(userId);
+        }
+    }
+
+    public void clear() {
+        ACTING_USER.remove();
+    }
+
+    public <T> T actingAs(Long userId, Supplier<T> action) {
+        bind(userId);
+        try {
+            return action.get();
+        } finally {
+            clear();
+        }
+    }
+
+    /** Whether the user bound to this thread wrote recently enough that the replica may lag. */
+    public boolean pinnedToPrimary() {
+        Long userId = ACTING_USER.get();
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+}
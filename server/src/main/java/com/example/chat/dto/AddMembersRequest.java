@@ -0,0 +1,16 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+public class AddMembersRequest {
+
+    private List<Long> userIds;
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+public class CreateGroupRequest {
+
+    private String title;
+    private List<Long> memberIds;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public List<Long> getMemberIds() {
+        return memberIds;
+    }
+
+    public void setMemberIds(List<Long> memberIds) {
+        this.memberIds = memberIds;
+    }
+}
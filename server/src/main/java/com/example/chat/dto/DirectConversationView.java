@@ -0,0 +1,20 @@
+package com.example.chat.dto;
+
+public class DirectConversationView {
+
+    private final Long conversationId;
+    private final Long peerId;
+
+    public DirectConversationView(Long conversationId, Long peerId) {
+        this.conversationId = conversationId;
+        this.peerId = peerId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public Long getPeerId() {
+        return peerId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+public class GroupMemberPage {
+
+    private final List<GroupMemberView> members;
+    private final Long nextAfter;
+
+    public GroupMemberPage(List<GroupMemberView> members, Long nextAfter) {
+        this.members = members;
+        this.nextAfter = nextAfter;
+    }
+
+    public List<GroupMemberView> getMembers() {
+        return members;
+    }
+
+    /** The {@code after} value for the next page, or {@code null} on the last page. */
+    public Long getNextAfter() {
+        return nextAfter;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.chat.dto;
+
+import java.time.Instant;
+
+public class GroupMemberView {
+
+    private final Long userId;
+    private final String displayName;
+    private final String role;
+    private final Instant joinedAt;
+
+    public GroupMemberView(Long userId, String displayName, String role, Instant joinedAt) {
+        this.userId = userId;
+        this.displayName = displayName;
+        this.role = role;
+        this.joinedAt = joinedAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Instant getJoinedAt() {
+        return joinedAt;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.chat.dto;
+
+import java.time.Instant;
+
+public class GroupView {
+
+    private final Long id;
+    private final String title;
+    private final Instant createdAt;
+    private final int memberCount;
+
+    public GroupView(Long id, String title, Instant createdAt, int memberCount) {
+        this.id = id;
+        this.title = title;
+        this.createdAt = createdAt;
+        this.memberCount = memberCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+}
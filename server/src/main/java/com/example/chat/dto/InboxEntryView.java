@@ -0,0 +1,59 @@
+package com.example.chat.dto;
+
+import java.time.Instant;
+
+public class InboxEntryView {
+
+    private final Long conversationId;
+    private final String title;
+    private final Long peerId;
+    private final Long lastMessageId;
+    private final Long lastSenderId;
+    private final String lastMessagePreview;
+    private final Instant lastActivityAt;
+    private final int unreadCount;
+
+    public InboxEntryView(Long conversationId, String title, Long peerId, Long lastMessageId, Long lastSenderId,
+                          String lastMessagePreview, Instant lastActivityAt, int unreadCount) {
+        this.conversationId = conversationId;
+        this.title = title;
+        this.peerId = peerId;
+        this.lastMessageId = lastMessageId;
+        this.lastSenderId = lastSenderId;
+        this.lastMessagePreview = lastMessagePreview;
+        this.lastActivityAt = lastActivityAt;
+        this.unreadCount = unreadCount;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Long getPeerId() {
+        return peerId;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public Long getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public Instant getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+public class InboxPage {
+
+    private final List<InboxEntryView> entries;
+    private final String nextCursor;
+
+    public InboxPage(List<InboxEntryView> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<InboxEntryView> getEntries() {
+        return entries;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,15 +1,21 @@
 package com.example.chat.dto;
 
+import java.time.Instant;
+
 public class LoginResponse {
 
     private final Long userId;
     private final String username;
     private final String displayName;
+    private final String token;
+    private final Instant tokenExpiresAt;
 
-    public LoginResponse(Long userId, String username, String displayName) {
+    public LoginResponse(Long userId, String username, String displayName, String token, Instant tokenExpiresAt) {
         this.userId = userId;
         this.username = username;
         this.displayName = displayName;
+        this.token = token;
+        this.tokenExpiresAt = tokenExpiresAt;
     }
 
     public Long getUserId() {
@@ -23,4 +29,12 @@ public class LoginResponse {
     public String getDisplayName() {
         return displayName;
     }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Instant getTokenExpiresAt() {
+        return tokenExpiresAt;
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.chat.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+public final class MessageCursor {
+
+    private final Instant sentAt;
+    private final long id;
+
+    public MessageCursor(Instant sentAt, long id) {
+        this.sentAt = sentAt;
+        this.id = id;
+    }
+
+    public static MessageCursor of(MessageView view) {
+        return new MessageCursor(view.getSentAt(), view.getId());
+    }
+
+    public static MessageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = decoded.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            Instant sentAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new MessageCursor(sentAt, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | java.time.DateTimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor '%s'".formatted(token));
+        }
+    }
+
+    public String encode() {
+        String raw = sentAt.getEpochSecond() + ":" + sentAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+public class MessagePage {
+
+    private final List<MessageView> messages;
+    private final String nextCursor;
+
+    public MessagePage(List<MessageView> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<MessageView> getMessages() {
+        return messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
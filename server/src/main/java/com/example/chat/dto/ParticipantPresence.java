@@ -0,0 +1,26 @@
+package com.example.chat.dto;
+
+public class ParticipantPresence {
+
+    private final Long userId;
+    private final boolean online;
+    private final boolean typing;
+
+    public ParticipantPresence(Long userId, boolean online, boolean typing) {
+        this.userId = userId;
+        this.online = online;
+        this.typing = typing;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isTyping() {
+        return typing;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+/**
+ * One coalesced presence frame for a conversation. It lists only the participants whose state
+ * changed since the previous frame, except right after someone subscribes to the presence
+ * topic, when it carries everyone.
+ */
+public class PresenceUpdate {
+
+    private final Long conversationId;
+    private final List<ParticipantPresence> participants;
+
+    public PresenceUpdate(Long conversationId, List<ParticipantPresence> participants) {
+        this.conversationId = conversationId;
+        this.participants = participants;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public List<ParticipantPresence> getParticipants() {
+        return participants;
+    }
+}
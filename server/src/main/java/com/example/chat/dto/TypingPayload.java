@@ -0,0 +1,30 @@
+package com.example.chat.dto;
+
+public class TypingPayload {
+    private Long conversationId;
+    private boolean typing;
+
+    public TypingPayload() {
+    }
+
+    public TypingPayload(Long conversationId, boolean typing) {
+        this.conversationId = conversationId;
+        this.typing = typing;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public boolean isTyping() {
+        return typing;
+    }
+
+    public void setTyping(boolean typing) {
+        this.typing = typing;
+    }
+}
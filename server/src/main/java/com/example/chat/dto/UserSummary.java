@@ -0,0 +1,20 @@
+package com.example.chat.dto;
+
+public final class UserSummary {
+
+    private final Long id;
+    private final String displayName;
+
+    public UserSummary(Long id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -73,7 +73,7 @@ public class ChatUser {
         if (!(o instanceof ChatUser other)) {
             return false;
         }
-        return id != null && id.equals(other.id);
+        return id != null && id.equals(other.getId());
     }
 
     @Override
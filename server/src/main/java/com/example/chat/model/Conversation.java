@@ -4,21 +4,24 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
+/**
+ * A direct chat or a group. Direct chats get a positive snowflake id, mapped from their two users
+ * in {@link DirectConversation}; groups take the negated next value of {@value #GROUP_ID_SEQUENCE},
+ * so the two never collide. Members live in {@link ConversationMember}.
+ */
 @Entity
 @Table(name = "conversations")
 public class Conversation {
 
+    public static final String GROUP_ID_SEQUENCE = "group_conversation_ids";
+
     @Id
     private Long id;
 
@@ -28,14 +31,6 @@ public class Conversation {
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
 
-    @ManyToMany(fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "conversation_participants",
-            joinColumns = @JoinColumn(name = "conversation_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
-    )
-    private Set<ChatUser> participants = new HashSet<>();
-
     @OneToMany(mappedBy = "conversation", fetch = FetchType.LAZY)
     private Set<Message> messages = new LinkedHashSet<>();
 
@@ -70,12 +65,8 @@ public class Conversation {
         this.createdAt = createdAt;
     }
 
-    public Set<ChatUser> getParticipants() {
-        return participants;
-    }
-
-    public void setParticipants(Set<ChatUser> participants) {
-        this.participants = participants;
+    public static boolean isGroup(long conversationId) {
+        return conversationId < 0;
     }
 
     public Set<Message> getMessages() {
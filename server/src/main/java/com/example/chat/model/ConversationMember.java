@@ -0,0 +1,118 @@
+package com.example.chat.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Membership of a user in a conversation. The primary key answers "is this user a member" and
+ * pages a group's members in user id order; the secondary index lists a user's conversations.
+ * Rows of direct chats have no role or join time.
+ */
+@Entity
+@IdClass(ConversationMember.Key.class)
+@Table(name = "conversation_participants", indexes = {
+        @Index(name = "idx_conversation_participants_user", columnList = "user_id, conversation_id")
+})
+public class ConversationMember {
+
+    public enum Role {
+        OWNER, MEMBER
+    }
+
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Role role;
+
+    private Instant joinedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "conversation_id", insertable = false, updatable = false)
+    private Conversation conversation;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    private ChatUser user;
+
+    public ConversationMember() {
+    }
+
+    public ConversationMember(Long conversationId, Long userId, Role role, Instant joinedAt) {
+        this.conversationId = conversationId;
+        this.userId = userId;
+        this.role = role;
+        this.joinedAt = joinedAt;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public Instant getJoinedAt() {
+        return joinedAt;
+    }
+
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long conversationId;
+        private Long userId;
+
+        public Key() {
+        }
+
+        public Key(Long conversationId, Long userId) {
+            this.conversationId = conversationId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return Objects.equals(conversationId, other.conversationId) && Objects.equals(userId, other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(conversationId, userId);
+        }
+    }
+}
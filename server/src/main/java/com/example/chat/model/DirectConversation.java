@@ -0,0 +1,86 @@
+package com.example.chat.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Maps an unordered pair of users to their direct conversation. The smaller user id is always
+ * {@code lowUserId}. Written only through the native insert in
+ * {@code DirectConversationRepository}.
+ */
+@Entity
+@IdClass(DirectConversation.Key.class)
+@Table(name = "direct_conversations")
+public class DirectConversation {
+
+    @Id
+    @Column(name = "low_user_id")
+    private Long lowUserId;
+
+    @Id
+    @Column(name = "high_user_id")
+    private Long highUserId;
+
+    @Column(name = "conversation_id", nullable = false, unique = true)
+    private Long conversationId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "conversation_id", insertable = false, updatable = false)
+    private Conversation conversation;
+
+    public DirectConversation() {
+    }
+
+    public Long getLowUserId() {
+        return lowUserId;
+    }
+
+    public Long getHighUserId() {
+        return highUserId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long lowUserId;
+        private Long highUserId;
+
+        public Key() {
+        }
+
+        public Key(Long lowUserId, Long highUserId) {
+            this.lowUserId = lowUserId;
+            this.highUserId = highUserId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return Objects.equals(lowUserId, other.lowUserId) && Objects.equals(highUserId, other.highUserId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lowUserId, highUserId);
+        }
+    }
+}
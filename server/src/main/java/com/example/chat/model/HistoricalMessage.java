@@ -0,0 +1,72 @@
+package com.example.chat.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * A message moved out of {@code messages} by the archiver. Rows keep their original id and are
+ * only ever written by the archiver's bulk insert.
+ */
+@Entity
+@Table(name = "historical_messages", indexes = {
+        @Index(name = "idx_historical_messages_conversation_sent_at_id", columnList = "conversation_id, sent_at, id"),
+        @Index(name = "idx_historical_messages_sent_at_id", columnList = "sent_at, id"),
+        @Index(name = "idx_historical_messages_sender_id", columnList = "sender_id")
+})
+public class HistoricalMessage {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "conversation_id")
+    private Conversation conversation;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sender_id")
+    private ChatUser sender;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false)
+    private Instant sentAt;
+
+    @Column(nullable = false)
+    private Instant archivedAt;
+
+    public HistoricalMessage() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Conversation getConversation() {
+        return conversation;
+    }
+
+    public ChatUser getSender() {
+        return sender;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public Instant getArchivedAt() {
+        return archivedAt;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chat.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * One row per user and conversation. Direct chat rows are updated in the same transaction as
+ * every message insert, so listing them never has to aggregate {@code messages}. Group rows are
+ * read markers: the message the member has seen and the unread count up to it. Written only
+ * through the native statements in {@code InboxRepository}.
+ */
+@Entity
+@IdClass(InboxEntry.Key.class)
+@Table(name = "inbox_entries", indexes = {
+        @Index(name = "idx_inbox_entries_user_activity", columnList = "user_id, last_activity_at, conversation_id"),
+        @Index(name = "idx_inbox_entries_conversation", columnList = "conversation_id")
+})
+public class InboxEntry {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    private Long peerId;
+
+    @Column(nullable = false)
+    private Long lastMessageId;
+
+    @Column(nullable = false)
+    private Long lastSenderId;
+
+    @Column(nullable = false, length = 255)
+    private String lastMessagePreview;
+
+    @Column(nullable = false)
+    private Instant lastActivityAt;
+
+    @Column(nullable = false)
+    private int unreadCount;
+
+    public InboxEntry() {
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public Long getPeerId() {
+        return peerId;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public Long getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public Instant getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private Long conversationId;
+
+        public Key() {
+        }
+
+        public Key(Long userId, Long conversationId) {
+            this.userId = userId;
+            this.conversationId = conversationId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return Objects.equals(userId, other.userId) && Objects.equals(conversationId, other.conversationId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, conversationId);
+        }
+    }
+}
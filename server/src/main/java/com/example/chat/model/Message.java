@@ -3,21 +3,33 @@ package com.example.chat.model;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
+/**
+ * A message in {@code messages}. Ids come from {@code SnowflakeIdGenerator} before the insert,
+ * so the row can join a JDBC batch and the id is known without reading it back. Being
+ * {@link Persistable} stops Spring Data from loading an assigned id to see whether it exists.
+ */
 @Entity
-@Table(name = "messages")
-public class Message {
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_conversation_sent_at_id", columnList = "conversation_id, sent_at, id"),
+        @Index(name = "idx_messages_sent_at_id", columnList = "sent_at, id"),
+        @Index(name = "idx_messages_sender_id", columnList = "sender_id")
+})
+public class Message implements Persistable<Long> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -32,21 +44,37 @@ public class Message {
     private String content;
 
     @Column(nullable = false)
-    private Instant sentAt = Instant.now();
+    private Instant sentAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Transient
+    private boolean persisted;
 
     public Message() {
     }
 
-    public Message(Conversation conversation, ChatUser sender, String content) {
+    public Message(Long id, Conversation conversation, ChatUser sender, String content) {
+        this.id = id;
         this.conversation = conversation;
         this.sender = sender;
         this.content = content;
     }
 
+    @Override
     public Long getId() {
         return id;
     }
 
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+
     public Conversation getConversation() {
         return conversation;
     }
@@ -0,0 +1,88 @@
+package com.example.chat.monitoring;
+
+import com.example.chat.service.ConversationSubscriptions;
+import com.example.chat.websocket.BinaryEncodingNegotiator;
+import com.example.chat.websocket.OutboundQueueRegistry;
+import com.example.chat.websocket.OutboundQueueRegistry.SessionQueueStats;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/chat}: a one-page summary of what this node is doing right now.
+ */
+@Component
+@Endpoint(id = "chat")
+public class ChatEndpoint {
+
+    private static final int SLOWEST_SESSIONS = 10;
+
+    private final ChatMetrics metrics;
+    private final MessageRateTracker rates;
+    private final ConversationSubscriptions subscriptions;
+    private final BinaryEncodingNegotiator binaryEncoding;
+    private final OutboundQueueRegistry outboundQueues;
+
+    public ChatEndpoint(ChatMetrics metrics,
+                        MessageRateTracker rates,
+                        ConversationSubscriptions subscriptions,
+                        BinaryEncodingNegotiator binaryEncoding,
+                        OutboundQueueRegistry outboundQueues) {
+        this.metrics = metrics;
+        this.rates = rates;
+        this.subscriptions = subscriptions;
+        this.binaryEncoding = binaryEncoding;
+        this.outboundQueues = outboundQueues;
+    }
+
+    @ReadOperation
+    public Map<String, Object> summary() {
+        Map<String, Object> messageRate = new LinkedHashMap<>();
+        messageRate.put("last1s", rates.ratePerSecond(1));
+        messageRate.put("last10s", rates.ratePerSecond(10));
+        messageRate.put("last60s", rates.ratePerSecond(60));
+
+        List<Map<String, Object>> hot = new ArrayList<>();
+        for (MessageRateTracker.HotConversation conversation : rates.hotConversations()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("conversationId", conversation.getConversationId());
+            entry.put("messages", conversation.getMessages());
+            entry.put("localSubscribers", subscriptions.subscriberCount(conversation.getConversationId()));
+            hot.add(entry);
+        }
+
+        Map<String, Object> sessions = new LinkedHashMap<>();
+        sessions.put("connected", metrics.connectedSessions());
+        sessions.put("binary", binaryEncoding.binarySessionCount());
+        sessions.put("subscriptions", subscriptions.subscriptionCount());
+        sessions.put("subscribedConversations", subscriptions.activeConversationCount());
+
+        Map<String, Object> queues = new LinkedHashMap<>();
+        queues.put("inboundChannel", metrics.inboundQueueDepth());
+        queues.put("outboundChannel", metrics.outboundQueueDepth());
+        queues.put("outboundSessionMessages", outboundQueues.totalQueuedMessages());
+        queues.put("outboundSessionBytes", outboundQueues.totalQueuedBytes());
+        List<SessionQueueStats> slowest = outboundQueues.snapshot().stream()
+                .filter(stats -> stats.getQueuedMessages() > 0 || stats.getDroppedMessages() > 0)
+                .sorted(Comparator.comparingInt(SessionQueueStats::getQueuedMessages).reversed()
+                        .thenComparing(Comparator.comparingLong(SessionQueueStats::getDroppedMessages).reversed()))
+                .limit(SLOWEST_SESSIONS)
+                .toList();
+        queues.put("slowestSessions", slowest);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("messageRate", messageRate);
+        summary.put("deliveredMessages", metrics.deliveredMessages());
+        summary.put("hotConversations", hot);
+        summary.put("sessions", sessions);
+        summary.put("queues", queues);
+        summary.put("sendStages", metrics.stageSummary());
+        return summary;
+    }
+}
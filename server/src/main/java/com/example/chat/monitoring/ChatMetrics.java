@@ -0,0 +1,177 @@
+package com.example.chat.monitoring;
+
+import com.example.chat.service.ConversationSubscriptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the send path. Each stage of a send has its own {@code chat.send.stage} timer so a
+ * latency spike can be attributed to the database or the broker; {@code chat.send.duration}
+ * covers the whole path from the inbound frame to the local broadcast.
+ */
+@Component
+public class ChatMetrics {
+
+    public enum Stage {
+        USER_LOOKUP("user_lookup"),
+        MEMBERSHIP_CHECK("membership_check"),
+        CONVERSATION_RESOLVE("conversation_resolve"),
+        MESSAGE_INSERT("message_insert"),
+        INBOX_UPDATE("inbox_update"),
+        COMMIT("commit"),
+        BROADCAST("broadcast");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum Outcome {
+        DELIVERED, REJECTED, FAILED
+    }
+
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+    private final Timer sendDuration;
+    private final Set<String> connectedSessions = ConcurrentHashMap.newKeySet();
+    private final AbstractSubscribableChannel inboundChannel;
+    private final AbstractSubscribableChannel outboundChannel;
+
+    public ChatMetrics(MeterRegistry meterRegistry,
+                       ConversationSubscriptions subscriptions,
+                       @Qualifier("clientInboundChannel") AbstractSubscribableChannel inboundChannel,
+                       @Qualifier("clientOutboundChannel") AbstractSubscribableChannel outboundChannel) {
+        this.inboundChannel = inboundChannel;
+        this.outboundChannel = outboundChannel;
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("chat.send.stage").tag("stage", stage.tag)
+                    .publishPercentileHistogram().register(meterRegistry));
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("chat.send.messages").tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.sendDuration = Timer.builder("chat.send.duration").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("chat.stomp.sessions", connectedSessions, Set::size).register(meterRegistry);
+        Gauge.builder("chat.stomp.subscriptions", subscriptions, ConversationSubscriptions::subscriptionCount).register(meterRegistry);
+        Gauge.builder("chat.stomp.subscribed.conversations", subscriptions, ConversationSubscriptions::activeConversationCount).register(meterRegistry);
+        Gauge.builder("chat.channel.queued", inboundChannel, ChatMetrics::queueDepth).tag("channel", "inbound").register(meterRegistry);
+        Gauge.builder("chat.channel.queued", outboundChannel, ChatMetrics::queueDepth).tag("channel", "outbound").register(meterRegistry);
+    }
+
+    public <T> T time(Stage stage, Supplier<T> action) {
+        return stages.get(stage).record(action);
+    }
+
+    public void time(Stage stage, Runnable action) {
+        stages.get(stage).record(action);
+    }
+
+    public void recordSend(Outcome outcome, long startedNanos) {
+        outcomes.get(outcome).increment();
+        if (outcome == Outcome.DELIVERED) {
+            sendDuration.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Times the commit of the current transaction, from the start of the flush until the
+     * database acknowledged it. Messages written in one group-commit batch share one sample.
+     */
+    public void timeCommit() {
+        Timer commitTimer = stages.get(Stage.COMMIT);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(commitTimer)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(commitTimer, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                started = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(commitTimer);
+                if (started != 0 && status == STATUS_COMMITTED) {
+                    commitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    public long deliveredMessages() {
+        return (long) outcomes.get(Outcome.DELIVERED).count();
+    }
+
+    public Map<String, Map<String, Object>> stageSummary() {
+        Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+        stages.forEach((stage, timer) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", timer.count());
+            values.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+            values.put("recentMaxMs", timer.max(TimeUnit.MILLISECONDS));
+            summary.put(stage.tag, values);
+        });
+        return summary;
+    }
+
+    public int connectedSessions() {
+        return connectedSessions.size();
+    }
+
+    public int inboundQueueDepth() {
+        return (int) queueDepth(inboundChannel);
+    }
+
+    public int outboundQueueDepth() {
+        return (int) queueDepth(outboundChannel);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            connectedSessions.add(sessionId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        connectedSessions.remove(event.getSessionId());
+    }
+
+    private static double queueDepth(AbstractSubscribableChannel channel) {
+        if (channel instanceof ExecutorSubscribableChannel executorChannel
+                && executorChannel.getExecutor() instanceof ThreadPoolTaskExecutor executor) {
+            return executor.getQueueSize();
+        }
+        return 0;
+    }
+}
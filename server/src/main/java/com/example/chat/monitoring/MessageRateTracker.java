@@ -0,0 +1,102 @@
+package com.example.chat.monitoring;
+
+import com.example.chat.config.MonitoringProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts messages delivered on this node per second for the last minute, and per conversation
+ * over a rolling window from which the hottest conversations are kept.
+ */
+@Component
+public class MessageRateTracker {
+
+    private static final int HISTORY_SECONDS = 60;
+
+    private final MonitoringProperties properties;
+    private final LongAdder currentSecond = new LongAdder();
+    private final long[] perSecond = new long[HISTORY_SECONDS];
+    private int position;
+    private int filled;
+    private long ticks;
+
+    private volatile Map<Long, LongAdder> currentWindow = new ConcurrentHashMap<>();
+    private volatile List<HotConversation> hotConversations = List.of();
+
+    public MessageRateTracker(MonitoringProperties properties) {
+        this.properties = properties;
+    }
+
+    public void record(Long conversationId) {
+        currentSecond.increment();
+        currentWindow.computeIfAbsent(conversationId, key -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void tick() {
+        long count = currentSecond.sumThenReset();
+        synchronized (perSecond) {
+            perSecond[position] = count;
+            position = (position + 1) % HISTORY_SECONDS;
+            filled = Math.min(filled + 1, HISTORY_SECONDS);
+            ticks++;
+            if (ticks % Math.max(1, properties.getHotWindow().toSeconds()) != 0) {
+                return;
+            }
+        }
+        rotateWindow();
+    }
+
+    /** Average messages per second over the last {@code seconds} completed seconds. */
+    public double ratePerSecond(int seconds) {
+        synchronized (perSecond) {
+            int span = Math.min(seconds, filled);
+            if (span == 0) {
+                return 0;
+            }
+            long total = 0;
+            for (int i = 1; i <= span; i++) {
+                total += perSecond[(position - i + HISTORY_SECONDS) % HISTORY_SECONDS];
+            }
+            return (double) total / span;
+        }
+    }
+
+    public List<HotConversation> hotConversations() {
+        return hotConversations;
+    }
+
+    private void rotateWindow() {
+        Map<Long, LongAdder> finished = currentWindow;
+        currentWindow = new ConcurrentHashMap<>();
+        List<HotConversation> ranked = new ArrayList<>(finished.size());
+        finished.forEach((conversationId, count) -> ranked.add(new HotConversation(conversationId, count.sum())));
+        ranked.sort(Comparator.comparingLong(HotConversation::getMessages).reversed());
+        hotConversations = List.copyOf(ranked.subList(0, Math.min(ranked.size(), properties.getHotConversations())));
+    }
+
+    public static final class HotConversation {
+        private final Long conversationId;
+        private final long messages;
+
+        public HotConversation(Long conversationId, long messages) {
+            this.conversationId = conversationId;
+            this.messages = messages;
+        }
+
+        public Long getConversationId() {
+            return conversationId;
+        }
+
+        public long getMessages() {
+            return messages;
+        }
+    }
+}
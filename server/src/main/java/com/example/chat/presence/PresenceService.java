@@ -0,0 +1,134 @@
+package com.example.chat.presence;
+
+import com.example.chat.cluster.ClusterRelay;
+import com.example.chat.config.PresenceProperties;
+import com.example.chat.dto.PresenceUpdate;
+import com.example.chat.security.ChatPrincipal;
+import com.example.chat.service.ConversationSubscriptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.List;
+
+/**
+ * Online and typing state per conversation. A user counts as online in a conversation while
+ * one of their sessions subscribes to {@code /topic/conversations/{id}}. Signals only update
+ * the {@link PresenceTable}; every {@code chat.presence.flush-interval} milliseconds each
+ * conversation that changed gets one frame on {@code /topic/conversations/{id}/presence}.
+ * None of this touches the database or the cluster relay, so a user connected to another node
+ * would never show as online here; with the relay enabled, presence must be turned off.
+ */
+@Service
+public class PresenceService {
+
+    public static final String PRESENCE_SUFFIX = "/presence";
+    public static final String TYPING_DESTINATION = "/app/chat.typing";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceProperties properties;
+    private final PresenceTable table;
+    private final Counter signals;
+    private final Counter frames;
+
+    public PresenceService(SimpMessagingTemplate messagingTemplate,
+                           PresenceProperties properties,
+                           ClusterRelay clusterRelay,
+                           MeterRegistry meterRegistry) {
+        if (properties.isEnabled() && clusterRelay.isClustered()) {
+            throw new IllegalStateException("chat.presence.enabled must be false when the cluster relay is enabled:"
+                    + " presence and typing state is kept per node and not shared with peers");
+        }
+        this.messagingTemplate = messagingTemplate;
+        this.properties = properties;
+        this.table = new PresenceTable(properties.getShards(), properties.getTypingTimeout());
+        this.signals = Counter.builder("chat.presence.signals").register(meterRegistry);
+        this.frames = Counter.builder("chat.presence.frames").register(meterRegistry);
+        Gauge.builder("chat.presence.sessions", table, PresenceTable::sessionCount).register(meterRegistry);
+        Gauge.builder("chat.presence.conversations", table, PresenceTable::conversationCount).register(meterRegistry);
+    }
+
+    public static String topic(long conversationId) {
+        return ConversationSubscriptions.TOPIC_PREFIX + conversationId + PRESENCE_SUFFIX;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (event.getUser() instanceof ChatPrincipal principal) {
+            subscribed(accessor.getSessionId(), accessor.getSubscriptionId(), principal.getUser().getId(), accessor.getDestination());
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        unsubscribed(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, Long userId, String destination) {
+        if (!properties.isEnabled() || sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        signals.increment();
+        if (destination.endsWith(PRESENCE_SUFFIX)) {
+            Long conversationId = ConversationSubscriptions.parseConversationId(
+                    destination.substring(0, destination.length() - PRESENCE_SUFFIX.length()));
+            if (conversationId != null) {
+                table.requestSnapshot(conversationId);
+            }
+            return;
+        }
+        Long conversationId = ConversationSubscriptions.parseConversationId(destination);
+        if (conversationId != null) {
+            table.subscribe(sessionId, subscriptionId, userId, conversationId);
+        }
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        if (properties.isEnabled() && sessionId != null && subscriptionId != null) {
+            signals.increment();
+            table.unsubscribe(sessionId, subscriptionId);
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        if (properties.isEnabled() && sessionId != null) {
+            signals.increment();
+            table.disconnect(sessionId);
+        }
+    }
+
+    public boolean typing(String sessionId, long conversationId, boolean typing) {
+        if (!properties.isEnabled() || sessionId == null) {
+            return false;
+        }
+        signals.increment();
+        return table.typing(sessionId, conversationId, typing, System.nanoTime());
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.flush-interval:250}")
+    public void flush() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<PresenceUpdate> updates = table.drain(System.nanoTime());
+        for (PresenceUpdate update : updates) {
+            messagingTemplate.convertAndSend(topic(update.getConversationId()), update);
+        }
+        frames.increment(updates.size());
+    }
+}
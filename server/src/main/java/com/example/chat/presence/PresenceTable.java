@@ -0,0 +1,338 @@
+package com.example.chat.presence;
+
+import com.example.chat.dto.ParticipantPresence;
+import com.example.chat.dto.PresenceUpdate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory presence and typing state, split into shards by session and by conversation so
+ * connect storms spread over many small maps. Nothing here takes a lock of its own: viewer
+ * counts and typing deadlines are atomics, and entries are retired by moving their count from
+ * 0 to -1 so a concurrent join notices and starts over with a fresh entry.
+ * <p>
+ * State changes only mark a participant as changed and queue its conversation once.
+ * {@link #drain(long)} turns each queued conversation into a single {@link PresenceUpdate},
+ * however many signals arrived since the last drain.
+ */
+public class PresenceTable {
+
+    private final List<Map<String, SessionState>> sessionShards;
+    private final List<Map<Long, ConversationState>> conversationShards;
+    private final int mask;
+    private final long typingTimeoutNanos;
+    private final ConcurrentLinkedQueue<ConversationState> dirty = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private final Set<ConversationState> typingConversations = ConcurrentHashMap.newKeySet();
+
+    public PresenceTable(int shards, Duration typingTimeout) {
+        int size = Integer.highestOneBit(Math.max(1, shards - 1) << 1);
+        List<Map<String, SessionState>> sessions = new ArrayList<>(size);
+        List<Map<Long, ConversationState>> conversations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sessions.add(new ConcurrentHashMap<>());
+            conversations.add(new ConcurrentHashMap<>());
+        }
+        this.sessionShards = List.copyOf(sessions);
+        this.conversationShards = List.copyOf(conversations);
+        this.mask = size - 1;
+        this.typingTimeoutNanos = typingTimeout.toNanos();
+    }
+
+    /**
+     * Records that a session of {@code userId} now views {@code conversationId} under the given
+     * subscription. A subscription id that is reused releases the conversation it had before.
+     */
+    public void subscribe(String sessionId, String subscriptionId, Long userId, long conversationId) {
+        SessionState session = sessionShard(sessionId).computeIfAbsent(sessionId, key -> new SessionState(userId));
+        Long previous = session.subscriptions.put(subscriptionId, conversationId);
+        if (previous != null) {
+            leave(previous, session.userId);
+        }
+        join(conversationId, session.userId);
+    }
+
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        SessionState session = sessionShard(sessionId).get(sessionId);
+        Long conversationId = session != null ? session.subscriptions.remove(subscriptionId) : null;
+        if (conversationId != null) {
+            leave(conversationId, session.userId);
+        }
+    }
+
+    public void disconnect(String sessionId) {
+        SessionState session = sessionShard(sessionId).remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        for (Long conversationId : session.subscriptions.values()) {
+            leave(conversationId, session.userId);
+        }
+        session.subscriptions.clear();
+    }
+
+    /**
+     * Applies a typing signal from a session. Only sessions subscribed to the conversation may
+     * signal in it. A repeated "typing" only pushes the deadline out and is never broadcast.
+     *
+     * @return whether the signal was accepted
+     */
+    public boolean typing(String sessionId, long conversationId, boolean typing, long nowNanos) {
+        SessionState session = sessionShard(sessionId).get(sessionId);
+        if (session == null || !session.subscriptions.containsValue(conversationId)) {
+            return false;
+        }
+        ConversationState conversation = conversationShard(conversationId).get(conversationId);
+        Participant participant = conversation != null ? conversation.participants.get(session.userId) : null;
+        if (participant == null || participant.viewers.get() <= 0) {
+            return false;
+        }
+        if (typing) {
+            long previous = participant.typingUntil.getAndSet(deadline(nowNanos));
+            typingConversations.add(conversation);
+            if (previous == 0) {
+                markChanged(conversation, session.userId);
+            }
+        } else if (participant.typingUntil.getAndSet(0) != 0) {
+            markChanged(conversation, session.userId);
+        }
+        return true;
+    }
+
+    /**
+     * Queues the full participant list of a conversation, for a client that has just subscribed
+     * to its presence topic.
+     */
+    public void requestSnapshot(long conversationId) {
+        ConversationState conversation = conversationShard(conversationId).get(conversationId);
+        if (conversation != null) {
+            conversation.snapshot.set(true);
+            schedule(conversation);
+        }
+    }
+
+    /**
+     * Expires lapsed typing signals and returns one update per conversation that changed. Only
+     * conversations queued before the call are drained; later ones wait for the next drain, so
+     * no conversation gets two frames from the same drain.
+     */
+    public List<PresenceUpdate> drain(long nowNanos) {
+        expireTyping(nowNanos);
+        int pending = dirtyCount.get();
+        List<PresenceUpdate> updates = new ArrayList<>(pending);
+        for (int i = 0; i < pending; i++) {
+            ConversationState conversation = dirty.poll();
+            if (conversation == null) {
+                break;
+            }
+            dirtyCount.decrementAndGet();
+            conversation.scheduled.set(false);
+            PresenceUpdate update = collect(conversation);
+            if (update != null) {
+                updates.add(update);
+            }
+            retireIfIdle(conversation);
+        }
+        return updates;
+    }
+
+    public int sessionCount() {
+        int total = 0;
+        for (Map<String, SessionState> shard : sessionShards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    public int conversationCount() {
+        int total = 0;
+        for (Map<Long, ConversationState> shard : conversationShards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    private void join(long conversationId, Long userId) {
+        Map<Long, ConversationState> shard = conversationShard(conversationId);
+        ConversationState conversation;
+        while (true) {
+            conversation = shard.computeIfAbsent(conversationId, ConversationState::new);
+            if (acquire(conversation.viewers)) {
+                break;
+            }
+            shard.remove(conversationId, conversation);
+        }
+        while (true) {
+            Participant participant = conversation.participants.computeIfAbsent(userId, key -> new Participant());
+            int viewers = participant.viewers.get();
+            if (viewers < 0) {
+                conversation.participants.remove(userId, participant);
+            } else if (participant.viewers.compareAndSet(viewers, viewers + 1)) {
+                if (viewers == 0) {
+                    markChanged(conversation, userId);
+                }
+                return;
+            }
+        }
+    }
+
+    private void leave(long conversationId, Long userId) {
+        ConversationState conversation = conversationShard(conversationId).get(conversationId);
+        if (conversation == null) {
+            return;
+        }
+        Participant participant = conversation.participants.get(userId);
+        if (participant != null && participant.viewers.decrementAndGet() == 0) {
+            markChanged(conversation, userId);
+        }
+        conversation.viewers.decrementAndGet();
+    }
+
+    private PresenceUpdate collect(ConversationState conversation) {
+        if (conversation.snapshot.getAndSet(false)) {
+            for (Long userId : conversation.participants.keySet()) {
+                conversation.changed.add(userId);
+            }
+        }
+        List<ParticipantPresence> participants = new ArrayList<>();
+        Iterator<Long> changed = conversation.changed.iterator();
+        while (changed.hasNext()) {
+            Long userId = changed.next();
+            changed.remove();
+            Participant participant = conversation.participants.get(userId);
+            if (participant == null) {
+                participants.add(new ParticipantPresence(userId, false, false));
+            } else if (participant.viewers.compareAndSet(0, -1)) {
+                conversation.participants.remove(userId, participant);
+                participants.add(new ParticipantPresence(userId, false, false));
+            } else if (participant.viewers.get() > 0) {
+                participants.add(new ParticipantPresence(userId, true, participant.typingUntil.get() != 0));
+            } else {
+                participants.add(new ParticipantPresence(userId, false, false));
+            }
+        }
+        return participants.isEmpty() ? null : new PresenceUpdate(conversation.id, participants);
+    }
+
+    private void expireTyping(long nowNanos) {
+        Iterator<ConversationState> iterator = typingConversations.iterator();
+        while (iterator.hasNext()) {
+            ConversationState conversation = iterator.next();
+            if (!expireTyping(conversation, nowNanos)) {
+                iterator.remove();
+                // A signal may have landed between the scan and the removal.
+                if (expireTyping(conversation, nowNanos)) {
+                    typingConversations.add(conversation);
+                }
+            }
+        }
+    }
+
+    /** Clears lapsed deadlines in one conversation and reports whether anyone is still typing. */
+    private boolean expireTyping(ConversationState conversation, long nowNanos) {
+        boolean typing = false;
+        for (Map.Entry<Long, Participant> entry : conversation.participants.entrySet()) {
+            AtomicLong typingUntil = entry.getValue().typingUntil;
+            long until = typingUntil.get();
+            if (until == 0) {
+                continue;
+            }
+            if (until - nowNanos <= 0 || entry.getValue().viewers.get() <= 0) {
+                if (typingUntil.compareAndSet(until, 0)) {
+                    markChanged(conversation, entry.getKey());
+                }
+            } else {
+                typing = true;
+            }
+        }
+        return typing;
+    }
+
+    private void retireIfIdle(ConversationState conversation) {
+        if (conversation.changed.isEmpty() && conversation.viewers.compareAndSet(0, -1)) {
+            conversationShard(conversation.id).remove(conversation.id, conversation);
+            typingConversations.remove(conversation);
+        }
+    }
+
+    private void markChanged(ConversationState conversation, Long userId) {
+        conversation.changed.add(userId);
+        schedule(conversation);
+    }
+
+    private void schedule(ConversationState conversation) {
+        if (conversation.scheduled.compareAndSet(false, true)) {
+            dirty.offer(conversation);
+            dirtyCount.incrementAndGet();
+        }
+    }
+
+    private long deadline(long nowNanos) {
+        long deadline = nowNanos + typingTimeoutNanos;
+        return deadline != 0 ? deadline : 1;
+    }
+
+    private static boolean acquire(AtomicInteger count) {
+        while (true) {
+            int current = count.get();
+            if (current < 0) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private Map<String, SessionState> sessionShard(String sessionId) {
+        return sessionShards.get(spread(sessionId.hashCode()) & mask);
+    }
+
+    private Map<Long, ConversationState> conversationShard(long conversationId) {
+        return conversationShards.get(spread(Long.hashCode(conversationId)) & mask);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class SessionState {
+        private final Long userId;
+        private final Map<String, Long> subscriptions = new ConcurrentHashMap<>();
+
+        private SessionState(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class ConversationState {
+        private final long id;
+        /** Subscriptions viewing the conversation; -1 once the entry has been retired. */
+        private final AtomicInteger viewers = new AtomicInteger();
+        private final Map<Long, Participant> participants = new ConcurrentHashMap<>();
+        private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean snapshot = new AtomicBoolean();
+
+        private ConversationState(long id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Participant {
+        /** Subscriptions of this user viewing the conversation; -1 once retired. */
+        private final AtomicInteger viewers = new AtomicInteger();
+        /** {@link System#nanoTime()} when the typing signal lapses, or 0 when not typing. */
+        private final AtomicLong typingUntil = new AtomicLong();
+    }
+}
@@ -2,9 +2,23 @@ package com.example.chat.repository;
 
 import com.example.chat.model.ChatUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ChatUserRepository extends JpaRepository<ChatUser, Long> {
     Optional<ChatUser> findByUsername(String username);
+
+    @Query("select u.id from ChatUser u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update ChatUser u set u.passwordHash = :passwordHash where u.id = :id and u.passwordHash = :previousHash")
+    int replacePasswordHash(@Param("id") Long id,
+                            @Param("previousHash") String previousHash,
+                            @Param("passwordHash") String passwordHash);
 }
@@ -0,0 +1,46 @@
+package com.example.chat.repository;
+
+import com.example.chat.dto.GroupMemberView;
+import com.example.chat.model.ConversationMember;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ConversationMemberRepository extends JpaRepository<ConversationMember, ConversationMember.Key> {
+
+    @Query("select m.userId from ConversationMember m where m.conversationId = :conversationId order by m.userId")
+    List<Long> findUserIds(@Param("conversationId") Long conversationId);
+
+    @Query("""
+            select new com.example.chat.dto.GroupMemberView(m.userId, u.displayName, cast(m.role as string), m.joinedAt)
+            from ConversationMember m join ChatUser u on u.id = m.userId
+            where m.conversationId = :conversationId and m.userId > :afterUserId
+            order by m.userId
+            """)
+    List<GroupMemberView> findPage(@Param("conversationId") Long conversationId,
+                                   @Param("afterUserId") Long afterUserId,
+                                   Pageable pageable);
+
+    @Query("select count(m) from ConversationMember m where m.conversationId = :conversationId")
+    long countMembers(@Param("conversationId") Long conversationId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO conversation_participants (conversation_id, user_id, role, joined_at)
+            VALUES (:conversationId, :userId, :role, :joinedAt)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("conversationId") Long conversationId,
+                       @Param("userId") Long userId,
+                       @Param("role") String role,
+                       @Param("joinedAt") Instant joinedAt);
+
+    @Modifying
+    @Query("delete from ConversationMember m where m.conversationId = :conversationId and m.userId = :userId")
+    int deleteMember(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+}
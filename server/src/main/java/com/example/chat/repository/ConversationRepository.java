@@ -2,6 +2,30 @@ package com.example.chat.repository;
 
 import com.example.chat.model.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
 
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO conversations (id, title, created_at)
+            VALUES (:id, :title, :createdAt)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("id") Long id, @Param("title") String title, @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO conversation_participants (conversation_id, user_id)
+            VALUES (:conversationId, :userId)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int addParticipantIfAbsent(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+
+    @Query(value = "SELECT nextval('" + Conversation.GROUP_ID_SEQUENCE + "')", nativeQuery = true)
+    long nextGroupSequenceValue();
 }
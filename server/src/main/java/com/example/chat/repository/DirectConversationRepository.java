@@ -0,0 +1,28 @@
+package com.example.chat.repository;
+
+import com.example.chat.model.DirectConversation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface DirectConversationRepository extends JpaRepository<DirectConversation, DirectConversation.Key> {
+
+    @Query("""
+            select d.conversationId from DirectConversation d
+            where d.lowUserId = :lowUserId and d.highUserId = :highUserId
+            """)
+    Optional<Long> findConversationId(@Param("lowUserId") Long lowUserId, @Param("highUserId") Long highUserId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO direct_conversations (low_user_id, high_user_id, conversation_id)
+            VALUES (:lowUserId, :highUserId, :conversationId)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("lowUserId") Long lowUserId,
+                       @Param("highUserId") Long highUserId,
+                       @Param("conversationId") Long conversationId);
+}
@@ -0,0 +1,58 @@
+package com.example.chat.repository;
+
+import com.example.chat.dto.MessageView;
+import com.example.chat.model.HistoricalMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface HistoricalMessageRepository extends JpaRepository<HistoricalMessage, Long> {
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from HistoricalMessage m join m.sender s
+            where m.conversation.id = :conversationId
+            order by m.sentAt desc, m.id desc
+            """)
+    List<MessageView> findLatest(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from HistoricalMessage m join m.sender s
+            where m.conversation.id = :conversationId
+              and (m.sentAt < :sentAt or (m.sentAt = :sentAt and m.id < :id))
+            order by m.sentAt desc, m.id desc
+            """)
+    List<MessageView> findBefore(@Param("conversationId") Long conversationId,
+                                 @Param("sentAt") Instant sentAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from HistoricalMessage m join m.sender s
+            where m.conversation.id = :conversationId
+              and (m.sentAt > :sentAt or (m.sentAt = :sentAt and m.id > :id))
+            order by m.sentAt asc, m.id asc
+            """)
+    List<MessageView> findAfter(@Param("conversationId") Long conversationId,
+                                @Param("sentAt") Instant sentAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from HistoricalMessage m join m.sender s
+            where (m.sentAt > :sentAt or (m.sentAt = :sentAt and m.id > :id))
+              and m.sentAt < :horizon
+            order by m.sentAt asc, m.id asc
+            """)
+    List<MessageView> findAllAfter(@Param("sentAt") Instant sentAt,
+                                   @Param("id") Long id,
+                                   @Param("horizon") Instant horizon,
+                                   Pageable pageable);
+}
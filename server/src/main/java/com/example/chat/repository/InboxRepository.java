@@ -0,0 +1,209 @@
+package com.example.chat.repository;
+
+import com.example.chat.dto.InboxEntryView;
+import com.example.chat.model.InboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface InboxRepository extends JpaRepository<InboxEntry, InboxEntry.Key> {
+
+    @Query("""
+            select new com.example.chat.dto.InboxEntryView(e.conversationId, c.title, e.peerId, e.lastMessageId,
+                   e.lastSenderId, e.lastMessagePreview, e.lastActivityAt, e.unreadCount)
+            from InboxEntry e join Conversation c on c.id = e.conversationId
+            where e.userId = :userId and e.conversationId >= 0
+            order by e.lastActivityAt desc, e.conversationId desc
+            """)
+    List<InboxEntryView> findLatestDirect(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("""
+            select new com.example.chat.dto.InboxEntryView(e.conversationId, c.title, e.peerId, e.lastMessageId,
+                   e.lastSenderId, e.lastMessagePreview, e.lastActivityAt, e.unreadCount)
+            from InboxEntry e join Conversation c on c.id = e.conversationId
+            where e.userId = :userId and e.conversationId >= 0
+              and (e.lastActivityAt < :activityAt or (e.lastActivityAt = :activityAt and e.conversationId < :conversationId))
+            order by e.lastActivityAt desc, e.conversationId desc
+            """)
+    List<InboxEntryView> findDirectBefore(@Param("userId") Long userId,
+                                          @Param("activityAt") Instant activityAt,
+                                          @Param("conversationId") Long conversationId,
+                                          Pageable pageable);
+
+    /**
+     * Folds a new message into an existing row. The preview only moves forward in time, so a
+     * message that commits late does not replace a newer one; the unread count always counts it.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE inbox_entries
+            SET last_message_id = CASE WHEN :sentAt >= last_activity_at THEN :messageId ELSE last_message_id END,
+                last_sender_id = CASE WHEN :sentAt >= last_activity_at THEN :senderId ELSE last_sender_id END,
+                last_message_preview = CASE WHEN :sentAt >= last_activity_at THEN :preview ELSE last_message_preview END,
+                last_activity_at = CASE WHEN :sentAt >= last_activity_at THEN :sentAt ELSE last_activity_at END,
+                unread_count = CASE WHEN :ownMessage THEN 0 ELSE unread_count + 1 END
+            WHERE user_id = :userId AND conversation_id = :conversationId
+            """, nativeQuery = true)
+    int recordMessage(@Param("userId") Long userId,
+                      @Param("conversationId") Long conversationId,
+                      @Param("messageId") Long messageId,
+                      @Param("senderId") Long senderId,
+                      @Param("preview") String preview,
+                      @Param("sentAt") Instant sentAt,
+                      @Param("ownMessage") boolean ownMessage);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO inbox_entries (user_id, conversation_id, peer_id, last_message_id, last_sender_id,
+                                       last_message_preview, last_activity_at, unread_count)
+            VALUES (:userId, :conversationId, :peerId, :messageId, :senderId, :preview, :sentAt,
+                    CASE WHEN :ownMessage THEN 0 ELSE 1 END)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId,
+                       @Param("conversationId") Long conversationId,
+                       @Param("peerId") Long peerId,
+                       @Param("messageId") Long messageId,
+                       @Param("senderId") Long senderId,
+                       @Param("preview") String preview,
+                       @Param("sentAt") Instant sentAt,
+                       @Param("ownMessage") boolean ownMessage);
+
+    /**
+     * The newest group conversations of a user, newest first and before the given cursor. Group
+     * rows are not written per message: their activity and preview come from the group's newest
+     * message, and the unread count is the row's count plus messages from others after the
+     * message the row points at. Columns are those of {@code InboxEntryView}.
+     */
+    @Query(value = """
+            SELECT e.conversation_id, c.title, m.id, m.sender_id, SUBSTRING(m.content FROM 1 FOR :previewLength), m.sent_at,
+                   e.unread_count + (SELECT COUNT(*) FROM messages n
+                                     WHERE n.conversation_id = e.conversation_id AND n.sender_id <> e.user_id
+                                       AND (n.sent_at > e.last_activity_at
+                                            OR (n.sent_at = e.last_activity_at AND n.id > e.last_message_id)))
+            FROM inbox_entries e
+            JOIN conversations c ON c.id = e.conversation_id
+            JOIN messages m ON m.id = (SELECT l.id FROM messages l WHERE l.conversation_id = e.conversation_id
+                                       ORDER BY l.sent_at DESC, l.id DESC LIMIT 1)
+            WHERE e.user_id = :userId AND e.conversation_id < 0
+              AND (m.sent_at < :activityAt OR (m.sent_at = :activityAt AND e.conversation_id < :conversationId))
+            ORDER BY m.sent_at DESC, e.conversation_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findGroupsBefore(@Param("userId") Long userId,
+                                    @Param("activityAt") Instant activityAt,
+                                    @Param("conversationId") Long conversationId,
+                                    @Param("previewLength") int previewLength,
+                                    @Param("limit") int limit);
+
+    /**
+     * Moves a group row forward to a message the member has read, which also resets the count
+     * carried by the row. Messages after it are counted when the inbox is read.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE inbox_entries
+            SET last_message_id = :messageId, last_sender_id = :senderId, last_activity_at = :sentAt, unread_count = 0
+            WHERE user_id = :userId AND conversation_id = :conversationId
+              AND (last_activity_at < :sentAt OR (last_activity_at = :sentAt AND last_message_id <= :messageId))
+            """, nativeQuery = true)
+    int advanceGroupEntry(@Param("userId") Long userId,
+                          @Param("conversationId") Long conversationId,
+                          @Param("messageId") Long messageId,
+                          @Param("senderId") Long senderId,
+                          @Param("sentAt") Instant sentAt);
+
+    /** Gives every member of a group without messages a row that counts messages after {@code at}. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO inbox_entries (user_id, conversation_id, peer_id, last_message_id, last_sender_id,
+                                       last_message_preview, last_activity_at, unread_count)
+            SELECT p.user_id, p.conversation_id, NULL, 0, p.user_id, '', :at, 0
+            FROM conversation_participants p
+            WHERE p.conversation_id = :conversationId
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertGroupEntries(@Param("conversationId") Long conversationId, @Param("at") Instant at);
+
+    /** {@link #insertGroupEntries} for one member. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO inbox_entries (user_id, conversation_id, peer_id, last_message_id, last_sender_id,
+                                       last_message_preview, last_activity_at, unread_count)
+            VALUES (:userId, :conversationId, NULL, 0, :userId, '', :at, 0)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertGroupEntryIfAbsent(@Param("userId") Long userId,
+                                 @Param("conversationId") Long conversationId,
+                                 @Param("at") Instant at);
+
+    /** Gives a new group member a read row pointing at the group's newest message, if it has one. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO inbox_entries (user_id, conversation_id, peer_id, last_message_id, last_sender_id,
+                                       last_message_preview, last_activity_at, unread_count)
+            SELECT :userId, m.conversation_id, NULL, m.id, m.sender_id, SUBSTRING(m.content FROM 1 FOR :previewLength), m.sent_at, 0
+            FROM messages m
+            WHERE m.id = (SELECT l.id FROM messages l WHERE l.conversation_id = :conversationId
+                          ORDER BY l.sent_at DESC, l.id DESC LIMIT 1)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertLatestIfAbsent(@Param("userId") Long userId,
+                             @Param("conversationId") Long conversationId,
+                             @Param("previewLength") int previewLength);
+
+    @Modifying
+    @Query("delete from InboxEntry e where e.userId = :userId and e.conversationId = :conversationId")
+    int deleteEntry(@Param("userId") Long userId, @Param("conversationId") Long conversationId);
+
+    @Modifying
+    @Query("""
+            update InboxEntry e set e.unreadCount = 0
+            where e.userId = :userId and e.conversationId = :conversationId and e.lastMessageId <= :lastReadMessageId
+            """)
+    int markRead(@Param("userId") Long userId,
+                 @Param("conversationId") Long conversationId,
+                 @Param("lastReadMessageId") Long lastReadMessageId);
+
+    @Modifying
+    @Query("update InboxEntry e set e.unreadCount = :unreadCount where e.userId = :userId and e.conversationId = :conversationId")
+    int setUnreadCount(@Param("userId") Long userId,
+                       @Param("conversationId") Long conversationId,
+                       @Param("unreadCount") int unreadCount);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM inbox_entries LIMIT 1) AS any_entry", nativeQuery = true)
+    int countAtMostOne();
+
+    /**
+     * Creates a row for every participant of every conversation that has messages, pointing at
+     * the conversation's newest message. The peer is the other participant of a direct chat;
+     * groups (negative ids) have none.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO inbox_entries (user_id, conversation_id, peer_id, last_message_id, last_sender_id,
+                                       last_message_preview, last_activity_at, unread_count)
+            SELECT p.user_id, p.conversation_id,
+                   CASE WHEN p.conversation_id >= 0 THEN
+                       (SELECT MIN(o.user_id) FROM conversation_participants o
+                        WHERE o.conversation_id = p.conversation_id AND o.user_id <> p.user_id)
+                   END,
+                   m.id, m.sender_id, SUBSTRING(m.content FROM 1 FOR :previewLength), m.sent_at, 0
+            FROM conversation_participants p
+            JOIN messages m ON m.id = (SELECT l.id FROM messages l WHERE l.conversation_id = p.conversation_id
+                                       ORDER BY l.sent_at DESC, l.id DESC LIMIT 1)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int backfill(@Param("previewLength") int previewLength);
+
+    @Query("select e.conversationId from InboxEntry e where e.userId = :userId")
+    List<Long> findConversationIds(@Param("userId") Long userId);
+
+    @Query("select e.conversationId from InboxEntry e where e.userId = :userId and e.peerId = :peerId")
+    List<Long> findConversationIdsWithPeer(@Param("userId") Long userId, @Param("peerId") Long peerId);
+}
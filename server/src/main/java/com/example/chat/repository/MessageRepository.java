@@ -1,10 +1,100 @@
 package com.example.chat.repository;
 
+import com.example.chat.dto.MessageView;
 import com.example.chat.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findByConversationIdOrderBySentAtAsc(Long conversationId);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from Message m join m.sender s
+            where m.conversation.id = :conversationId
+            order by m.sentAt desc, m.id desc
+            """)
+    List<MessageView> findLatest(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from Message m join m.sender s
+            where m.conversation.id = :conversationId
+              and (m.sentAt < :sentAt or (m.sentAt = :sentAt and m.id < :id))
+            order by m.sentAt desc, m.id desc
+            """)
+    List<MessageView> findBefore(@Param("conversationId") Long conversationId,
+                                 @Param("sentAt") Instant sentAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from Message m join m.sender s
+            where m.conversation.id = :conversationId
+              and (m.sentAt > :sentAt or (m.sentAt = :sentAt and m.id > :id))
+            order by m.sentAt asc, m.id asc
+            """)
+    List<MessageView> findAfter(@Param("conversationId") Long conversationId,
+                                @Param("sentAt") Instant sentAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
+
+    @Query("select m.sentAt from Message m where m.id = :id and m.conversation.id = :conversationId")
+    Optional<Instant> findSentAt(@Param("conversationId") Long conversationId, @Param("id") Long id);
+
+    @Query("""
+            select count(m) from Message m
+            where m.conversation.id = :conversationId
+              and m.sender.id <> :userId
+              and (m.sentAt > :sentAt or (m.sentAt = :sentAt and m.id > :id))
+            """)
+    long countFromOthersAfter(@Param("conversationId") Long conversationId,
+                              @Param("userId") Long userId,
+                              @Param("sentAt") Instant sentAt,
+                              @Param("id") Long id);
+
+    @Query(value = """
+            select id from messages
+            where sent_at < :cutoff
+            order by sent_at, id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<Long> lockArchivableIds(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Query("select distinct m.conversation.id from Message m where m.id in :ids")
+    List<Long> findConversationIds(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query(value = """
+            insert into historical_messages (id, conversation_id, sender_id, content, sent_at, archived_at)
+            select id, conversation_id, sender_id, content, sent_at, :archivedAt
+            from messages
+            where id in (:ids)
+            on conflict do nothing
+            """, nativeQuery = true)
+    int copyToHistory(@Param("ids") List<Long> ids, @Param("archivedAt") Instant archivedAt);
+
+    @Modifying
+    @Query("delete from Message m where m.id in :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Query("""
+            select new com.example.chat.dto.MessageView(m.id, m.conversation.id, s.id, s.displayName, m.content, m.sentAt)
+            from Message m join m.sender s
+            where (m.sentAt > :sentAt or (m.sentAt = :sentAt and m.id > :id))
+              and m.sentAt < :horizon
+            order by m.sentAt asc, m.id asc
+            """)
+    List<MessageView> findAllAfter(@Param("sentAt") Instant sentAt,
+                                   @Param("id") Long id,
+                                   @Param("horizon") Instant horizon,
+                                   Pageable pageable);
 }
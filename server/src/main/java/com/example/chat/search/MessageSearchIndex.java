@@ -0,0 +1,251 @@
+package com.example.chat.search;
+
+import com.example.chat.config.SearchProperties;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessagePage;
+import com.example.chat.dto.MessageView;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Lucene index of message content, stored on disk under {@code chat.search.index-path}. Each
+ * document keeps the fields of its {@link MessageView}, so hits are rendered without a database
+ * round trip. Writes become searchable at the next refresh; the last commit carries the
+ * catch-up checkpoint, which is how far the database has been fully indexed.
+ */
+@Component
+public class MessageSearchIndex implements DisposableBean {
+
+    private static final String ID_KEY = "idKey";
+    private static final String ID = "id";
+    private static final String CONVERSATION_ID = "conversationId";
+    private static final String SENDER_ID = "senderId";
+    private static final String SENDER_NAME = "senderName";
+    private static final String CONTENT = "content";
+    private static final String SENT_AT = "sentAt";
+    private static final String CHECKPOINT = "chat.checkpoint";
+    private static final Sort RANKING = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.LONG, true));
+
+    private final boolean enabled;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searchers;
+
+    public MessageSearchIndex(SearchProperties properties) throws IOException {
+        this.enabled = properties.isEnabled();
+        if (!enabled) {
+            this.directory = null;
+            this.writer = null;
+            this.searchers = null;
+            return;
+        }
+        this.directory = FSDirectory.open(Path.of(properties.getIndexPath()));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(properties.getRamBuffer().toBytes() / (1024.0 * 1024.0));
+        this.writer = new IndexWriter(directory, config);
+        this.searchers = new SearcherManager(writer, null);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void index(Collection<MessageView> views) {
+        try {
+            for (MessageView view : views) {
+                writer.updateDocument(new Term(ID_KEY, Long.toString(view.getId())), toDocument(view));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** Those of {@code ids} that are in the index, including writes not refreshed yet. */
+    public Set<Long> indexedIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        List<BytesRef> keys = ids.stream().map(id -> new BytesRef(Long.toString(id))).toList();
+        try {
+            searchers.maybeRefreshBlocking();
+            IndexSearcher searcher = searchers.acquire();
+            try {
+                TopDocs top = searcher.search(new TermInSetQuery(ID_KEY, keys), ids.size());
+                StoredFields stored = searcher.storedFields();
+                Set<Long> found = new HashSet<>();
+                for (ScoreDoc hit : top.scoreDocs) {
+                    found.add(stored.document(hit.doc, Set.of(ID)).getField(ID).numericValue().longValue());
+                }
+                return found;
+            } finally {
+                searchers.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public Optional<MessageCursor> checkpoint() {
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (CHECKPOINT.equals(entry.getKey())) {
+                    return Optional.of(MessageCursor.decode(entry.getValue()));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Commits everything written so far, recording that every message up to {@code checkpoint}
+     * is part of this commit.
+     */
+    public void commit(MessageCursor checkpoint) {
+        try {
+            writer.setLiveCommitData(Map.of(CHECKPOINT, checkpoint.encode()).entrySet());
+            writer.commit();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.refresh-interval:1000}")
+    public void refresh() throws IOException {
+        if (enabled) {
+            searchers.maybeRefresh();
+        }
+    }
+
+    public MessagePage search(String text, Collection<Long> conversationIds, SearchCursor after, int limit) {
+        Query query = buildQuery(text, conversationIds);
+        if (query instanceof MatchNoDocsQuery) {
+            return new MessagePage(List.of(), null);
+        }
+        try {
+            IndexSearcher searcher = searchers.acquire();
+            try {
+                // Ids are unique, so only the hit the cursor points at ties with it. Giving the
+                // cursor the highest doc number in the reader skips that hit on every page.
+                TopDocs top = after == null
+                        ? searcher.search(query, limit, RANKING, true)
+                        : searcher.searchAfter(new FieldDoc(Math.max(0, searcher.getIndexReader().maxDoc() - 1), after.getScore(),
+                        new Object[]{after.getScore(), after.getId()}), query, limit, RANKING, true);
+                StoredFields stored = searcher.storedFields();
+                List<MessageView> hits = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc hit : top.scoreDocs) {
+                    hits.add(toView(stored.document(hit.doc)));
+                }
+                String nextCursor = null;
+                if (top.scoreDocs.length == limit) {
+                    FieldDoc last = (FieldDoc) top.scoreDocs[top.scoreDocs.length - 1];
+                    nextCursor = new SearchCursor((Float) last.fields[0], (Long) last.fields[1]).encode();
+                }
+                return new MessagePage(hits, nextCursor);
+            } finally {
+                searchers.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public int documentCount() {
+        return enabled ? writer.getDocStats().numDocs : 0;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (enabled) {
+            searchers.close();
+            writer.close();
+            directory.close();
+        }
+    }
+
+    private Query buildQuery(String text, Collection<Long> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query textQuery = parser.parse(text);
+        if (textQuery == null || textQuery instanceof MatchNoDocsQuery) {
+            return new MatchNoDocsQuery();
+        }
+        long[] ids = conversationIds.stream().mapToLong(Long::longValue).toArray();
+        return new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(LongPoint.newSetQuery(CONVERSATION_ID, ids), BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    private static Document toDocument(MessageView view) {
+        Document document = new Document();
+        document.add(new StringField(ID_KEY, Long.toString(view.getId()), Field.Store.NO));
+        document.add(new NumericDocValuesField(ID, view.getId()));
+        document.add(new StoredField(ID, view.getId()));
+        document.add(new LongPoint(CONVERSATION_ID, view.getConversationId()));
+        document.add(new StoredField(CONVERSATION_ID, view.getConversationId()));
+        document.add(new StoredField(SENDER_ID, view.getSenderId()));
+        document.add(new StoredField(SENDER_NAME, view.getSenderName() != null ? view.getSenderName() : ""));
+        document.add(new TextField(CONTENT, view.getContent() != null ? view.getContent() : "", Field.Store.YES));
+        document.add(new StoredField(SENT_AT, view.getSentAt().toString()));
+        return document;
+    }
+
+    private static MessageView toView(Document document) {
+        return new MessageView(
+                document.getField(ID).numericValue().longValue(),
+                document.getField(CONVERSATION_ID).numericValue().longValue(),
+                document.getField(SENDER_ID).numericValue().longValue(),
+                document.get(SENDER_NAME),
+                document.get(CONTENT),
+                Instant.parse(document.get(SENT_AT))
+        );
+    }
+}
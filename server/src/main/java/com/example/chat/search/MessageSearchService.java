@@ -0,0 +1,68 @@
+package com.example.chat.search;
+
+import com.example.chat.config.SearchProperties;
+import com.example.chat.dto.MessagePage;
+import com.example.chat.model.InboxEntry;
+import com.example.chat.repository.InboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Resolves which conversations a search may look at, then runs it against the index. A user
+ * only ever searches conversations they take part in, found through their inbox rows.
+ */
+@Service
+public class MessageSearchService {
+
+    private final MessageSearchIndex index;
+    private final InboxRepository inboxRepository;
+    private final SearchProperties properties;
+    private final Timer queries;
+
+    public MessageSearchService(MessageSearchIndex index,
+                                InboxRepository inboxRepository,
+                                SearchProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.index = index;
+        this.inboxRepository = inboxRepository;
+        this.properties = properties;
+        this.queries = Timer.builder("chat.search.queries").register(meterRegistry);
+    }
+
+    public MessagePage search(Long userId, String text, Long conversationId, Long participantId, SearchCursor after, Integer limit) {
+        if (!index.isEnabled()) {
+            throw new IllegalStateException("Search is disabled");
+        }
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        if (conversationId != null && participantId != null) {
+            throw new IllegalArgumentException("Only one of 'conversationId' and 'participantId' may be given");
+        }
+        int pageSize = resolvePageSize(limit);
+        List<Long> conversationIds;
+        if (conversationId != null) {
+            conversationIds = inboxRepository.existsById(new InboxEntry.Key(userId, conversationId))
+                    ? List.of(conversationId)
+                    : List.of();
+        } else if (participantId != null) {
+            conversationIds = inboxRepository.findConversationIdsWithPeer(userId, participantId);
+        } else {
+            conversationIds = inboxRepository.findConversationIds(userId);
+        }
+        return queries.record(() -> index.search(text, conversationIds, after, pageSize));
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return properties.getDefaultPageSize();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, properties.getMaxPageSize());
+    }
+}
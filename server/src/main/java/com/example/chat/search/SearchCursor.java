@@ -0,0 +1,48 @@
+package com.example.chat.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a ranked result list: the score and message id of the last hit returned. Scores
+ * are encoded bit-exactly so the next page resumes right after that hit.
+ */
+public final class SearchCursor {
+
+    private final float score;
+    private final long id;
+
+    public SearchCursor(float score, long id) {
+        this.score = score;
+        this.id = id;
+    }
+
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = decoded.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new SearchCursor(Float.intBitsToFloat(Integer.parseUnsignedInt(parts[0], 16)), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor '%s'".formatted(token));
+        }
+    }
+
+    public String encode() {
+        String raw = Integer.toHexString(Float.floatToIntBits(score)) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
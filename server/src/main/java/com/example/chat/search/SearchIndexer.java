@@ -0,0 +1,230 @@
+package com.example.chat.search;
+
+import com.example.chat.config.SearchProperties;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessageView;
+import com.example.chat.repository.HistoricalMessageRepository;
+import com.example.chat.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@link MessageSearchIndex} in step with the database in two ways. Messages persisted on
+ * this node are indexed right after their transaction commits, on a single background thread.
+ * A scheduled catch-up scan walks {@code messages} and {@code historical_messages} in
+ * {@code (sent_at, id)} order from the committed checkpoint, in bounded batches that each commit
+ * with the new checkpoint. On a fresh index that scan is the backfill; afterwards it picks up
+ * messages written by other nodes and anything lost in a crash before the last commit.
+ * {@code sent_at} is stamped before commit, so a transaction that commits more than
+ * {@code catch-up-lag} late lands behind the checkpoint; a trailing scan reads each row once more
+ * when it is {@code late-commit-window} older than the horizon and indexes the ids the index lacks.
+ */
+@Component
+public class SearchIndexer implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexer.class);
+    private static final MessageCursor START = new MessageCursor(Instant.EPOCH, 0L);
+    private static final Comparator<MessageView> SCAN_ORDER = Comparator
+            .comparing(MessageView::getSentAt)
+            .thenComparing(MessageView::getId);
+
+    private final MessageSearchIndex index;
+    private final MessageRepository messageRepository;
+    private final HistoricalMessageRepository historicalMessageRepository;
+    private final SearchProperties properties;
+    private final ThreadPoolExecutor liveExecutor;
+    private final Set<Long> indexedLive = ConcurrentHashMap.newKeySet();
+    private final Counter liveIndexed;
+    private final Counter caughtUp;
+    private final Counter lateCommits;
+    private final Clock clock;
+    private volatile Instant checkpointTime;
+    private MessageCursor rescanned;
+
+    @Autowired
+    public SearchIndexer(MessageSearchIndex index,
+                         MessageRepository messageRepository,
+                         HistoricalMessageRepository historicalMessageRepository,
+                         SearchProperties properties,
+                         MeterRegistry meterRegistry) {
+        this(index, messageRepository, historicalMessageRepository, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    SearchIndexer(MessageSearchIndex index,
+                  MessageRepository messageRepository,
+                  HistoricalMessageRepository historicalMessageRepository,
+                  SearchProperties properties,
+                  MeterRegistry meterRegistry,
+                  Clock clock) {
+        this.index = index;
+        this.messageRepository = messageRepository;
+        this.historicalMessageRepository = historicalMessageRepository;
+        this.properties = properties;
+        this.liveExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getLiveQueueCapacity()), task -> {
+                    Thread thread = new Thread(task, "search-indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.liveIndexed = Counter.builder("chat.search.indexed").tag("source", "live").register(meterRegistry);
+        this.caughtUp = Counter.builder("chat.search.indexed").tag("source", "catch_up").register(meterRegistry);
+        this.lateCommits = Counter.builder("chat.search.indexed").tag("source", "late_commit").register(meterRegistry);
+        this.clock = clock;
+        Gauge.builder("chat.search.documents", index, MessageSearchIndex::documentCount).register(meterRegistry);
+        Gauge.builder("chat.search.lag", this, SearchIndexer::checkpointLagSeconds).register(meterRegistry);
+    }
+
+    /**
+     * Indexes a message whose transaction has committed. When the queue is full the caller
+     * indexes it itself, which slows senders down rather than dropping the message.
+     */
+    public void indexCommitted(MessageView view) {
+        if (!index.isEnabled()) {
+            return;
+        }
+        liveExecutor.execute(() -> {
+            try {
+                index.index(List.of(view));
+                liveIndexed.increment();
+                if (indexedLive.size() < properties.getLiveQueueCapacity() * 10) {
+                    indexedLive.add(view.getId());
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not index message {}; the catch-up scan will retry", view.getId(), ex);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.catch-up-interval:5000}", initialDelayString = "${chat.search.initial-delay:10000}")
+    public void catchUp() {
+        if (!index.isEnabled()) {
+            return;
+        }
+        Optional<MessageCursor> committed = index.checkpoint();
+        MessageCursor checkpoint = committed.orElse(START);
+        Instant horizon = clock.instant().minus(properties.getCatchUpLag());
+        if (rescanned == null) {
+            // Rows a fresh index backfills are older than the window, so only new ones are read twice.
+            Instant from = committed.map(MessageCursor::getSentAt).orElse(horizon).minus(properties.getLateCommitWindow());
+            rescanned = new MessageCursor(from, Long.MIN_VALUE);
+        }
+        long total = 0;
+        boolean drained = false;
+        try {
+            for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+                List<MessageView> rows = loadBatch(checkpoint, horizon);
+                if (rows.isEmpty()) {
+                    drained = true;
+                    break;
+                }
+                List<MessageView> missing = new ArrayList<>(rows.size());
+                for (MessageView row : rows) {
+                    if (!indexedLive.remove(row.getId())) {
+                        missing.add(row);
+                    }
+                }
+                index.index(missing);
+                caughtUp.increment(missing.size());
+                total += missing.size();
+                checkpoint = MessageCursor.of(rows.get(rows.size() - 1));
+                index.commit(checkpoint);
+                if (rows.size() < properties.getBatchSize()) {
+                    drained = true;
+                    break;
+                }
+                pause(properties.getPauseBetweenBatches());
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Search index catch-up failed; will retry on the next run", ex);
+        }
+        checkpointTime = drained ? horizon : checkpoint.getSentAt();
+        if (total > 0) {
+            log.info("Search index caught up on {} messages, now complete up to {}", total, checkpoint.getSentAt());
+        }
+        rescanLateCommits(checkpoint, horizon.minus(properties.getLateCommitWindow()));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        liveExecutor.shutdown();
+        liveExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reads again the rows from {@link #rescanned} up to {@code before}, but not past the
+     * checkpoint, and indexes the ones missing from the index: they committed after the
+     * catch-up scan had moved past their {@code sent_at}.
+     */
+    private void rescanLateCommits(MessageCursor checkpoint, Instant before) {
+        Instant until = before.isBefore(checkpoint.getSentAt()) ? before : checkpoint.getSentAt();
+        long total = 0;
+        try {
+            for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+                List<MessageView> rows = loadBatch(rescanned, until);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                Set<Long> indexed = index.indexedIds(rows.stream().map(MessageView::getId).toList());
+                List<MessageView> late = rows.stream().filter(row -> !indexed.contains(row.getId())).toList();
+                if (!late.isEmpty()) {
+                    index.index(late);
+                    index.commit(checkpoint);
+                    lateCommits.increment(late.size());
+                    total += late.size();
+                }
+                rescanned = MessageCursor.of(rows.get(rows.size() - 1));
+                if (rows.size() < properties.getBatchSize()) {
+                    break;
+                }
+                pause(properties.getPauseBetweenBatches());
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Search index late-commit scan failed; will retry on the next run", ex);
+        }
+        if (total > 0) {
+            log.info("Search index picked up {} messages that committed after the catch-up scan passed them", total);
+        }
+    }
+
+    private List<MessageView> loadBatch(MessageCursor after, Instant horizon) {
+        PageRequest page = PageRequest.of(0, properties.getBatchSize());
+        List<MessageView> rows = new ArrayList<>(messageRepository.findAllAfter(after.getSentAt(), after.getId(), horizon, page));
+        rows.addAll(historicalMessageRepository.findAllAfter(after.getSentAt(), after.getId(), horizon, page));
+        rows.sort(SCAN_ORDER);
+        return rows.size() > page.getPageSize() ? rows.subList(0, page.getPageSize()) : rows;
+    }
+
+    private double checkpointLagSeconds() {
+        Instant reached = checkpointTime;
+        return reached == null ? Double.NaN : Duration.between(reached, clock.instant()).toMillis() / 1000.0;
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
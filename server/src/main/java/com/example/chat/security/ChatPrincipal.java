@@ -0,0 +1,36 @@
+package com.example.chat.security;
+
+import com.example.chat.dto.UserSummary;
+
+import java.security.Principal;
+
+/**
+ * The user bound to a STOMP session at CONNECT. Its name is the user id, so user destinations
+ * such as {@code /user/queue/...} resolve by id.
+ */
+public final class ChatPrincipal implements Principal {
+
+    private final UserSummary user;
+
+    public ChatPrincipal(UserSummary user) {
+        this.user = user;
+    }
+
+    public UserSummary getUser() {
+        return user;
+    }
+
+    public Long getUserId() {
+        return user.getId();
+    }
+
+    @Override
+    public String getName() {
+        return String.valueOf(user.getId());
+    }
+
+    @Override
+    public String toString() {
+        return "ChatPrincipal[" + user.getId() + "]";
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.chat.security;
+
+import com.example.chat.service.ConversationMembership;
+import com.example.chat.service.ConversationSubscriptions;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets a session subscribe to a conversation's topics only when its user is a member. Checks
+ * go to {@link ConversationMembership}, so a SUBSCRIBE costs no database query once the group's
+ * member list is cached. A rejected SUBSCRIBE is answered with an ERROR frame.
+ */
+@Component
+public class ConversationAccessInterceptor implements ChannelInterceptor {
+
+    private final ConversationMembership membership;
+
+    public ConversationAccessInterceptor(ConversationMembership membership) {
+        this.membership = membership;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE) {
+            return message;
+        }
+        Long conversationId = ConversationSubscriptions.parseConversationScope(accessor.getDestination());
+        if (conversationId == null) {
+            return message;
+        }
+        if (!(accessor.getUser() instanceof ChatPrincipal principal)
+                || !membership.isMember(conversationId, principal.getUserId())) {
+            throw new MessagingException(message, "Not a member of conversation " + conversationId);
+        }
+        return message;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.chat.security;
+
+import com.example.chat.config.SessionTokenProperties;
+import com.example.chat.dto.UserSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies session tokens of the form {@code base64url(claims).base64url(hmac)},
+ * where the claims are {@code userId:expiresAtEpochSecond:displayName} signed with HMAC-SHA256.
+ */
+@Service
+public class SessionTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final SecretKeySpec key;
+    private final SessionTokenProperties properties;
+    private final Clock clock;
+
+    @Autowired
+    public SessionTokenService(SessionTokenProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    SessionTokenService(SessionTokenProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        byte[] secret;
+        if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            log.warn("chat.auth.token.secret is not set; using a random key, so tokens are only valid on this node until it restarts");
+        } else {
+            secret = Base64.getDecoder().decode(properties.getSecret());
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    public IssuedToken issue(UserSummary user) {
+        Instant expiresAt = clock.instant().plus(properties.getTimeToLive());
+        String claims = user.getId() + ":" + expiresAt.getEpochSecond() + ":" + user.getDisplayName();
+        byte[] claimBytes = claims.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String token = encoder.encodeToString(claimBytes) + "." + encoder.encodeToString(sign(claimBytes));
+        return new IssuedToken(token, expiresAt);
+    }
+
+    /**
+     * Verifies the value of an {@code Authorization} header; the {@code Bearer} prefix is optional.
+     */
+    public Optional<UserSummary> verifyAuthorization(String header) {
+        return verify(header != null && header.startsWith(BEARER_PREFIX) ? header.substring(BEARER_PREFIX.length()) : header);
+    }
+
+    public Optional<UserSummary> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return Optional.empty();
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] claimBytes = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(claimBytes), signature)) {
+                return Optional.empty();
+            }
+            String[] claims = new String(claimBytes, StandardCharsets.UTF_8).split(":", 3);
+            if (claims.length != 3 || Long.parseLong(claims[1]) < clock.instant().getEpochSecond()) {
+                return Optional.empty();
+            }
+            return Optional.of(new UserSummary(Long.parseLong(claims[0]), claims[2]));
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(byte[] claims) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(claims);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+        }
+    }
+
+    public static final class IssuedToken {
+        private final String token;
+        private final Instant expiresAt;
+
+        public IssuedToken(String token, Instant expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
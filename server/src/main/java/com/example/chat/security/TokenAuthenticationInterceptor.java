@@ -0,0 +1,40 @@
+package com.example.chat.security;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies the session token once, on STOMP CONNECT, and binds a {@link ChatPrincipal} to the
+ * session. Every later frame of the session carries that principal; a CONNECT without a valid
+ * token is answered with an ERROR frame and the connection is closed.
+ */
+@Component
+public class TokenAuthenticationInterceptor implements ChannelInterceptor {
+
+    public static final String AUTHORIZATION_HEADER = "Authorization";
+
+    private final SessionTokenService tokenService;
+
+    public TokenAuthenticationInterceptor(SessionTokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        ChatPrincipal principal = tokenService.verifyAuthorization(accessor.getFirstNativeHeader(AUTHORIZATION_HEADER))
+                .map(ChatPrincipal::new)
+                .orElseThrow(() -> new MessagingException(message, "Invalid or missing session token"));
+        accessor.setUser(principal);
+        return message;
+    }
+}
@@ -1,51 +1,104 @@
 package com.example.chat.service;
 
+import com.example.chat.config.HistoryProperties;
+import com.example.chat.datasource.ReadYourWrites;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessagePage;
 import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
 import com.example.chat.model.ChatUser;
 import com.example.chat.model.Conversation;
 import com.example.chat.model.Message;
+import com.example.chat.monitoring.ChatMetrics;
+import com.example.chat.monitoring.ChatMetrics.Stage;
 import com.example.chat.repository.ChatUserRepository;
 import com.example.chat.repository.ConversationRepository;
+import com.example.chat.repository.HistoricalMessageRepository;
 import com.example.chat.repository.MessageRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.chat.search.SearchIndexer;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ChatService {
 
+    private static final Comparator<MessageView> HISTORY_ORDER = Comparator
+            .comparing(MessageView::getSentAt)
+            .thenComparing(MessageView::getId);
+
     private final ChatUserRepository userRepository;
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final HistoricalMessageRepository historicalMessageRepository;
+    private final HistoryProperties historyProperties;
+    private final RecentMessageCache recentMessages;
+    private final UserCache userCache;
+    private final SnowflakeIdGenerator idGenerator;
+    private final InboxService inbox;
+    private final SearchIndexer searchIndexer;
+    private final ChatMetrics metrics;
+    private final ReadYourWrites readYourWrites;
+    private final TransactionTemplate primaryReads;
+    private final TransactionTemplate replicaReads;
 
     public ChatService(ChatUserRepository userRepository,
                        ConversationRepository conversationRepository,
                        MessageRepository messageRepository,
-                       PasswordEncoder passwordEncoder) {
+                       HistoricalMessageRepository historicalMessageRepository,
+                       HistoryProperties historyProperties,
+                       RecentMessageCache recentMessages,
+                       UserCache userCache,
+                       SnowflakeIdGenerator idGenerator,
+                       InboxService inbox,
+                       SearchIndexer searchIndexer,
+                       ChatMetrics metrics,
+                       ReadYourWrites readYourWrites,
+                       PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.historicalMessageRepository = historicalMessageRepository;
+        this.historyProperties = historyProperties;
+        this.recentMessages = recentMessages;
+        this.userCache = userCache;
+        this.idGenerator = idGenerator;
+        this.inbox = inbox;
+        this.searchIndexer = searchIndexer;
+        this.metrics = metrics;
+        this.readYourWrites = readYourWrites;
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.replicaReads = new TransactionTemplate(transactionManager);
+        this.replicaReads.setReadOnly(true);
     }
 
     public Optional<ChatUser> findUser(Long id) {
         return userRepository.findById(id);
     }
 
-    public ChatUser requireUser(Long id) {
-        return userRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("User %d not found".formatted(id)));
+    public UserSummary requireUser(Long id) {
+        UserSummary user = userCache.get(id, key -> userRepository.findById(key)
+                .map(found -> new UserSummary(found.getId(), found.getDisplayName()))
+                .orElse(null));
+        if (user == null) {
+            throw new IllegalArgumentException("User %d not found".formatted(id));
+        }
+        return user;
     }
 
     @Transactional
-    public ChatUser registerUser(Long id, String rawPassword, String displayName) {
-        if (id == null || rawPassword == null || rawPassword.isBlank()) {
-            throw new IllegalArgumentException("User id and password are required");
-        }
+    public ChatUser registerUser(Long id, String passwordHash, String displayName) {
         if (userRepository.existsById(id)) {
             throw new IllegalArgumentException("User %d already exists".formatted(id));
         }
@@ -54,68 +107,203 @@ public class ChatService {
         user.setId(id);
         user.setUsername("user_" + id);
         user.setDisplayName(displayName != null && !displayName.isBlank() ? displayName : "User " + id);
-        user.setPasswordHash(passwordEncoder.encode(rawPassword));
-        return userRepository.save(user);
+        user.setPasswordHash(passwordHash);
+        ChatUser saved = userRepository.save(user);
+        afterCommit(() -> {
+            userCache.invalidate(id);
+            readYourWrites.recordWrite(id);
+        });
+        return saved;
     }
 
-    public ChatUser authenticate(Long id, String rawPassword) {
-        if (id == null || rawPassword == null) {
-            throw new IllegalArgumentException("User id and password are required");
-        }
-        ChatUser user = userRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
-        if (!passwordEncoder.matches(rawPassword, user.getPasswordHash())) {
-            throw new IllegalArgumentException("Invalid credentials");
-        }
-        return user;
+    @Transactional
+    public boolean updatePasswordHash(Long id, String previousHash, String passwordHash) {
+        return userRepository.replacePasswordHash(id, previousHash, passwordHash) > 0;
     }
 
     public Optional<Conversation> findConversation(Long id) {
         return conversationRepository.findById(id);
     }
 
-    public long directConversationId(long firstUserId, long secondUserId) {
-        long min = Math.min(firstUserId, secondUserId);
-        long max = Math.max(firstUserId, secondUserId);
-        long sum = min + max;
-        return ((sum) * (sum + 1)) / 2 + max;
+    /** Stores a message in a direct conversation already resolved by {@link DirectConversations}. */
+    @Transactional
+    public MessageView persistDirectMessage(Long conversationId, UserSummary sender, UserSummary recipient, String content) {
+        MessageView view = insertMessage(conversationId, sender, content);
+        recordMessage(view, recipient);
+        return view;
     }
 
+    /**
+     * Stores a message in an existing group. The caller has checked that the sender is a
+     * member; only the sender's inbox row is written, the others count it when read.
+     */
     @Transactional
-    public MessageView persistDirectMessage(Long conversationId, ChatUser sender, ChatUser recipient, String content) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseGet(() -> createDirectConversation(conversationId, sender, recipient));
-
-        if (!conversation.getParticipants().contains(sender)) {
-            conversation.getParticipants().add(sender);
-        }
-        if (!conversation.getParticipants().contains(recipient)) {
-            conversation.getParticipants().add(recipient);
-        }
+    public MessageView persistGroupMessage(Long conversationId, UserSummary sender, String content) {
+        MessageView view = insertMessage(conversationId, sender, content);
+        recordMessage(view, null);
+        return view;
+    }
 
-        Message message = new Message(conversation, sender, content);
-        Message saved = messageRepository.save(message);
+    /**
+     * Queues the insert of a message in the current persistence context. Nothing reaches the
+     * database until the next flush, so inserts queued back to back go out as one JDBC batch.
+     */
+    MessageView insertMessage(Long conversationId, UserSummary sender, String content) {
+        metrics.timeCommit();
+        Message message = new Message(
+                idGenerator.nextId(),
+                conversationRepository.getReferenceById(conversationId),
+                userRepository.getReferenceById(sender.getId()),
+                content
+        );
+        metrics.time(Stage.MESSAGE_INSERT, () -> messageRepository.save(message));
         return new MessageView(
-                saved.getId(),
-                conversation.getId(),
+                message.getId(),
+                conversationId,
                 sender.getId(),
                 sender.getDisplayName(),
-                saved.getContent(),
-                saved.getSentAt()
+                message.getContent(),
+                message.getSentAt()
         );
     }
 
-    private Conversation createDirectConversation(Long conversationId, ChatUser sender, ChatUser recipient) {
-        long first = Math.min(sender.getId(), recipient.getId());
-        long second = Math.max(sender.getId(), recipient.getId());
-        Conversation conversation = new Conversation("Direct chat " + first + "-" + second);
-        conversation.setId(conversationId);
-        conversation.getParticipants().add(sender);
-        conversation.getParticipants().add(recipient);
-        return conversationRepository.save(conversation);
+    /**
+     * Updates the inbox rows for an inserted message, a group message when {@code recipient} is
+     * null, and caches and indexes it once the transaction commits.
+     */
+    void recordMessage(MessageView view, UserSummary recipient) {
+        if (recipient != null) {
+            metrics.time(Stage.INBOX_UPDATE, () -> inbox.recordDirectMessage(view, recipient.getId()));
+        } else {
+            metrics.time(Stage.INBOX_UPDATE, () -> inbox.recordGroupMessage(view));
+        }
+        afterCommit(() -> {
+            readYourWrites.recordWrite(view.getSenderId());
+            recentMessages.append(view);
+            searchIndexer.indexCommitted(view);
+        });
+    }
+
+    /**
+     * Not transactional itself: cache misses read in a read-only transaction, which may use the
+     * replica, but the shared tail is loaded from the primary by {@link #loadTail}.
+     */
+    public MessagePage getConversationMessages(Long conversationId, MessageCursor before, MessageCursor after, Integer limit,
+                                               boolean includeArchived) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Only one of 'before' and 'after' may be given");
+        }
+        int pageSize = resolvePageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize);
+
+        List<MessageView> views;
+        if (includeArchived) {
+            views = replicaReads.execute(status -> findIncludingArchived(conversationId, before, after, page));
+        } else if (after != null) {
+            views = recentMessages.getAfter(conversationId, after, pageSize)
+                    .orElseGet(() -> replicaReads.execute(status ->
+                            messageRepository.findAfter(conversationId, after.getSentAt(), after.getId(), page)));
+        } else if (before != null) {
+            views = recentMessages.getBefore(conversationId, before, pageSize)
+                    .orElseGet(() -> replicaReads.execute(status ->
+                            toAscendingViews(messageRepository.findBefore(conversationId, before.getSentAt(), before.getId(), page))));
+        } else {
+            views = recentMessages.getLatest(conversationId, pageSize, size -> loadTail(conversationId, size));
+        }
+
+        String nextCursor = null;
+        if (views.size() == pageSize) {
+            MessageView edge = after != null ? views.get(views.size() - 1) : views.get(0);
+            nextCursor = MessageCursor.of(edge).encode();
+        }
+        return new MessagePage(views, nextCursor);
+    }
+
+    /**
+     * Messages of a conversation sent after {@code lastSeenId}, oldest first, or empty when that
+     * message is unknown (for example archived) or more than {@code max} messages were missed.
+     * Not read-only, so it reads the primary: a replica that lags would silently drop from the
+     * replay a message committed just before the subscription.
+     */
+    @Transactional
+    public Optional<List<MessageView>> findMissedMessages(Long conversationId, Long lastSeenId, int max) {
+        Optional<MessageCursor> cursor = recentMessages.findCursor(conversationId, lastSeenId)
+                .or(() -> messageRepository.findSentAt(conversationId, lastSeenId)
+                        .map(sentAt -> new MessageCursor(sentAt, lastSeenId)));
+        if (cursor.isEmpty()) {
+            return Optional.empty();
+        }
+        MessageCursor after = cursor.get();
+        List<MessageView> missed = recentMessages.getAfter(conversationId, after, max + 1)
+                .orElseGet(() -> messageRepository.findAfter(conversationId, after.getSentAt(), after.getId(), PageRequest.of(0, max + 1)));
+        return missed.size() > max ? Optional.empty() : Optional.of(missed);
     }
 
-    public List<Message> getConversationMessages(Long conversationId) {
-        return messageRepository.findByConversationIdOrderBySentAtAsc(conversationId);
+    /**
+     * Messages of a conversation sent after {@code since}, oldest first, at most {@code max}.
+     * Reads the primary, like {@link #findMissedMessages}.
+     */
+    @Transactional
+    public List<MessageView> findSentAfter(Long conversationId, Instant since, int max) {
+        return messageRepository.findAfter(conversationId, since, Long.MIN_VALUE, PageRequest.of(0, max));
+    }
+
+    /**
+     * Loads the tail that seeds the shared recent-message cache. Not read-only, so it reads the
+     * primary: {@link RecentMessageCache#append} skips conversations without a buffer, so a
+     * message a lagging replica had not seen yet would be missing from the cached tail for every
+     * reader until the buffer is evicted.
+     */
+    private List<MessageView> loadTail(Long conversationId, int size) {
+        return primaryReads.execute(status ->
+                toAscendingViews(messageRepository.findLatest(conversationId, PageRequest.of(0, size))));
+    }
+
+    private List<MessageView> findIncludingArchived(Long conversationId, MessageCursor before, MessageCursor after, PageRequest page) {
+        if (after != null) {
+            List<MessageView> merged = new ArrayList<>(messageRepository.findAfter(conversationId, after.getSentAt(), after.getId(), page));
+            merged.addAll(historicalMessageRepository.findAfter(conversationId, after.getSentAt(), after.getId(), page));
+            merged.sort(HISTORY_ORDER);
+            return List.copyOf(merged.subList(0, Math.min(merged.size(), page.getPageSize())));
+        }
+        List<MessageView> merged = new ArrayList<>();
+        if (before != null) {
+            merged.addAll(messageRepository.findBefore(conversationId, before.getSentAt(), before.getId(), page));
+            merged.addAll(historicalMessageRepository.findBefore(conversationId, before.getSentAt(), before.getId(), page));
+        } else {
+            merged.addAll(messageRepository.findLatest(conversationId, page));
+            merged.addAll(historicalMessageRepository.findLatest(conversationId, page));
+        }
+        merged.sort(HISTORY_ORDER.reversed());
+        return toAscendingViews(merged.subList(0, Math.min(merged.size(), page.getPageSize())));
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return historyProperties.getDefaultPageSize();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, historyProperties.getMaxPageSize());
+    }
+
+    private static List<MessageView> toAscendingViews(List<MessageView> descending) {
+        List<MessageView> views = new ArrayList<>(descending);
+        Collections.reverse(views);
+        return views;
+    }
+
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
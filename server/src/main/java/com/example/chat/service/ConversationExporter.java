@@ -0,0 +1,114 @@
+package com.example.chat.service;
+
+import com.example.chat.config.ExportProperties;
+import com.example.chat.dto.MessageView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the whole history of a conversation as newline-delimited JSON, one {@link MessageView}
+ * per line, oldest first. Rows are read with a forward-only cursor {@code chat.export.fetch-size}
+ * rows at a time and serialized straight to the output, so memory use does not grow with the
+ * conversation. When a write fails, for example because the client went away, the exception
+ * closes the cursor and ends the transaction before the next fetch.
+ * <p>
+ * Archived messages come first, then live ones. Both queries run in one repeatable-read
+ * transaction, so a message the archiver moves during the export appears exactly once.
+ */
+@Component
+public class ConversationExporter {
+
+    private static final String HISTORICAL_SQL = """
+            select m.id, m.conversation_id, m.sender_id, u.display_name, m.content, m.sent_at
+            from historical_messages m join users u on u.id = m.sender_id
+            where m.conversation_id = ?
+            order by m.sent_at, m.id
+            """;
+    private static final String LIVE_SQL = """
+            select m.id, m.conversation_id, m.sender_id, u.display_name, m.content, m.sent_at
+            from messages m join users u on u.id = m.sender_id
+            where m.conversation_id = ?
+            order by m.sent_at, m.id
+            """;
+
+    private final ConversationMembership membership;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final Timer completed;
+    private final Timer aborted;
+
+    public ConversationExporter(ConversationMembership membership,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                ExportProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.membership = membership;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getFetchSize());
+        // PostgreSQL only fetches in chunks inside a transaction; outside one it reads every row.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(MessageView.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.completed = Timer.builder("chat.export.duration").tag("outcome", "completed").register(meterRegistry);
+        this.aborted = Timer.builder("chat.export.duration").tag("outcome", "aborted").register(meterRegistry);
+    }
+
+    public void checkAccess(long conversationId, long userId) {
+        if (!membership.isMember(conversationId, userId)) {
+            throw new SecurityException("Only members may export a conversation");
+        }
+    }
+
+    /** Streams the conversation to {@code out} and returns how many messages were written. */
+    public long export(long conversationId, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            // Lines end with a newline of their own rather than Jackson's space between values.
+            generator.setRootValueSeparator(null);
+            long[] written = {0};
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String sql : new String[]{HISTORICAL_SQL, LIVE_SQL}) {
+                    jdbcTemplate.query(sql, rs -> {
+                        MessageView view = new MessageView(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getString(4),
+                                rs.getString(5), rs.getObject(6, OffsetDateTime.class).toInstant());
+                        try {
+                            writer.writeValue(generator, view);
+                            generator.writeRaw('\n');
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        written[0]++;
+                    }, conversationId);
+                }
+            });
+            generator.flush();
+            completed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return written[0];
+        } catch (UncheckedIOException ex) {
+            aborted.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw ex.getCause();
+        }
+    }
+}
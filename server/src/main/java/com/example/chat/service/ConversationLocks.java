@@ -0,0 +1,45 @@
+package com.example.chat.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-conversation locks. Local delivery to {@code /topic/conversations/{id}} holds the
+ * conversation's lock, so a subscriber that is being caught up under the same lock sees every
+ * replayed message before the next live one. Each stripe also counts its deliveries, which tells
+ * a replay fetched before taking the lock whether anything was delivered in the meantime.
+ */
+@Component
+public class ConversationLocks {
+
+    private static final int STRIPES = 1024;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final AtomicLongArray deliveries = new AtomicLongArray(STRIPES);
+
+    public ConversationLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock forConversation(long conversationId) {
+        return locks[stripe(conversationId)];
+    }
+
+    /** Called with the conversation's lock held, before a message is delivered locally. */
+    public void recordDelivery(long conversationId) {
+        deliveries.incrementAndGet(stripe(conversationId));
+    }
+
+    /** Deliveries so far in the conversation's stripe; unchanged means none to this conversation either. */
+    public long deliveries(long conversationId) {
+        return deliveries.get(stripe(conversationId));
+    }
+
+    private static int stripe(long conversationId) {
+        return Math.floorMod(Long.hashCode(conversationId) * 0x9E3779B9, STRIPES);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.chat.service;
+
+import com.example.chat.config.GroupProperties;
+import com.example.chat.model.Conversation;
+import com.example.chat.repository.ConversationMemberRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Answers membership questions without loading participant rows per message. A conversation's
+ * members are loaded once into a sorted {@code long[]}, about 8 bytes per member, and looked up
+ * by binary search. {@link GroupService} evicts a group after each membership change commits
+ * and the next lookup reloads it, so two changes committing close together cannot leave the
+ * older list cached; the members of a direct chat never change. Misses load from the primary,
+ * because an entry is usually missing right after a change that the replica may not have yet.
+ */
+@Component
+public class ConversationMembership {
+
+    private static final long[] NO_MEMBERS = new long[0];
+
+    private final ConversationMemberRepository memberRepository;
+    private final TransactionTemplate primaryReads;
+    private final LoadingCache<Long, long[]> conversations;
+
+    public ConversationMembership(ConversationMemberRepository memberRepository,
+                                  GroupProperties properties,
+                                  MeterRegistry meterRegistry,
+                                  PlatformTransactionManager transactionManager) {
+        this.memberRepository = memberRepository;
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(properties.getMembershipCacheSize())
+                .expireAfterWrite(properties.getMembershipTimeToLive())
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, conversations, "conversationMembers");
+    }
+
+    public boolean isMember(long conversationId, long userId) {
+        return Arrays.binarySearch(conversations.get(conversationId), userId) >= 0;
+    }
+
+    public int memberCount(long conversationId) {
+        return conversations.get(conversationId).length;
+    }
+
+    /** The members of a conversation in ascending id order; never mutate the returned array. */
+    public long[] members(long conversationId) {
+        return conversations.get(conversationId);
+    }
+
+    /** Installs the member list of a conversation whose members never change. */
+    public void replace(long conversationId, Collection<Long> userIds) {
+        conversations.put(conversationId, toSortedArray(userIds));
+    }
+
+    /** Evicts a conversation. A load already under way finishes first and its result is dropped. */
+    public void invalidate(long conversationId) {
+        conversations.invalidate(conversationId);
+    }
+
+    /** Drops every cached group, for when membership changes may have been missed. */
+    public void invalidateGroups() {
+        conversations.asMap().keySet().removeIf(Conversation::isGroup);
+    }
+
+    private long[] load(Long conversationId) {
+        List<Long> userIds = primaryReads.execute(status -> memberRepository.findUserIds(conversationId));
+        return userIds.isEmpty() ? NO_MEMBERS : toSortedArray(userIds);
+    }
+
+    private static long[] toSortedArray(Collection<Long> userIds) {
+        long[] sorted = userIds.stream().mapToLong(Long::longValue).distinct().toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
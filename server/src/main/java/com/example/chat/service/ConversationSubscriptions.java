@@ -0,0 +1,229 @@
+package com.example.chat.service;
+
+import com.example.chat.cluster.ClusterRelay;
+import com.example.chat.security.ChatPrincipal;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * Counts local STOMP subscriptions per conversation topic and tells the cluster relay when this
+ * node gains its first or loses its last subscriber for a conversation. Also remembers which
+ * user holds each subscription under a conversation topic, so that a user removed from a group
+ * can be unsubscribed from it.
+ * <p>
+ * On a clustered node, peers only forward messages of conversations this node is interested
+ * in, so {@link RecentMessageCache} is limited to those whose interest every peer has
+ * acknowledged, and loses a conversation's buffer together with the interest.
+ */
+@Component
+public class ConversationSubscriptions {
+
+    public static final String TOPIC_PREFIX = "/topic/conversations/";
+
+    private final ClusterRelay clusterRelay;
+    private final RecentMessageCache recentMessages;
+    private final MessageChannel brokerChannel;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<String, Map<String, Long>> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, SessionScopes> scopes = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    public ConversationSubscriptions(ClusterRelay clusterRelay,
+                                     RecentMessageCache recentMessages,
+                                     @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                                     ApplicationEventPublisher eventPublisher) {
+        this.clusterRelay = clusterRelay;
+        this.recentMessages = recentMessages;
+        this.brokerChannel = brokerChannel;
+        this.eventPublisher = eventPublisher;
+        if (clusterRelay.isClustered()) {
+            recentMessages.setCacheable(conversationId ->
+                    subscriberCount(conversationId) > 0 && clusterRelay.isInterestAcknowledged(conversationId));
+        }
+    }
+
+    public static Long parseConversationId(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(destination.substring(TOPIC_PREFIX.length()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * The conversation a destination belongs to: its message topic or a topic nested under it,
+     * such as {@code /topic/conversations/{id}/presence}.
+     */
+    public static Long parseConversationScope(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        int end = destination.indexOf('/', TOPIC_PREFIX.length());
+        return parseConversationId(end < 0 ? destination : destination.substring(0, end));
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        trackScope(accessor, event.getUser());
+        Long conversationId = parseConversationId(accessor.getDestination());
+        if (conversationId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Long previous = sessions.computeIfAbsent(accessor.getSessionId(), key -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), conversationId);
+        if (previous != null) {
+            release(previous);
+        }
+        subscribers.compute(conversationId, (key, count) -> {
+            AtomicInteger current = count != null ? count : new AtomicInteger();
+            if (current.incrementAndGet() == 1) {
+                clusterRelay.updateInterest(conversationId, true);
+            }
+            return current;
+        });
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionScopes sessionScopes = accessor.getSessionId() != null ? scopes.get(accessor.getSessionId()) : null;
+        if (sessionScopes != null && accessor.getSubscriptionId() != null) {
+            sessionScopes.subscriptions.remove(accessor.getSubscriptionId());
+        }
+        Map<String, Long> subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Long conversationId = subscriptions.remove(accessor.getSubscriptionId());
+        if (conversationId != null) {
+            release(conversationId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionScopes sessionScopes = scopes.remove(event.getSessionId());
+        if (sessionScopes != null) {
+            userSessions.computeIfPresent(sessionScopes.userId, (key, sessionIds) -> {
+                sessionIds.remove(event.getSessionId());
+                return sessionIds.isEmpty() ? null : sessionIds;
+            });
+        }
+        Map<String, Long> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    /**
+     * Unsubscribes every local session of {@code userId} from the topics of a conversation, as
+     * if the client had sent UNSUBSCRIBE. The client is not told; it simply stops receiving.
+     */
+    public void revoke(long conversationId, long userId) {
+        for (String sessionId : userSessions.getOrDefault(userId, Set.of())) {
+            SessionScopes sessionScopes = scopes.get(sessionId);
+            if (sessionScopes == null) {
+                continue;
+            }
+            List<String> revoked = sessionScopes.subscriptions.entrySet().stream()
+                    .filter(entry -> entry.getValue() == conversationId)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            for (String subscriptionId : revoked) {
+                SimpMessageHeaderAccessor unsubscribe = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+                unsubscribe.setSessionId(sessionId);
+                unsubscribe.setSubscriptionId(subscriptionId);
+                unsubscribe.setUser(sessionScopes.principal);
+                Message<byte[]> message = MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders());
+                brokerChannel.send(message);
+                eventPublisher.publishEvent(new SessionUnsubscribeEvent(this, message, sessionScopes.principal));
+            }
+        }
+    }
+
+    /** Revokes every local subscription whose user no longer passes {@code isMember} for its conversation. */
+    public void revokeUnless(BiPredicate<Long, Long> isMember) {
+        for (SessionScopes sessionScopes : scopes.values()) {
+            Set.copyOf(sessionScopes.subscriptions.values()).stream()
+                    .filter(conversationId -> !isMember.test(conversationId, sessionScopes.userId))
+                    .forEach(conversationId -> revoke(conversationId, sessionScopes.userId));
+        }
+    }
+
+    public int subscriberCount(Long conversationId) {
+        AtomicInteger count = subscribers.get(conversationId);
+        return count != null ? count.get() : 0;
+    }
+
+    public int subscriptionCount() {
+        int total = 0;
+        for (AtomicInteger count : subscribers.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public int activeConversationCount() {
+        return subscribers.size();
+    }
+
+    private void trackScope(StompHeaderAccessor accessor, Principal user) {
+        Long conversationId = parseConversationScope(accessor.getDestination());
+        if (conversationId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null
+                || !(user instanceof ChatPrincipal principal)) {
+            return;
+        }
+        long userId = principal.getUser().getId();
+        scopes.computeIfAbsent(accessor.getSessionId(), key -> new SessionScopes(userId, principal))
+                .subscriptions.put(accessor.getSubscriptionId(), conversationId);
+        userSessions.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(accessor.getSessionId());
+    }
+
+    private void release(Long conversationId) {
+        subscribers.computeIfPresent(conversationId, (key, count) -> {
+            if (count.decrementAndGet() > 0) {
+                return count;
+            }
+            clusterRelay.updateInterest(conversationId, false);
+            if (clusterRelay.isClustered()) {
+                recentMessages.evict(conversationId);
+            }
+            return null;
+        });
+    }
+
+    private static final class SessionScopes {
+        private final long userId;
+        private final ChatPrincipal principal;
+        private final Map<String, Long> subscriptions = new ConcurrentHashMap<>();
+
+        private SessionScopes(long userId, ChatPrincipal principal) {
+            this.userId = userId;
+            this.principal = principal;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.chat.service;
+
+import com.example.chat.config.CredentialProperties;
+import com.example.chat.datasource.ReadYourWrites;
+import com.example.chat.model.ChatUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs password hashing and verification on a small bounded pool instead of request threads.
+ * When the queue is full, or a task is still short of hashing {@code chat.auth.credentials.max-queue-wait}
+ * after it was submitted, the returned future fails with {@link RejectedExecutionException}, so a
+ * login storm is shed at the door rather than tying up Tomcat threads and every core on requests
+ * whose callers have given up.
+ */
+@Service
+public class CredentialService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CredentialService.class);
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    public enum Stage {
+        QUEUE_WAIT("queue_wait"),
+        LOOKUP("lookup"),
+        HASH("hash"),
+        VERIFY("verify"),
+        REHASH("rehash"),
+        PERSIST("persist");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private enum Operation {
+        LOGIN, REGISTER
+    }
+
+    private enum Outcome {
+        SUCCEEDED, FAILED, REJECTED
+    }
+
+    private final ChatService chatService;
+    private final PasswordEncoder passwordEncoder;
+    private final CredentialProperties properties;
+    private final ReadYourWrites readYourWrites;
+    private final ThreadPoolExecutor executor;
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final Map<Operation, Map<Outcome, Counter>> outcomes = new EnumMap<>(Operation.class);
+    private final Counter rehashed;
+
+    public CredentialService(ChatService chatService,
+                             PasswordEncoder passwordEncoder,
+                             CredentialProperties properties,
+                             ReadYourWrites readYourWrites,
+                             MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+        this.readYourWrites = readYourWrites;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()), task -> {
+                    Thread thread = new Thread(task, "credentials-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("chat.auth.stage").tag("stage", stage.tag).register(meterRegistry));
+        }
+        for (Operation operation : Operation.values()) {
+            Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                counters.put(outcome, Counter.builder("chat.auth.requests")
+                        .tag("operation", operation.name().toLowerCase())
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            outcomes.put(operation, counters);
+        }
+        this.rehashed = Counter.builder("chat.auth.rehashed").register(meterRegistry);
+        Gauge.builder("chat.auth.queued", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("chat.auth.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public CompletableFuture<ChatUser> authenticate(Long id, String rawPassword) {
+        if (id == null || rawPassword == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("User id and password are required"));
+        }
+        long deadline = deadline();
+        return submit(Operation.LOGIN, deadline, () -> {
+            // A login right after registering must find the user even if the replica lags.
+            ChatUser user = time(Stage.LOOKUP, () -> readYourWrites.actingAs(id, () -> chatService.findUser(id)))
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
+            requireBefore(deadline);
+            if (!time(Stage.VERIFY, () -> passwordEncoder.matches(rawPassword, user.getPasswordHash()))) {
+                throw new IllegalArgumentException("Invalid credentials");
+            }
+            if (properties.isRehashOnLogin() && hasOtherCost(user.getPasswordHash()) && System.nanoTime() - deadline < 0) {
+                rehash(user, rawPassword);
+            }
+            return user;
+        });
+    }
+
+    public CompletableFuture<ChatUser> register(Long id, String rawPassword, String displayName) {
+        if (id == null || rawPassword == null || rawPassword.isBlank()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("User id and password are required"));
+        }
+        long deadline = deadline();
+        return submit(Operation.REGISTER, deadline, () -> {
+            if (time(Stage.LOOKUP, () -> chatService.findUser(id)).isPresent()) {
+                throw new IllegalArgumentException("User %d already exists".formatted(id));
+            }
+            requireBefore(deadline);
+            String passwordHash = time(Stage.HASH, () -> passwordEncoder.encode(rawPassword));
+            return time(Stage.PERSIST, () -> chatService.registerUser(id, passwordHash, displayName));
+        });
+    }
+
+    public long retryAfterSeconds() {
+        return Math.max(1, properties.getRetryAfter().toSeconds());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether a BCrypt hash was made with a cost other than the configured one. Unlike
+     * {@link PasswordEncoder#upgradeEncoding}, a cost that was lowered on purpose counts too.
+     */
+    private boolean hasOtherCost(String passwordHash) {
+        Matcher matcher = BCRYPT_COST.matcher(passwordHash);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != properties.getBcryptStrength();
+    }
+
+    private void rehash(ChatUser user, String rawPassword) {
+        String upgraded = time(Stage.REHASH, () -> passwordEncoder.encode(rawPassword));
+        try {
+            if (chatService.updatePasswordHash(user.getId(), user.getPasswordHash(), upgraded)) {
+                user.setPasswordHash(upgraded);
+                rehashed.increment();
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not store the rehashed password of user {}", user.getId(), ex);
+        }
+    }
+
+    private long deadline() {
+        return System.nanoTime() + properties.getMaxQueueWait().toNanos();
+    }
+
+    private static void requireBefore(long deadline) {
+        if (System.nanoTime() - deadline > 0) {
+            throw new RejectedExecutionException("Credential check waited too long");
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Operation operation, long deadline, Supplier<T> task) {
+        Map<Outcome, Counter> counters = outcomes.get(operation);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                stages.get(Stage.QUEUE_WAIT).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    requireBefore(deadline);
+                    result.complete(task.get());
+                    counters.get(Outcome.SUCCEEDED).increment();
+                } catch (RejectedExecutionException ex) {
+                    counters.get(Outcome.REJECTED).increment();
+                    result.completeExceptionally(ex);
+                } catch (RuntimeException ex) {
+                    counters.get(Outcome.FAILED).increment();
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            counters.get(Outcome.REJECTED).increment();
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    private <T> T time(Stage stage, Supplier<T> action) {
+        return stages.get(stage).record(action);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.chat.service;
+
+import com.example.chat.config.KnownConversationProperties;
+import com.example.chat.repository.ConversationMemberRepository;
+import com.example.chat.repository.ConversationRepository;
+import com.example.chat.repository.DirectConversationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Finds the direct conversation of two users, creating it on first contact with an id from
+ * {@link SnowflakeIdGenerator}. The pair is looked up in {@code direct_conversations}; once
+ * committed the mapping never changes, so it is cached and the send path normally skips the
+ * database entirely.
+ * <p>
+ * Direct chats used to take the Cantor pairing of the two user ids as their id, which
+ * overflows {@code long} for large ids. A pair without a mapping whose Cantor id names an
+ * existing conversation of exactly those two users adopts that conversation, so history
+ * written under the old scheme stays where it is.
+ */
+@Component
+public class DirectConversations {
+
+    private static final int MAX_ID_ATTEMPTS = 3;
+
+    private final DirectConversationRepository directRepository;
+    private final ConversationRepository conversationRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ConversationMembership membership;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<Pair, Long> conversations;
+
+    public DirectConversations(DirectConversationRepository directRepository,
+                               ConversationRepository conversationRepository,
+                               ConversationMemberRepository memberRepository,
+                               SnowflakeIdGenerator idGenerator,
+                               ConversationMembership membership,
+                               PlatformTransactionManager transactionManager,
+                               KnownConversationProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.directRepository = directRepository;
+        this.conversationRepository = conversationRepository;
+        this.memberRepository = memberRepository;
+        this.idGenerator = idGenerator;
+        this.membership = membership;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.conversations = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, conversations, "directConversations");
+    }
+
+    /** The id of the direct conversation of two users, committed before this returns. */
+    public long resolve(long firstUserId, long secondUserId) {
+        Pair pair = new Pair(Math.min(firstUserId, secondUserId), Math.max(firstUserId, secondUserId));
+        Long cached = conversations.getIfPresent(pair);
+        if (cached != null) {
+            return cached;
+        }
+        Long conversationId = transactionTemplate.execute(status -> {
+            Long existing = directRepository.findConversationId(pair.low, pair.high).orElse(null);
+            if (existing != null) {
+                return existing;
+            }
+            long candidate = adoptLegacy(pair);
+            if (candidate == 0) {
+                candidate = create(pair);
+            }
+            if (directRepository.insertIfAbsent(pair.low, pair.high, candidate) == 0) {
+                // Another node mapped the pair first; drop the conversation created here.
+                status.setRollbackOnly();
+                return directRepository.findConversationId(pair.low, pair.high)
+                        .orElseThrow(() -> new IllegalStateException("Direct conversation of %d and %d vanished".formatted(pair.low, pair.high)));
+            }
+            return candidate;
+        });
+        conversations.put(pair, conversationId);
+        // The members are known, so a replica that has not seen them yet is never asked.
+        membership.replace(conversationId, List.of(pair.low, pair.high));
+        return conversationId;
+    }
+
+    /** The Cantor-paired conversation of the pair if it exists, otherwise 0. */
+    private long adoptLegacy(Pair pair) {
+        long legacyId;
+        try {
+            long sum = Math.addExact(pair.low, pair.high);
+            legacyId = Math.addExact(Math.multiplyExact(sum, sum + 1) / 2, pair.high);
+        } catch (ArithmeticException ex) {
+            return 0;
+        }
+        List<Long> expected = pair.low == pair.high ? List.of(pair.low) : List.of(pair.low, pair.high);
+        return memberRepository.findUserIds(legacyId).equals(expected) ? legacyId : 0;
+    }
+
+    private long create(Pair pair) {
+        Instant now = Instant.now();
+        for (int attempt = 0; attempt < MAX_ID_ATTEMPTS; attempt++) {
+            long conversationId = idGenerator.nextId();
+            if (conversationRepository.insertIfAbsent(conversationId, "Direct chat " + pair.low + "-" + pair.high, now) > 0) {
+                conversationRepository.addParticipantIfAbsent(conversationId, pair.low);
+                conversationRepository.addParticipantIfAbsent(conversationId, pair.high);
+                return conversationId;
+            }
+        }
+        throw new IllegalStateException("Could not allocate a conversation id for users %d and %d".formatted(pair.low, pair.high));
+    }
+
+    private static final class Pair {
+        private final long low;
+        private final long high;
+
+        private Pair(long low, long high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pair other && low == other.low && high == other.high;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(low) * 31 + Long.hashCode(high);
+        }
+    }
+}
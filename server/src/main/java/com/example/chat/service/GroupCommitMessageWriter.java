@@ -0,0 +1,236 @@
+package com.example.chat.service;
+
+import com.example.chat.config.GroupCommitProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists messages either inline or, when group commit is enabled, through a bounded queue
+ * drained by a single writer thread that commits each batch in one transaction. A message
+ * without a recipient goes to a group conversation. Futures returned by {@link #submit}
+ * complete only after the message has been committed. With group commit they complete on a
+ * separate callback thread, batch by batch in commit order, so the stages callers chain onto
+ * them, such as broadcasts, neither hold up the next batch nor overtake each other. When that
+ * thread falls behind by {@code chat.group-commit.queue-capacity} batches, the writer waits.
+ */
+@Service
+public class GroupCommitMessageWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitMessageWriter.class);
+
+    private final ChatService chatService;
+    private final TransactionTemplate transactionTemplate;
+    private final GroupCommitProperties properties;
+    private final BlockingQueue<PendingMessage> queue;
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private ThreadPoolExecutor callbacks;
+
+    public GroupCommitMessageWriter(ChatService chatService,
+                                    PlatformTransactionManager transactionManager,
+                                    GroupCommitProperties properties) {
+        this.chatService = chatService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+    }
+
+    public CompletableFuture<MessageView> submit(Long conversationId, UserSummary sender, UserSummary recipient, String content) {
+        if (!properties.isEnabled()) {
+            try {
+                return CompletableFuture.completedFuture(persist(conversationId, sender, recipient, content));
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+
+        if (!running) {
+            return CompletableFuture.failedFuture(stopped());
+        }
+        PendingMessage pending = new PendingMessage(conversationId, sender, recipient, content);
+        try {
+            if (!queue.offer(pending, properties.getEnqueueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Message write queue is full"));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ex);
+        }
+        // stop() may have run while offer waited, after the writer's last drain. Whoever takes
+        // the entry out of the queue, this thread, the writer or stop(), completes its future.
+        if (!running && queue.remove(pending)) {
+            pending.future.completeExceptionally(stopped());
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        callbacks = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), task -> {
+                    Thread thread = new Thread(task, "message-group-commit-callbacks");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> {
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        task.run();
+                    }
+                });
+        writerThread = new Thread(this::drainLoop, "message-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Group commit enabled (batch size {}, max wait {})", properties.getBatchSize(), properties.getMaxWait());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+        callbacks.shutdown();
+        try {
+            callbacks.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        PendingMessage leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.future.completeExceptionally(stopped());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drainLoop() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long maxWaitNanos = properties.getMaxWait().toNanos();
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingMessage> batch) {
+        List<MessageView> views;
+        try {
+            views = transactionTemplate.execute(status -> {
+                // All inserts are queued before the first inbox update flushes them, so the
+                // whole batch reaches the database as one JDBC batch.
+                List<MessageView> persisted = new ArrayList<>(batch.size());
+                for (PendingMessage pending : batch) {
+                    persisted.add(chatService.insertMessage(pending.conversationId, pending.sender, pending.content));
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    chatService.recordMessage(persisted.get(i), batch.get(i).recipient);
+                }
+                return persisted;
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Group commit of {} messages failed, retrying individually", batch.size(), ex);
+            commitIndividually(batch);
+            return;
+        }
+        List<PendingMessage> committed = List.copyOf(batch);
+        callbacks.execute(() -> {
+            for (int i = 0; i < committed.size(); i++) {
+                committed.get(i).future.complete(views.get(i));
+            }
+        });
+    }
+
+    private void commitIndividually(List<PendingMessage> batch) {
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            try {
+                MessageView view = persist(pending.conversationId, pending.sender, pending.recipient, pending.content);
+                completions.add(() -> pending.future.complete(view));
+            } catch (RuntimeException ex) {
+                completions.add(() -> pending.future.completeExceptionally(ex));
+            }
+        }
+        callbacks.execute(() -> completions.forEach(Runnable::run));
+    }
+
+    private static IllegalStateException stopped() {
+        return new IllegalStateException("Message writer is stopped");
+    }
+
+    private MessageView persist(Long conversationId, UserSummary sender, UserSummary recipient, String content) {
+        return recipient != null
+                ? chatService.persistDirectMessage(conversationId, sender, recipient, content)
+                : chatService.persistGroupMessage(conversationId, sender, content);
+    }
+
+    private static final class PendingMessage {
+        private final Long conversationId;
+        private final UserSummary sender;
+        private final UserSummary recipient;
+        private final String content;
+        private final CompletableFuture<MessageView> future = new CompletableFuture<>();
+
+        private PendingMessage(Long conversationId, UserSummary sender, UserSummary recipient, String content) {
+            this.conversationId = conversationId;
+            this.sender = sender;
+            this.recipient = recipient;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.chat.service;
+
+import com.example.chat.cluster.ClusterRelay;
+import com.example.chat.cluster.MembershipListener;
+import com.example.chat.config.GroupProperties;
+import com.example.chat.datasource.ReadYourWrites;
+import com.example.chat.dto.GroupMemberPage;
+import com.example.chat.dto.GroupMemberView;
+import com.example.chat.dto.GroupView;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.model.Conversation;
+import com.example.chat.model.ConversationMember;
+import com.example.chat.model.ConversationMember.Role;
+import com.example.chat.repository.ChatUserRepository;
+import com.example.chat.repository.ConversationMemberRepository;
+import com.example.chat.repository.ConversationRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates groups and changes their membership. Members are rows of
+ * {@code conversation_participants} with a role; the owner is the only one who may add or
+ * remove others, and any member may leave. Once a change has committed, the member list it
+ * read back is installed in {@link ConversationMembership} on this node and the other nodes are
+ * told to reload theirs; a removed member's subscriptions are revoked on every node at the same
+ * time.
+ */
+@Service
+public class GroupService {
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final ChatUserRepository userRepository;
+    private final ConversationMembership membership;
+    private final ConversationSubscriptions subscriptions;
+    private final InboxService inbox;
+    private final GroupProperties properties;
+    private final ReadYourWrites readYourWrites;
+    private final ClusterRelay clusterRelay;
+
+    public GroupService(ConversationRepository conversationRepository,
+                        ConversationMemberRepository memberRepository,
+                        ChatUserRepository userRepository,
+                        ConversationMembership membership,
+                        ConversationSubscriptions subscriptions,
+                        InboxService inbox,
+                        GroupProperties properties,
+                        ReadYourWrites readYourWrites,
+                        ClusterRelay clusterRelay) {
+        this.conversationRepository = conversationRepository;
+        this.memberRepository = memberRepository;
+        this.userRepository = userRepository;
+        this.membership = membership;
+        this.subscriptions = subscriptions;
+        this.inbox = inbox;
+        this.properties = properties;
+        this.readYourWrites = readYourWrites;
+        this.clusterRelay = clusterRelay;
+        clusterRelay.setMembershipListener(new PeerMembershipChanges());
+    }
+
+    @Transactional
+    public GroupView createGroup(UserSummary owner, String title, Collection<Long> memberIds) {
+        if (title == null || title.isBlank() || title.length() > 120) {
+            throw new IllegalArgumentException("Group title must be 1 to 120 characters");
+        }
+        Set<Long> members = new LinkedHashSet<>();
+        members.add(owner.getId());
+        if (memberIds != null) {
+            memberIds.stream().filter(id -> id != null).forEach(members::add);
+        }
+        if (members.size() > properties.getMaxMembers()) {
+            throw new IllegalArgumentException("Groups have at most %d members".formatted(properties.getMaxMembers()));
+        }
+        requireUsers(members);
+
+        long conversationId = -conversationRepository.nextGroupSequenceValue();
+        Instant now = Instant.now();
+        conversationRepository.insertIfAbsent(conversationId, title.trim(), now);
+        for (Long userId : members) {
+            Role role = userId.equals(owner.getId()) ? Role.OWNER : Role.MEMBER;
+            memberRepository.insertIfAbsent(conversationId, userId, role.name(), now);
+        }
+        inbox.groupCreated(conversationId, now);
+        ChatService.afterCommit(() -> {
+            membership.invalidate(conversationId);
+            readYourWrites.recordWrite(owner.getId());
+        });
+        return new GroupView(conversationId, title.trim(), now, members.size());
+    }
+
+    @Transactional(readOnly = true)
+    public GroupView getGroup(UserSummary user, long conversationId) {
+        Conversation group = requireGroup(conversationId);
+        requireMember(user, conversationId);
+        return new GroupView(group.getId(), group.getTitle(), group.getCreatedAt(),
+                (int) memberRepository.countMembers(conversationId));
+    }
+
+    /** Members in ascending user id order, starting after {@code afterUserId}. */
+    @Transactional(readOnly = true)
+    public GroupMemberPage listMembers(UserSummary user, long conversationId, Long afterUserId, Integer limit) {
+        requireGroup(conversationId);
+        requireMember(user, conversationId);
+        int pageSize = resolvePageSize(limit);
+        List<GroupMemberView> members = memberRepository.findPage(conversationId,
+                afterUserId != null ? afterUserId : Long.MIN_VALUE, PageRequest.of(0, pageSize));
+        Long nextAfter = members.size() == pageSize ? members.get(members.size() - 1).getUserId() : null;
+        return new GroupMemberPage(members, nextAfter);
+    }
+
+    @Transactional
+    public GroupView addMembers(UserSummary user, long conversationId, Collection<Long> userIds) {
+        Conversation group = requireGroup(conversationId);
+        requireOwner(user, conversationId);
+        Set<Long> added = new LinkedHashSet<>();
+        if (userIds != null) {
+            userIds.stream().filter(id -> id != null).forEach(added::add);
+        }
+        requireUsers(added);
+        Instant now = Instant.now();
+        for (Long userId : added) {
+            if (memberRepository.insertIfAbsent(conversationId, userId, Role.MEMBER.name(), now) > 0) {
+                inbox.memberAdded(conversationId, userId);
+            }
+        }
+        long members = memberRepository.countMembers(conversationId);
+        if (members > properties.getMaxMembers()) {
+            throw new IllegalArgumentException("Groups have at most %d members".formatted(properties.getMaxMembers()));
+        }
+        ChatService.afterCommit(() -> {
+            membership.invalidate(conversationId);
+            clusterRelay.publishMembershipChange(conversationId, null);
+            readYourWrites.recordWrite(user.getId());
+        });
+        return new GroupView(group.getId(), group.getTitle(), group.getCreatedAt(), (int) members);
+    }
+
+    /** Removes a member; the owner may remove anyone else, other members only themselves. */
+    @Transactional
+    public void removeMember(UserSummary user, long conversationId, long memberId) {
+        requireGroup(conversationId);
+        Role role = requireMember(user, conversationId);
+        if (memberId != user.getId() && role != Role.OWNER) {
+            throw new SecurityException("Only the group owner can remove other members");
+        }
+        if (memberId == user.getId() && role == Role.OWNER) {
+            throw new IllegalArgumentException("The owner cannot leave the group");
+        }
+        if (memberRepository.deleteMember(conversationId, memberId) == 0) {
+            throw new IllegalArgumentException("User %d is not a member of group %d".formatted(memberId, conversationId));
+        }
+        inbox.memberRemoved(conversationId, memberId);
+        ChatService.afterCommit(() -> {
+            membership.invalidate(conversationId);
+            subscriptions.revoke(conversationId, memberId);
+            clusterRelay.publishMembershipChange(conversationId, memberId);
+            readYourWrites.recordWrite(user.getId());
+        });
+    }
+
+    private Conversation requireGroup(long conversationId) {
+        if (!Conversation.isGroup(conversationId)) {
+            throw new IllegalArgumentException("Conversation %d is not a group".formatted(conversationId));
+        }
+        return conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new IllegalArgumentException("Group %d not found".formatted(conversationId)));
+    }
+
+    private Role requireMember(UserSummary user, long conversationId) {
+        return memberRepository.findById(new ConversationMember.Key(conversationId, user.getId()))
+                .map(ConversationMember::getRole)
+                .orElseThrow(() -> new SecurityException("Not a member of group %d".formatted(conversationId)));
+    }
+
+    private void requireOwner(UserSummary user, long conversationId) {
+        if (requireMember(user, conversationId) != Role.OWNER) {
+            throw new SecurityException("Only the group owner can add members");
+        }
+    }
+
+    private void requireUsers(Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(userIds);
+        List<Long> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += 1000) {
+            userRepository.findExistingIds(ids.subList(from, Math.min(ids.size(), from + 1000))).forEach(missing::remove);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Unknown users: " + missing.stream().sorted().limit(10).toList());
+        }
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return properties.getDefaultMemberPageSize();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, properties.getMaxMemberPageSize());
+    }
+
+    /** Applies membership changes committed on other nodes to this node's cache and sessions. */
+    private final class PeerMembershipChanges implements MembershipListener {
+
+        @Override
+        public void membershipChanged(long conversationId, Long removedUserId) {
+            membership.invalidate(conversationId);
+            if (removedUserId != null) {
+                subscriptions.revoke(conversationId, removedUserId);
+            }
+        }
+
+        @Override
+        public void peerConnected(String nodeId) {
+            membership.invalidateGroups();
+            subscriptions.revokeUnless((conversationId, userId) ->
+                    !Conversation.isGroup(conversationId) || membership.isMember(conversationId, userId));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.chat.service;
+
+import com.example.chat.config.InboxProperties;
+import com.example.chat.datasource.ReadYourWrites;
+import com.example.chat.dto.InboxEntryView;
+import com.example.chat.dto.InboxPage;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessageView;
+import com.example.chat.model.Conversation;
+import com.example.chat.repository.InboxRepository;
+import com.example.chat.repository.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Maintains {@code inbox_entries}: one row per participant and conversation holding the newest
+ * message preview, its time and the participant's unread count. Direct chat rows are updated in
+ * the message's own transaction, and their part of an inbox page is a single range scan over
+ * {@code (user_id, last_activity_at, conversation_id)}.
+ * <p>
+ * Group rows are read markers instead: a group message only moves its sender's row, so the send
+ * transaction writes one row whatever the group's size. The activity, preview and unread count of
+ * a group are derived from {@code messages} when the inbox is read, which costs an index probe
+ * per group the user belongs to. Pages merge both kinds and are keyset-paginated by
+ * {@code (lastActivityAt, conversationId)}.
+ */
+@Service
+public class InboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(InboxService.class);
+    private static final int PREVIEW_COLUMN_LENGTH = 255;
+    private static final Instant END_OF_TIME = Instant.parse("9999-12-31T00:00:00Z");
+    private static final Comparator<InboxEntryView> NEWEST_FIRST = Comparator
+            .comparing(InboxEntryView::getLastActivityAt)
+            .thenComparing(InboxEntryView::getConversationId)
+            .reversed();
+
+    private final InboxRepository inboxRepository;
+    private final MessageRepository messageRepository;
+    private final InboxProperties properties;
+    private final ReadYourWrites readYourWrites;
+
+    public InboxService(InboxRepository inboxRepository,
+                        MessageRepository messageRepository,
+                        InboxProperties properties,
+                        ReadYourWrites readYourWrites) {
+        this.inboxRepository = inboxRepository;
+        this.messageRepository = messageRepository;
+        this.properties = properties;
+        this.readYourWrites = readYourWrites;
+    }
+
+    /**
+     * Called inside the transaction that inserted {@code view}. Rows are touched in user id
+     * order so two participants writing to each other at once cannot deadlock.
+     */
+    public void recordDirectMessage(MessageView view, Long recipientId) {
+        Long senderId = view.getSenderId();
+        String preview = preview(view.getContent());
+        if (senderId.equals(recipientId)) {
+            record(senderId, null, view, preview);
+            return;
+        }
+        if (senderId < recipientId) {
+            record(senderId, recipientId, view, preview);
+            record(recipientId, senderId, view, preview);
+        } else {
+            record(recipientId, senderId, view, preview);
+            record(senderId, recipientId, view, preview);
+        }
+    }
+
+    /**
+     * Called inside the transaction that inserted a group message: the sender has read it. The
+     * other members' rows are left alone and count it when their inbox is read.
+     */
+    public void recordGroupMessage(MessageView view) {
+        inboxRepository.advanceGroupEntry(view.getSenderId(), view.getConversationId(), view.getId(),
+                view.getSenderId(), view.getSentAt());
+    }
+
+    /** Called inside the transaction that created a group, once its members are inserted. */
+    public void groupCreated(Long conversationId, Instant createdAt) {
+        inboxRepository.insertGroupEntries(conversationId, createdAt);
+    }
+
+    /** Called inside the transaction that added {@code userId} to a group. */
+    public void memberAdded(Long conversationId, Long userId) {
+        if (inboxRepository.insertLatestIfAbsent(userId, conversationId, previewLength()) == 0) {
+            inboxRepository.insertGroupEntryIfAbsent(userId, conversationId, Instant.now());
+        }
+    }
+
+    /** Called inside the transaction that removed {@code userId} from a group. */
+    public void memberRemoved(Long conversationId, Long userId) {
+        inboxRepository.deleteEntry(userId, conversationId);
+    }
+
+    @Transactional(readOnly = true)
+    public InboxPage getInbox(Long userId, MessageCursor before, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize);
+        List<InboxEntryView> direct = before == null
+                ? inboxRepository.findLatestDirect(userId, page)
+                : inboxRepository.findDirectBefore(userId, before.getSentAt(), before.getId(), page);
+        List<InboxEntryView> groups = inboxRepository.findGroupsBefore(userId,
+                        before != null ? before.getSentAt() : END_OF_TIME,
+                        before != null ? before.getId() : Long.MAX_VALUE,
+                        previewLength(), pageSize).stream()
+                .map(InboxService::groupEntry)
+                .toList();
+        List<InboxEntryView> entries = Stream.concat(direct.stream(), groups.stream())
+                .sorted(NEWEST_FIRST)
+                .limit(pageSize)
+                .toList();
+        String nextCursor = null;
+        if (entries.size() == pageSize) {
+            InboxEntryView last = entries.get(entries.size() - 1);
+            nextCursor = new MessageCursor(last.getLastActivityAt(), last.getConversationId()).encode();
+        }
+        return new InboxPage(entries, nextCursor);
+    }
+
+    /**
+     * Marks a conversation read up to {@code lastReadMessageId}, or entirely when it is null.
+     * When newer messages arrived after the one the client showed, the unread count becomes the
+     * number of those messages from other participants.
+     */
+    @Transactional
+    public void markRead(Long userId, Long conversationId, Long lastReadMessageId) {
+        ChatService.afterCommit(() -> readYourWrites.recordWrite(userId));
+        if (Conversation.isGroup(conversationId)) {
+            markGroupRead(userId, conversationId, lastReadMessageId);
+            return;
+        }
+        if (lastReadMessageId == null) {
+            inboxRepository.setUnreadCount(userId, conversationId, 0);
+            return;
+        }
+        if (inboxRepository.markRead(userId, conversationId, lastReadMessageId) > 0) {
+            return;
+        }
+        long unread = messageRepository.findSentAt(conversationId, lastReadMessageId)
+                .map(sentAt -> messageRepository.countFromOthersAfter(conversationId, userId, sentAt, lastReadMessageId))
+                .orElse(0L);
+        inboxRepository.setUnreadCount(userId, conversationId, (int) Math.min(unread, Integer.MAX_VALUE));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (!properties.isBackfillOnStartup() || inboxRepository.countAtMostOne() > 0) {
+            return;
+        }
+        int created = inboxRepository.backfill(previewLength());
+        if (created > 0) {
+            log.info("Backfilled {} inbox entries from existing conversations", created);
+        }
+    }
+
+    /**
+     * Moves the member's row to the message read, or the newest one. A row already past it is
+     * left alone, so a late read request never brings back counted messages.
+     */
+    private void markGroupRead(Long userId, Long conversationId, Long lastReadMessageId) {
+        if (lastReadMessageId == null) {
+            messageRepository.findLatest(conversationId, PageRequest.of(0, 1)).stream().findFirst()
+                    .ifPresent(latest -> inboxRepository.advanceGroupEntry(userId, conversationId, latest.getId(),
+                            latest.getSenderId(), latest.getSentAt()));
+            return;
+        }
+        messageRepository.findById(lastReadMessageId)
+                .filter(message -> message.getConversation().getId().equals(conversationId))
+                .ifPresent(message -> inboxRepository.advanceGroupEntry(userId, conversationId, message.getId(),
+                        message.getSender().getId(), message.getSentAt()));
+    }
+
+    private static InboxEntryView groupEntry(Object[] row) {
+        return new InboxEntryView(((Number) row[0]).longValue(), (String) row[1], null, ((Number) row[2]).longValue(),
+                ((Number) row[3]).longValue(), (String) row[4], toInstant(row[5]),
+                (int) Math.min(((Number) row[6]).longValue(), Integer.MAX_VALUE));
+    }
+
+    /** Native queries return timestamps as whatever type the driver prefers. */
+    private static Instant toInstant(Object value) {
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        return (Instant) value;
+    }
+
+    private void record(Long userId, Long peerId, MessageView view, String preview) {
+        boolean ownMessage = userId.equals(view.getSenderId());
+        Long conversationId = view.getConversationId();
+        Instant sentAt = view.getSentAt();
+        if (inboxRepository.recordMessage(userId, conversationId, view.getId(), view.getSenderId(), preview, sentAt, ownMessage) > 0) {
+            return;
+        }
+        if (inboxRepository.insertIfAbsent(userId, conversationId, peerId, view.getId(), view.getSenderId(), preview, sentAt, ownMessage) == 0) {
+            inboxRepository.recordMessage(userId, conversationId, view.getId(), view.getSenderId(), preview, sentAt, ownMessage);
+        }
+    }
+
+    private String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        int length = previewLength();
+        if (content.length() <= length) {
+            return content;
+        }
+        return content.substring(0, Character.isHighSurrogate(content.charAt(length - 1)) ? length - 1 : length);
+    }
+
+    private int previewLength() {
+        return Math.min(properties.getPreviewLength(), PREVIEW_COLUMN_LENGTH);
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return properties.getDefaultPageSize();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, properties.getMaxPageSize());
+    }
+}
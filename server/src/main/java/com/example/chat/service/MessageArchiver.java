@@ -0,0 +1,99 @@
+package com.example.chat.service;
+
+import com.example.chat.config.ArchiveProperties;
+import com.example.chat.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves messages older than the retention period from {@code messages} to
+ * {@code historical_messages}, oldest first, in bounded batches that each commit on their own.
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED}, so archivers on several nodes split
+ * the work instead of colliding.
+ */
+@Component
+public class MessageArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchiver.class);
+
+    private final MessageRepository messageRepository;
+    private final RecentMessageCache recentMessages;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchiveProperties properties;
+    private final Counter archived;
+    private final Timer batchTimer;
+
+    public MessageArchiver(MessageRepository messageRepository,
+                           RecentMessageCache recentMessages,
+                           PlatformTransactionManager transactionManager,
+                           ArchiveProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.recentMessages = recentMessages;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.archived = Counter.builder("chat.archive.messages").register(meterRegistry);
+        this.batchTimer = Timer.builder("chat.archive.batch").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.archive.run-interval:600000}", initialDelayString = "${chat.archive.initial-delay:60000}")
+    public void archiveExpired() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(properties.getRetention());
+        long total = 0;
+        for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+            int moved;
+            try {
+                moved = batchTimer.record(() -> archiveBatch(cutoff));
+            } catch (RuntimeException ex) {
+                log.warn("Message archival batch failed; will retry on the next run", ex);
+                break;
+            }
+            total += moved;
+            if (moved < properties.getBatchSize()) {
+                break;
+            }
+            pause();
+        }
+        if (total > 0) {
+            log.info("Archived {} messages sent before {}", total, cutoff);
+        }
+    }
+
+    private int archiveBatch(Instant cutoff) {
+        List<Long> conversationIds = new ArrayList<>();
+        Integer moved = transactionTemplate.execute(status -> {
+            List<Long> ids = messageRepository.lockArchivableIds(cutoff, properties.getBatchSize());
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            conversationIds.addAll(messageRepository.findConversationIds(ids));
+            messageRepository.copyToHistory(ids, Instant.now());
+            return messageRepository.deleteByIds(ids);
+        });
+        conversationIds.forEach(recentMessages::evict);
+        archived.increment(moved != null ? moved : 0);
+        return moved != null ? moved : 0;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getPauseBetweenBatches().toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.chat.service;
+
+import com.example.chat.cluster.ClusterRelay;
+import com.example.chat.config.ReplayProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.monitoring.ChatMetrics;
+import com.example.chat.monitoring.ChatMetrics.Stage;
+import com.example.chat.monitoring.MessageRateTracker;
+import com.example.chat.websocket.BinaryEncodingNegotiator;
+import com.example.chat.websocket.CborCodec;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class MessageBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterRelay clusterRelay;
+    private final RecentMessageCache recentMessages;
+    private final BinaryEncodingNegotiator binaryEncoding;
+    private final CborCodec cborCodec;
+    private final ChatMetrics metrics;
+    private final MessageRateTracker rates;
+    private final ConversationLocks locks;
+    private final ChatService chatService;
+    private final ReplayProperties replayProperties;
+
+    public MessageBroadcaster(SimpMessagingTemplate messagingTemplate,
+                              ClusterRelay clusterRelay,
+                              RecentMessageCache recentMessages,
+                              BinaryEncodingNegotiator binaryEncoding,
+                              CborCodec cborCodec,
+                              ChatMetrics metrics,
+                              MessageRateTracker rates,
+                              ConversationLocks locks,
+                              ChatService chatService,
+                              ReplayProperties replayProperties) {
+        this.messagingTemplate = messagingTemplate;
+        this.clusterRelay = clusterRelay;
+        this.recentMessages = recentMessages;
+        this.binaryEncoding = binaryEncoding;
+        this.cborCodec = cborCodec;
+        this.metrics = metrics;
+        this.rates = rates;
+        this.locks = locks;
+        this.chatService = chatService;
+        this.replayProperties = replayProperties;
+        clusterRelay.setListener(this::deliverFromPeer);
+        clusterRelay.setReplaySource(this::missedFromPeers);
+    }
+
+    public void broadcast(MessageView view) {
+        metrics.time(Stage.BROADCAST, () -> {
+            deliverLocally(view);
+            clusterRelay.publish(view);
+        });
+    }
+
+    private void deliverFromPeer(MessageView view) {
+        recentMessages.append(view);
+        deliverLocally(view);
+    }
+
+    /**
+     * Messages peers may not have forwarded, for the relay to deliver once they acknowledge
+     * interest. The cached tail may be missing the same messages, so it is dropped and reloaded
+     * on the next read.
+     */
+    private List<MessageView> missedFromPeers(Long conversationId, Instant since) {
+        recentMessages.evict(conversationId);
+        return chatService.findSentAfter(conversationId, since, replayProperties.getMaxMessages());
+    }
+
+    private void deliverLocally(MessageView view) {
+        rates.record(view.getConversationId());
+        ReentrantLock lock = locks.forConversation(view.getConversationId());
+        lock.lock();
+        try {
+            locks.recordDelivery(view.getConversationId());
+            send(view);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(MessageView view) {
+        String destination = ConversationSubscriptions.TOPIC_PREFIX + view.getConversationId();
+        if (!binaryEncoding.hasBinarySessions()) {
+            messagingTemplate.convertAndSend(destination, view);
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setHeader(BinaryEncodingNegotiator.CBOR_PAYLOAD_HEADER, cborCodec.encode(view));
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSend(destination, view, headers.getMessageHeaders());
+    }
+}
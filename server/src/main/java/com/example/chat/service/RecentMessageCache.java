@@ -0,0 +1,316 @@
+package com.example.chat.service;
+
+import com.example.chat.config.RecentMessageCacheProperties;
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessageView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the newest messages of recently read conversations in memory. A conversation is only
+ * cached after a reader has loaded its tail from the database; writes are appended to buffers
+ * that already exist (including ones still loading), so a cached tail is never missing a
+ * committed message. On a clustered node only conversations accepted by {@link #setCacheable}
+ * are held, since messages written on other nodes only arrive here for those.
+ */
+@Component
+public class RecentMessageCache {
+
+    private static final Comparator<MessageView> ORDER = Comparator
+            .comparing(MessageView::getSentAt)
+            .thenComparing(MessageView::getId);
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final RecentMessageCacheProperties properties;
+    private final Map<Long, Buffer> buffers = new LinkedHashMap<>(256, 0.75f, true);
+    private final Object lock = new Object();
+    private long totalBytes;
+    private volatile Predicate<Long> cacheable = conversationId -> true;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter idleEvictions;
+
+    public RecentMessageCache(RecentMessageCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = Counter.builder("chat.history.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.history.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("chat.history.cache.evictions").tag("cause", "size").register(meterRegistry);
+        this.idleEvictions = Counter.builder("chat.history.cache.evictions").tag("cause", "idle").register(meterRegistry);
+        Gauge.builder("chat.history.cache.conversations", this, RecentMessageCache::size).register(meterRegistry);
+        Gauge.builder("chat.history.cache.bytes", this, RecentMessageCache::estimatedBytes).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /** Restricts the cache to conversations for which this node receives every message. */
+    public void setCacheable(Predicate<Long> cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    public List<MessageView> getLatest(Long conversationId, int limit, IntFunction<List<MessageView>> loader) {
+        int capacity = Math.max(limit, properties.getMessagesPerConversation());
+        if (!usable(conversationId)) {
+            return loader.apply(limit);
+        }
+
+        Buffer buffer;
+        synchronized (lock) {
+            buffer = buffers.get(conversationId);
+            if (buffer != null && buffer.loaded && (buffer.complete || buffer.messages.size() >= limit)) {
+                hits.increment();
+                buffer.touch();
+                return tail(buffer.messages, limit);
+            }
+            misses.increment();
+            if (buffer == null) {
+                buffer = new Buffer();
+                buffers.put(conversationId, buffer);
+            }
+        }
+
+        List<MessageView> loaded;
+        try {
+            loaded = loader.apply(capacity);
+        } catch (RuntimeException ex) {
+            synchronized (lock) {
+                if (buffers.get(conversationId) == buffer) {
+                    evict(conversationId);
+                }
+            }
+            throw ex;
+        }
+        synchronized (lock) {
+            if (buffers.get(conversationId) == buffer) {
+                buffer.merge(loaded, loaded.size() < capacity, properties.getMessagesPerConversation());
+                enforceBudget();
+            }
+        }
+        List<MessageView> sorted = new ArrayList<>(loaded);
+        sorted.sort(ORDER);
+        return tail(sorted, limit);
+    }
+
+    public Optional<List<MessageView>> getBefore(Long conversationId, MessageCursor cursor, int limit) {
+        if (!usable(conversationId)) {
+            return Optional.empty();
+        }
+        synchronized (lock) {
+            Buffer buffer = buffers.get(conversationId);
+            if (buffer == null || !buffer.loaded) {
+                misses.increment();
+                return Optional.empty();
+            }
+            List<MessageView> older = new ArrayList<>();
+            for (MessageView view : buffer.messages) {
+                if (compare(view, cursor) < 0) {
+                    older.add(view);
+                }
+            }
+            if (older.size() < limit && !buffer.complete) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            buffer.touch();
+            return Optional.of(tail(older, limit));
+        }
+    }
+
+    public Optional<List<MessageView>> getAfter(Long conversationId, MessageCursor cursor, int limit) {
+        if (!usable(conversationId)) {
+            return Optional.empty();
+        }
+        synchronized (lock) {
+            Buffer buffer = buffers.get(conversationId);
+            if (buffer == null || !buffer.loaded || buffer.messages.isEmpty()
+                    || (!buffer.complete && compare(buffer.messages.get(0), cursor) > 0)) {
+                misses.increment();
+                return Optional.empty();
+            }
+            List<MessageView> newer = new ArrayList<>(limit);
+            for (MessageView view : buffer.messages) {
+                if (compare(view, cursor) > 0) {
+                    newer.add(view);
+                    if (newer.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            hits.increment();
+            buffer.touch();
+            return Optional.of(newer);
+        }
+    }
+
+    public Optional<MessageCursor> findCursor(Long conversationId, Long messageId) {
+        if (!usable(conversationId)) {
+            return Optional.empty();
+        }
+        synchronized (lock) {
+            Buffer buffer = buffers.get(conversationId);
+            if (buffer == null || !buffer.loaded) {
+                return Optional.empty();
+            }
+            for (int i = buffer.messages.size() - 1; i >= 0; i--) {
+                MessageView view = buffer.messages.get(i);
+                if (view.getId().equals(messageId)) {
+                    return Optional.of(MessageCursor.of(view));
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    public void append(MessageView view) {
+        if (!usable(view.getConversationId())) {
+            return;
+        }
+        synchronized (lock) {
+            Buffer buffer = buffers.get(view.getConversationId());
+            if (buffer == null) {
+                return;
+            }
+            buffer.add(view, properties.getMessagesPerConversation());
+            enforceBudget();
+        }
+    }
+
+    public void evict(Long conversationId) {
+        synchronized (lock) {
+            Buffer removed = buffers.remove(conversationId);
+            if (removed != null) {
+                totalBytes -= removed.bytes;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.cache.recent-messages.sweep-interval:60000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        synchronized (lock) {
+            Iterator<Buffer> iterator = buffers.values().iterator();
+            while (iterator.hasNext()) {
+                Buffer buffer = iterator.next();
+                if (buffer.lastAccessNanos - cutoff < 0) {
+                    totalBytes -= buffer.bytes;
+                    iterator.remove();
+                    idleEvictions.increment();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return buffers.size();
+        }
+    }
+
+    public long estimatedBytes() {
+        synchronized (lock) {
+            return totalBytes;
+        }
+    }
+
+    private boolean usable(Long conversationId) {
+        return properties.isEnabled() && cacheable.test(conversationId);
+    }
+
+    private void enforceBudget() {
+        long budget = properties.getMaxMemory().toBytes();
+        Iterator<Buffer> iterator = buffers.values().iterator();
+        while (totalBytes > budget && iterator.hasNext()) {
+            Buffer eldest = iterator.next();
+            totalBytes -= eldest.bytes;
+            iterator.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    private static int compare(MessageView view, MessageCursor cursor) {
+        int bySentAt = view.getSentAt().compareTo(cursor.getSentAt());
+        return bySentAt != 0 ? bySentAt : Long.compare(view.getId(), cursor.getId());
+    }
+
+    private static List<MessageView> tail(List<MessageView> messages, int limit) {
+        int from = Math.max(0, messages.size() - limit);
+        return List.copyOf(messages.subList(from, messages.size()));
+    }
+
+    private static long estimateBytes(MessageView view) {
+        long chars = (view.getContent() != null ? view.getContent().length() : 0)
+                + (view.getSenderName() != null ? view.getSenderName().length() : 0);
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    private final class Buffer {
+        private final List<MessageView> messages = new ArrayList<>();
+        private boolean loaded;
+        private boolean complete;
+        private long bytes;
+        private long lastAccessNanos = System.nanoTime();
+
+        private void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+
+        private void add(MessageView view, int capacity) {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (messages.get(i).getId().equals(view.getId())) {
+                    return;
+                }
+                if (ORDER.compare(messages.get(i), view) < 0) {
+                    insert(i + 1, view);
+                    trim(capacity);
+                    return;
+                }
+            }
+            insert(0, view);
+            trim(capacity);
+        }
+
+        private void merge(List<MessageView> loadedTail, boolean wholeConversation, int capacity) {
+            for (MessageView view : loadedTail) {
+                add(view, Integer.MAX_VALUE);
+            }
+            loaded = true;
+            complete = wholeConversation;
+            trim(capacity);
+            touch();
+        }
+
+        private void insert(int index, MessageView view) {
+            messages.add(index, view);
+            long size = estimateBytes(view);
+            bytes += size;
+            totalBytes += size;
+        }
+
+        private void trim(int capacity) {
+            while (messages.size() > capacity) {
+                long size = estimateBytes(messages.remove(0));
+                bytes -= size;
+                totalBytes -= size;
+                complete = false;
+            }
+        }
+    }
+}
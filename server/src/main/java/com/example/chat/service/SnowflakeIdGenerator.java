@@ -0,0 +1,82 @@
+package com.example.chat.service;
+
+import com.example.chat.config.IdGeneratorProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues ids for messages and direct conversations without a database round trip. An id is
+ * {@code millis since epoch (41 bits) | node id (6 bits) | sequence (6 bits)}, 53 bits in all,
+ * so ids sort by creation time across nodes and stay exact as JavaScript numbers.
+ * <p>
+ * The last issued id lives in one {@link AtomicLong} and callers race with compare-and-set, so
+ * no thread ever blocks. When the clock falls behind the last issued timestamp, after an NTP
+ * step for example, ids keep counting from that timestamp rather than going back. When the 64
+ * ids of a millisecond are used up, the next millisecond is borrowed; the wall clock catches
+ * up as soon as the burst ends.
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 6;
+    private static final int TIMESTAMP_BITS = 41;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    private final Clock clock;
+    private final long epochMillis;
+    private final long nodeBits;
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(IdGeneratorProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    SnowflakeIdGenerator(IdGeneratorProperties properties, Clock clock) {
+        int nodeId = properties.getNodeId() != null ? properties.getNodeId() : 0;
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("chat.ids.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.clock = clock;
+        this.epochMillis = properties.getEpoch().toEpochMilli();
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long previousTimestamp = previous >>> TIMESTAMP_SHIFT;
+            long now = clock.millis() - epochMillis;
+            if (now < 0) {
+                throw new IllegalStateException("Id clock is before chat.ids.epoch");
+            }
+            long timestamp;
+            long sequence;
+            if (now > previousTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                timestamp = previousTimestamp;
+                sequence = (previous & MAX_SEQUENCE) + 1;
+                if (sequence > MAX_SEQUENCE) {
+                    timestamp++;
+                    sequence = 0;
+                }
+            }
+            if (timestamp > MAX_TIMESTAMP) {
+                throw new IllegalStateException("Id clock is outside the range of chat.ids.epoch");
+            }
+            long next = (timestamp << TIMESTAMP_SHIFT) | nodeBits | sequence;
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+}
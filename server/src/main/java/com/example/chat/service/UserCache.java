@@ -0,0 +1,34 @@
+package com.example.chat.service;
+
+import com.example.chat.config.UserCacheProperties;
+import com.example.chat.dto.UserSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+@Component
+public class UserCache {
+
+    private final Cache<Long, UserSummary> users;
+
+    public UserCache(UserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
+
+    public UserSummary get(Long id, Function<Long, UserSummary> loader) {
+        return users.get(id, loader);
+    }
+
+    public void invalidate(Long id) {
+        users.invalidate(id);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.chat.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets native WebSocket clients opt into CBOR by sending {@code accept-content-type:application/cbor}
+ * on CONNECT. Outbound MESSAGE frames for those sessions are re-encoded here; broadcasts that
+ * already carry a pre-encoded body in {@link #CBOR_PAYLOAD_HEADER} are not encoded again.
+ */
+@Component
+public class BinaryEncodingNegotiator {
+
+    public static final String ACCEPT_HEADER = "accept-content-type";
+    public static final String CBOR_PAYLOAD_HEADER = "chat.cborPayload";
+    static final String BINARY_CAPABLE_ATTRIBUTE = "chat.binaryCapable";
+
+    private final CborCodec codec;
+    private final ObjectMapper jsonMapper;
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+
+    public BinaryEncodingNegotiator(CborCodec codec, ObjectMapper jsonMapper) {
+        this.codec = codec;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public boolean isBinary(String sessionId) {
+        return sessionId != null && binarySessions.contains(sessionId);
+    }
+
+    public boolean hasBinarySessions() {
+        return !binarySessions.isEmpty();
+    }
+
+    public int binarySessionCount() {
+        return binarySessions.size();
+    }
+
+    public ChannelInterceptor inboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+                    return message;
+                }
+                String accept = accessor.getFirstNativeHeader(ACCEPT_HEADER);
+                Map<String, Object> attributes = accessor.getSessionAttributes();
+                if (accept != null && attributes != null && Boolean.TRUE.equals(attributes.get(BINARY_CAPABLE_ATTRIBUTE))
+                        && MimeType.valueOf(accept).isCompatibleWith(CborCodec.APPLICATION_CBOR)) {
+                    binarySessions.add(accessor.getSessionId());
+                }
+                return message;
+            }
+        };
+    }
+
+    public ChannelInterceptor outboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                if (accessor.getMessageType() != SimpMessageType.MESSAGE || !isBinary(accessor.getSessionId())) {
+                    return message;
+                }
+                byte[] body = toCbor(message);
+                if (body == null) {
+                    return message;
+                }
+                SimpMessageHeaderAccessor rewritten = SimpMessageHeaderAccessor.wrap(message);
+                rewritten.removeHeader(CBOR_PAYLOAD_HEADER);
+                rewritten.setContentType(CborCodec.APPLICATION_CBOR);
+                return MessageBuilder.createMessage(body, rewritten.getMessageHeaders());
+            }
+        };
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        binarySessions.remove(event.getSessionId());
+    }
+
+    private byte[] toCbor(Message<?> message) {
+        Object preEncoded = message.getHeaders().get(CBOR_PAYLOAD_HEADER);
+        if (preEncoded instanceof byte[] bytes) {
+            return bytes;
+        }
+        MimeType contentType = SimpMessageHeaderAccessor.wrap(message).getContentType();
+        if (!(message.getPayload() instanceof byte[] json) || contentType == null
+                || !contentType.isCompatibleWith(MimeType.valueOf("application/json"))) {
+            return null;
+        }
+        try {
+            return codec.encode(jsonMapper.readValue(json, JsonNode.class));
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+}
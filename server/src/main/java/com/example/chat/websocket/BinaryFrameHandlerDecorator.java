@@ -0,0 +1,45 @@
+package com.example.chat.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+
+/**
+ * Sends STOMP frames as binary WebSocket messages to sessions that negotiated CBOR; Spring only
+ * uses binary frames for octet-stream bodies and would otherwise push CBOR through a text frame.
+ */
+public class BinaryFrameHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final BinaryEncodingNegotiator negotiator;
+
+    public BinaryFrameHandlerDecorator(WebSocketHandler delegate, BinaryEncodingNegotiator negotiator) {
+        super(delegate);
+        this.negotiator = negotiator;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        if (WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession) {
+            super.afterConnectionEstablished(session);
+            return;
+        }
+        session.getAttributes().put(BinaryEncodingNegotiator.BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE);
+        super.afterConnectionEstablished(new WebSocketSessionDecorator(session) {
+            @Override
+            public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                if (message instanceof TextMessage text && negotiator.isBinary(getId())) {
+                    super.sendMessage(new BinaryMessage(text.asBytes(), text.isLast()));
+                    return;
+                }
+                super.sendMessage(message);
+            }
+        });
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.chat.websocket;
+
+import com.example.chat.config.OutboundQueueProperties.OverflowPolicy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives each WebSocket session its own bounded outbound queue. Senders only enqueue; a flush
+ * task on the registry's executor performs the blocking socket writes, so a slow client can
+ * never hold up the broker or the outbound channel. At most one flush per session is scheduled
+ * at a time, and it yields its thread after {@value #FLUSH_BATCH} messages so that busy sessions
+ * take turns on the shared pool. A write that outlives the send time limit gets the session
+ * closed by the registry's watchdog. When the queue exceeds its message or byte bound the
+ * session's overflow policy decides what happens to the backlog.
+ */
+public class BoundedOutboundSession extends WebSocketSessionDecorator {
+
+    static final String RESYNC_HEADER = "resync";
+
+    static final byte[] RESYNC_BODY = "{\"resync\":true}".getBytes(StandardCharsets.UTF_8);
+    static final int FLUSH_BATCH = 64;
+    private static final AtomicLong RESYNC_SEQUENCE = new AtomicLong();
+
+    private final OutboundQueueRegistry registry;
+    private final OverflowPolicy policy;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final long sendTimeLimitNanos;
+
+    private final Object lock = new Object();
+    private final Deque<WebSocketMessage<?>> queue = new ArrayDeque<>();
+    private long queuedBytes;
+    private long dropped;
+    private long resyncs;
+    private long writeStartedNanos;
+    private boolean stalled;
+    private boolean flushScheduled;
+    private boolean closing;
+
+    BoundedOutboundSession(WebSocketSession delegate, OutboundQueueRegistry registry, OverflowPolicy policy,
+                           int maxMessages, long maxBytes, long sendTimeLimitNanos) {
+        super(delegate);
+        this.registry = registry;
+        this.policy = policy;
+        this.maxMessages = Math.max(1, maxMessages);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.sendTimeLimitNanos = sendTimeLimitNanos;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        boolean schedule;
+        synchronized (lock) {
+            if (closing) {
+                return;
+            }
+            enqueue(message);
+            if (queue.size() > maxMessages || queuedBytes > maxBytes) {
+                overflow();
+            }
+            schedule = !closing && !flushScheduled && !queue.isEmpty();
+            if (schedule) {
+                flushScheduled = true;
+            }
+        }
+        if (schedule) {
+            registry.flushExecutor().execute(this::flush);
+        }
+    }
+
+    public int queuedMessages() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public long queuedBytes() {
+        synchronized (lock) {
+            return queuedBytes;
+        }
+    }
+
+    public long droppedMessages() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+
+    public long resyncsSent() {
+        synchronized (lock) {
+            return resyncs;
+        }
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Closes the session if its current write started more than the send time limit before
+     * {@code now}. Returns true the first time a write is found stalled; the registry then lends
+     * the pool a thread until {@link #flush} reports that write as returned.
+     */
+    boolean expireStalledWrite(long now) {
+        synchronized (lock) {
+            if (writeStartedNanos == 0 || stalled || now - writeStartedNanos <= sendTimeLimitNanos) {
+                return false;
+            }
+            stalled = true;
+            if (!closing) {
+                disconnect();
+            }
+            return true;
+        }
+    }
+
+    void discard() {
+        synchronized (lock) {
+            closing = true;
+            queue.clear();
+            queuedBytes = 0;
+        }
+    }
+
+    private void flush() {
+        for (int sent = 0; ; sent++) {
+            WebSocketMessage<?> next;
+            synchronized (lock) {
+                if (queue.isEmpty() || closing) {
+                    flushScheduled = false;
+                    return;
+                }
+                if (sent == FLUSH_BATCH) {
+                    break;
+                }
+                next = queue.pollFirst();
+                queuedBytes -= next.getPayloadLength();
+                writeStartedNanos = System.nanoTime();
+            }
+            boolean failed = false;
+            try {
+                getDelegate().sendMessage(next);
+            } catch (IOException | RuntimeException ex) {
+                failed = true;
+            }
+            boolean wasStalled;
+            synchronized (lock) {
+                writeStartedNanos = 0;
+                wasStalled = stalled;
+                stalled = false;
+                if (failed) {
+                    flushScheduled = false;
+                    if (!closing) {
+                        disconnect();
+                    }
+                }
+            }
+            if (wasStalled) {
+                registry.releaseStalledWrite();
+            }
+            if (failed) {
+                return;
+            }
+        }
+        registry.flushExecutor().execute(this::flush);
+    }
+
+    private void enqueue(WebSocketMessage<?> message) {
+        queue.addLast(message);
+        queuedBytes += message.getPayloadLength();
+    }
+
+    private void overflow() {
+        switch (policy) {
+            case DROP_OLDEST -> {
+                while (queue.size() > 1 && (queue.size() > maxMessages || queuedBytes > maxBytes)) {
+                    WebSocketMessage<?> oldest = queue.pollFirst();
+                    queuedBytes -= oldest.getPayloadLength();
+                    dropped++;
+                    registry.recordDrop(policy, 1);
+                }
+            }
+            case DISCONNECT -> {
+                int backlog = queue.size();
+                dropped += backlog;
+                registry.recordDrop(policy, backlog);
+                disconnect();
+            }
+            case RESYNC -> resync();
+        }
+    }
+
+    /**
+     * Drops the whole backlog and replaces it with one marker per affected subscription, telling
+     * the client to refetch history for that destination instead of receiving a stale flood.
+     * The marker is encoded with the session's negotiated codec.
+     */
+    private void resync() {
+        Map<String, String> destinations = new LinkedHashMap<>();
+        boolean binary = false;
+        StompDecoder decoder = new StompDecoder();
+        for (WebSocketMessage<?> pending : queue) {
+            binary |= pending instanceof BinaryMessage;
+            collectDestinations(decoder, pending, destinations);
+        }
+        int backlog = queue.size();
+        queue.clear();
+        queuedBytes = 0;
+        dropped += backlog;
+        registry.recordDrop(policy, backlog);
+
+        boolean cbor = registry.isCbor(getId());
+        byte[] body = cbor ? registry.cborResyncBody() : RESYNC_BODY;
+        StompEncoder encoder = new StompEncoder();
+        for (Map.Entry<String, String> entry : destinations.entrySet()) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setSubscriptionId(entry.getKey());
+            accessor.setDestination(entry.getValue());
+            accessor.setMessageId("resync-" + RESYNC_SEQUENCE.incrementAndGet());
+            accessor.setContentType(cbor ? CborCodec.APPLICATION_CBOR : MimeTypeUtils.APPLICATION_JSON);
+            accessor.setNativeHeader(RESYNC_HEADER, "true");
+            byte[] frame = encoder.encode(accessor.getMessageHeaders(), body);
+            enqueue(binary || cbor ? new BinaryMessage(frame) : new TextMessage(frame));
+            resyncs++;
+        }
+        registry.recordResyncs(destinations.size());
+    }
+
+    private static void collectDestinations(StompDecoder decoder, WebSocketMessage<?> pending, Map<String, String> destinations) {
+        ByteBuffer payload;
+        if (pending instanceof TextMessage text) {
+            payload = ByteBuffer.wrap(text.asBytes());
+        } else if (pending instanceof BinaryMessage binary) {
+            payload = binary.getPayload().duplicate();
+        } else {
+            return;
+        }
+        List<Message<byte[]>> frames;
+        try {
+            frames = decoder.decode(payload);
+        } catch (RuntimeException ex) {
+            return;
+        }
+        for (Message<byte[]> frame : frames) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+            String subscription = accessor.getFirstNativeHeader(StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER);
+            String destination = accessor.getFirstNativeHeader(StompHeaderAccessor.STOMP_DESTINATION_HEADER);
+            if (accessor.getCommand() == StompCommand.MESSAGE && subscription != null && destination != null) {
+                destinations.putIfAbsent(subscription, destination);
+            }
+        }
+    }
+
+    private void disconnect() {
+        closing = true;
+        queue.clear();
+        queuedBytes = 0;
+        registry.recordDisconnect();
+        registry.closeExecutor().execute(() -> {
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ignored) {
+            }
+        });
+    }
+}
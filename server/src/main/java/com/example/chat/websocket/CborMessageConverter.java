@@ -0,0 +1,41 @@
+package com.example.chat.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+
+import java.io.IOException;
+
+public class CborMessageConverter extends AbstractMessageConverter {
+
+    private final CborCodec codec;
+
+    public CborMessageConverter(CborCodec codec) {
+        super(CborCodec.APPLICATION_CBOR);
+        this.codec = codec;
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] bytes)) {
+            return null;
+        }
+        try {
+            return codec.decode(bytes, targetClass);
+        } catch (IOException ex) {
+            throw new MessageConversionException(message, "Could not read CBOR payload: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return codec.encode(payload);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.chat.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+public class OutboundQueueHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final OutboundQueueRegistry registry;
+
+    public OutboundQueueHandlerDecorator(WebSocketHandler delegate, OutboundQueueRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        super.afterConnectionEstablished(registry.register(session));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        registry.unregister(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.chat.websocket;
+
+import com.example.chat.config.OutboundQueueProperties;
+import com.example.chat.config.OutboundQueueProperties.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks every session's {@link BoundedOutboundSession} and owns the executor that flushes them.
+ * The executor has {@code chat.outbound.flush-threads} threads, and its task queue holds at most
+ * one flush per session. A watchdog enforces {@code chat.outbound.send-time-limit} on every
+ * write: a session whose write runs past it is closed, and the pool grows by one thread until
+ * that write returns, so stalled clients never take flush threads away from healthy ones.
+ * Closes run on their own threads for the same reason.
+ * <p>
+ * Node-wide gauges sum the queues; per-session depth and drop counts are available through
+ * {@link #snapshot()} rather than as meters, to keep session ids out of metric tags.
+ */
+@Component
+public class OutboundQueueRegistry implements DisposableBean {
+
+    private final OutboundQueueProperties properties;
+    private final Map<String, BoundedOutboundSession> sessions = new ConcurrentHashMap<>();
+    private final BinaryEncodingNegotiator binaryEncoding;
+    private final byte[] cborResyncBody;
+    private final int flushThreads;
+    private final ThreadPoolExecutor flushExecutor;
+    private final ExecutorService closeExecutor;
+    private final ScheduledExecutorService watchdog;
+    private int stalledWrites;
+    private final Map<OverflowPolicy, Counter> drops = new EnumMap<>(OverflowPolicy.class);
+    private final Counter resyncs;
+    private final Counter disconnects;
+    private final DistributionSummary depthAtDrop;
+
+    public OutboundQueueRegistry(OutboundQueueProperties properties, BinaryEncodingNegotiator binaryEncoding,
+                                 CborCodec cborCodec, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.binaryEncoding = binaryEncoding;
+        this.cborResyncBody = cborCodec.encode(Map.of("resync", true));
+        this.flushThreads = Math.max(1, properties.getFlushThreads());
+        this.flushExecutor = new ThreadPoolExecutor(flushThreads, flushThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("ws-outbound-"));
+        this.flushExecutor.allowCoreThreadTimeOut(true);
+        this.closeExecutor = Executors.newCachedThreadPool(daemonThreads("ws-outbound-close-"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("ws-outbound-watchdog-"));
+        long checkNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(10), properties.getSendTimeLimit().toNanos() / 4);
+        this.watchdog.scheduleWithFixedDelay(this::expireStalledWrites, checkNanos, checkNanos, TimeUnit.NANOSECONDS);
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            drops.put(policy, Counter.builder("chat.outbound.dropped").tag("policy", policy.name().toLowerCase()).register(meterRegistry));
+        }
+        this.resyncs = Counter.builder("chat.outbound.resyncs").register(meterRegistry);
+        this.disconnects = Counter.builder("chat.outbound.disconnects").register(meterRegistry);
+        this.depthAtDrop = DistributionSummary.builder("chat.outbound.dropped.batch").register(meterRegistry);
+        Gauge.builder("chat.outbound.sessions", sessions, Map::size).register(meterRegistry);
+        Gauge.builder("chat.outbound.queued.messages", this, OutboundQueueRegistry::totalQueuedMessages).register(meterRegistry);
+        Gauge.builder("chat.outbound.queued.bytes", this, OutboundQueueRegistry::totalQueuedBytes).register(meterRegistry);
+        Gauge.builder("chat.outbound.queued.max", this, OutboundQueueRegistry::maxQueuedMessages).register(meterRegistry);
+        Gauge.builder("chat.outbound.stalled.writes", this, OutboundQueueRegistry::stalledWrites).register(meterRegistry);
+    }
+
+    public BoundedOutboundSession register(WebSocketSession session) {
+        BoundedOutboundSession bounded = new BoundedOutboundSession(session, this, properties.getOverflowPolicy(),
+                properties.getMaxMessages(), properties.getMaxBytes().toBytes(), properties.getSendTimeLimit().toNanos());
+        sessions.put(session.getId(), bounded);
+        return bounded;
+    }
+
+    public void unregister(String sessionId) {
+        BoundedOutboundSession removed = sessions.remove(sessionId);
+        if (removed != null) {
+            removed.discard();
+        }
+    }
+
+    public List<SessionQueueStats> snapshot() {
+        List<SessionQueueStats> stats = new ArrayList<>(sessions.size());
+        sessions.forEach((id, session) -> stats.add(new SessionQueueStats(id, session.queuedMessages(),
+                session.queuedBytes(), session.droppedMessages(), session.resyncsSent())));
+        return stats;
+    }
+
+    public long totalQueuedMessages() {
+        return sum(sessions.values(), true);
+    }
+
+    public long totalQueuedBytes() {
+        return sum(sessions.values(), false);
+    }
+
+    public int maxQueuedMessages() {
+        int max = 0;
+        for (BoundedOutboundSession session : sessions.values()) {
+            max = Math.max(max, session.queuedMessages());
+        }
+        return max;
+    }
+
+    public synchronized int stalledWrites() {
+        return stalledWrites;
+    }
+
+    ExecutorService flushExecutor() {
+        return flushExecutor;
+    }
+
+    ExecutorService closeExecutor() {
+        return closeExecutor;
+    }
+
+    /** Called by a session once a write that the watchdog expired has returned. */
+    synchronized void releaseStalledWrite() {
+        stalledWrites--;
+        int size = flushThreads + stalledWrites;
+        flushExecutor.setCorePoolSize(size);
+        flushExecutor.setMaximumPoolSize(size);
+    }
+
+    boolean isCbor(String sessionId) {
+        return binaryEncoding.isBinary(sessionId);
+    }
+
+    byte[] cborResyncBody() {
+        return cborResyncBody;
+    }
+
+    void recordDrop(OverflowPolicy policy, int count) {
+        if (count > 0) {
+            drops.get(policy).increment(count);
+            depthAtDrop.record(count);
+        }
+    }
+
+    void recordResyncs(int count) {
+        resyncs.increment(count);
+    }
+
+    void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+        flushExecutor.shutdownNow();
+        closeExecutor.shutdownNow();
+    }
+
+    private void expireStalledWrites() {
+        long now = System.nanoTime();
+        for (BoundedOutboundSession session : sessions.values()) {
+            if (session.expireStalledWrite(now)) {
+                synchronized (this) {
+                    stalledWrites++;
+                    int size = flushThreads + stalledWrites;
+                    flushExecutor.setMaximumPoolSize(size);
+                    flushExecutor.setCorePoolSize(size);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static long sum(Collection<BoundedOutboundSession> sessions, boolean messages) {
+        long total = 0;
+        for (BoundedOutboundSession session : sessions) {
+            total += messages ? session.queuedMessages() : session.queuedBytes();
+        }
+        return total;
+    }
+
+    public static final class SessionQueueStats {
+        private final String sessionId;
+        private final int queuedMessages;
+        private final long queuedBytes;
+        private final long droppedMessages;
+        private final long resyncs;
+
+        public SessionQueueStats(String sessionId, int queuedMessages, long queuedBytes, long droppedMessages, long resyncs) {
+            this.sessionId = sessionId;
+            this.queuedMessages = queuedMessages;
+            this.queuedBytes = queuedBytes;
+            this.droppedMessages = droppedMessages;
+            this.resyncs = resyncs;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public int getQueuedMessages() {
+            return queuedMessages;
+        }
+
+        public long getQueuedBytes() {
+            return queuedBytes;
+        }
+
+        public long getDroppedMessages() {
+            return droppedMessages;
+        }
+
+        public long getResyncs() {
+            return resyncs;
+        }
+    }
+}
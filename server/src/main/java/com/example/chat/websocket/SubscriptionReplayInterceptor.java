@@ -0,0 +1,233 @@
+package com.example.chat.websocket;
+
+import com.example.chat.config.ReplayProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.service.ChatService;
+import com.example.chat.service.ConversationLocks;
+import com.example.chat.service.ConversationSubscriptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Replays missed messages to a conversation subscriber that sends {@code last-seen-id} on
+ * SUBSCRIBE. The missed messages are fetched first; then the conversation's lock is taken before
+ * the broker registers the subscription and released once the replay has been queued on the
+ * session, so live broadcasts, which take the same lock, neither overtake the replay nor fall
+ * into a gap before it. The database is not read under the lock unless a message was delivered
+ * to the conversation's lock stripe while the replay was being fetched; only then is the delta
+ * past the fetched tail looked up, mostly from the recent-message cache. Replayed frames
+ * are handed to the session synchronously rather than through the outbound channel's executor,
+ * which could reorder them. A client that missed more than {@code chat.replay.max-messages}, or
+ * whose last message is no longer in {@code messages}, gets a single {@code resync:true} frame.
+ */
+@Component
+public class SubscriptionReplayInterceptor implements ExecutorChannelInterceptor {
+
+    public static final String LAST_SEEN_HEADER = "last-seen-id";
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionReplayInterceptor.class);
+
+    private static final ThreadLocal<PendingReplay> PENDING = new ThreadLocal<>();
+
+    private final ChatService chatService;
+    private final ConversationLocks locks;
+    private final ReplayProperties properties;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BinaryEncodingNegotiator binaryEncoding;
+    private final CborCodec cborCodec;
+    private final AbstractSubscribableChannel outboundChannel;
+    private final Counter replays;
+    private final Counter resyncs;
+    private final Counter replayedMessages;
+
+    public SubscriptionReplayInterceptor(ChatService chatService,
+                                         ConversationLocks locks,
+                                         ReplayProperties properties,
+                                         SimpMessagingTemplate messagingTemplate,
+                                         BinaryEncodingNegotiator binaryEncoding,
+                                         CborCodec cborCodec,
+                                         @Qualifier("clientInboundChannel") AbstractSubscribableChannel inboundChannel,
+                                         @Qualifier("clientOutboundChannel") AbstractSubscribableChannel outboundChannel,
+                                         MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.locks = locks;
+        this.properties = properties;
+        this.messagingTemplate = messagingTemplate;
+        this.binaryEncoding = binaryEncoding;
+        this.cborCodec = cborCodec;
+        this.outboundChannel = outboundChannel;
+        this.replays = Counter.builder("chat.replay.subscriptions").tag("result", "replayed").register(meterRegistry);
+        this.resyncs = Counter.builder("chat.replay.subscriptions").tag("result", "resync").register(meterRegistry);
+        this.replayedMessages = Counter.builder("chat.replay.messages").register(meterRegistry);
+        inboundChannel.addInterceptor(this);
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        Long conversationId = replayTarget(message, handler);
+        if (conversationId == null) {
+            return message;
+        }
+        Long lastSeenId = lastSeenId(SimpMessageHeaderAccessor.wrap(message));
+        long deliveries = locks.deliveries(conversationId);
+        try {
+            PENDING.set(new PendingReplay(lastSeenId, deliveries,
+                    chatService.findMissedMessages(conversationId, lastSeenId, properties.getMaxMessages())));
+        } catch (RuntimeException fetchFailure) {
+            log.warn("Could not load missed messages of conversation {} for session {}", conversationId,
+                    SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), fetchFailure);
+            return message;
+        }
+        locks.forConversation(conversationId).lock();
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Long conversationId = replayTarget(message, handler);
+        if (conversationId == null) {
+            return;
+        }
+        PendingReplay pending = PENDING.get();
+        PENDING.remove();
+        ReentrantLock lock = locks.forConversation(conversationId);
+        if (pending == null || !lock.isHeldByCurrentThread()) {
+            return;
+        }
+        try {
+            if (ex == null) {
+                replay(SimpMessageHeaderAccessor.wrap(message), conversationId, pending);
+            }
+        } catch (RuntimeException replayFailure) {
+            log.warn("Could not replay conversation {} to session {}", conversationId,
+                    SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), replayFailure);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Long replayTarget(Message<?> message, MessageHandler handler) {
+        if (!properties.isEnabled() || !(handler instanceof AbstractBrokerMessageHandler)
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.SUBSCRIBE) {
+            return null;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (lastSeenId(accessor) == null) {
+            return null;
+        }
+        return ConversationSubscriptions.parseConversationId(accessor.getDestination());
+    }
+
+    private static Long lastSeenId(SimpMessageHeaderAccessor accessor) {
+        String value = accessor.getFirstNativeHeader(LAST_SEEN_HEADER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /** Runs under the conversation's lock, after the broker has registered the subscription. */
+    private void replay(SimpMessageHeaderAccessor subscribe, Long conversationId, PendingReplay pending) {
+        Optional<List<MessageView>> missed = pending.missed;
+        if (missed.isPresent() && locks.deliveries(conversationId) != pending.deliveries) {
+            List<MessageView> fetched = missed.get();
+            Long tailId = fetched.isEmpty() ? pending.lastSeenId : fetched.get(fetched.size() - 1).getId();
+            missed = chatService.findMissedMessages(conversationId, tailId, properties.getMaxMessages() - fetched.size())
+                    .map(delta -> concat(fetched, delta));
+        }
+        if (missed.isEmpty()) {
+            sendNow(resyncMessage(subscribe));
+            resyncs.increment();
+            return;
+        }
+        for (MessageView view : missed.get()) {
+            sendNow(toMessage(subscribe, view));
+        }
+        replays.increment();
+        replayedMessages.increment(missed.get().size());
+    }
+
+    private static List<MessageView> concat(List<MessageView> fetched, List<MessageView> delta) {
+        if (delta.isEmpty()) {
+            return fetched;
+        }
+        List<MessageView> all = new ArrayList<>(fetched);
+        all.addAll(delta);
+        return all;
+    }
+
+    private Message<?> toMessage(SimpMessageHeaderAccessor subscribe, MessageView view) {
+        SimpMessageHeaderAccessor headers = messageHeaders(subscribe);
+        if (binaryEncoding.isBinary(subscribe.getSessionId())) {
+            headers.setHeader(BinaryEncodingNegotiator.CBOR_PAYLOAD_HEADER, cborCodec.encode(view));
+        }
+        return messagingTemplate.getMessageConverter().toMessage(view, headers.getMessageHeaders());
+    }
+
+    private Message<?> resyncMessage(SimpMessageHeaderAccessor subscribe) {
+        SimpMessageHeaderAccessor headers = messageHeaders(subscribe);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setNativeHeader(BoundedOutboundSession.RESYNC_HEADER, "true");
+        return MessageBuilder.createMessage(BoundedOutboundSession.RESYNC_BODY, headers.getMessageHeaders());
+    }
+
+    private static SimpMessageHeaderAccessor messageHeaders(SimpMessageHeaderAccessor subscribe) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(subscribe.getSessionId());
+        headers.setSubscriptionId(subscribe.getSubscriptionId());
+        headers.setDestination(subscribe.getDestination());
+        headers.setUser(subscribe.getUser());
+        headers.setLeaveMutable(true);
+        return headers;
+    }
+
+    private void sendNow(Message<?> message) {
+        Message<?> outgoing = message;
+        for (ChannelInterceptor interceptor : outboundChannel.getInterceptors()) {
+            outgoing = interceptor.preSend(outgoing, outboundChannel);
+            if (outgoing == null) {
+                return;
+            }
+        }
+        for (MessageHandler handler : outboundChannel.getSubscribers()) {
+            handler.handleMessage(outgoing);
+        }
+    }
+
+    private static final class PendingReplay {
+        private final Long lastSeenId;
+        private final long deliveries;
+        private final Optional<List<MessageView>> missed;
+
+        private PendingReplay(Long lastSeenId, long deliveries, Optional<List<MessageView>> missed) {
+            this.lastSeenId = lastSeenId;
+            this.deliveries = deliveries;
+            this.missed = missed;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+-- The schema of the last release, as Hibernate's ddl-auto=update created it. Databases from
+-- that release have no flyway_schema_history table; they are baselined at this version instead
+-- of running it, and get every later change from V2 on.
+
+CREATE TABLE users (
+    id            BIGINT       NOT NULL,
+    username      VARCHAR(50)  NOT NULL,
+    display_name  VARCHAR(100) NOT NULL,
+    password_hash VARCHAR(100) NOT NULL,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE TABLE conversations (
+    id         BIGINT                      NOT NULL,
+    title      VARCHAR(120)                NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_conversations PRIMARY KEY (id)
+);
+
+CREATE TABLE conversation_participants (
+    conversation_id BIGINT NOT NULL,
+    user_id         BIGINT NOT NULL,
+    CONSTRAINT pk_conversation_participants PRIMARY KEY (conversation_id, user_id),
+    CONSTRAINT fk_conversation_participants_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id),
+    CONSTRAINT fk_conversation_participants_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE messages (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    conversation_id BIGINT                      NOT NULL,
+    sender_id       BIGINT                      NOT NULL,
+    content         TEXT                        NOT NULL,
+    sent_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_messages PRIMARY KEY (id),
+    CONSTRAINT fk_messages_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id),
+    CONSTRAINT fk_messages_sender FOREIGN KEY (sender_id) REFERENCES users (id)
+);
@@ -0,0 +1,3 @@
+-- History pages are keyset scans on (sent_at, id) within a conversation.
+CREATE INDEX idx_messages_conversation_sent_at_id ON messages (conversation_id, sent_at, id);
+CREATE INDEX idx_messages_sent_at_id ON messages (sent_at, id);
@@ -0,0 +1,15 @@
+-- Messages older than chat.archive.retention are moved here by MessageArchiver.
+CREATE TABLE historical_messages (
+    id              BIGINT                      NOT NULL,
+    conversation_id BIGINT                      NOT NULL,
+    sender_id       BIGINT                      NOT NULL,
+    content         TEXT                        NOT NULL,
+    sent_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    archived_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_historical_messages PRIMARY KEY (id),
+    CONSTRAINT fk_historical_messages_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id),
+    CONSTRAINT fk_historical_messages_sender FOREIGN KEY (sender_id) REFERENCES users (id)
+);
+
+CREATE INDEX idx_historical_messages_conversation_sent_at_id ON historical_messages (conversation_id, sent_at, id);
+CREATE INDEX idx_historical_messages_sent_at_id ON historical_messages (sent_at, id);
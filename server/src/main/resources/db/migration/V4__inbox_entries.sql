@@ -0,0 +1,15 @@
+-- One row per user and conversation; InboxService backfills it from existing conversations.
+CREATE TABLE inbox_entries (
+    user_id              BIGINT                      NOT NULL,
+    conversation_id      BIGINT                      NOT NULL,
+    peer_id              BIGINT,
+    last_message_id      BIGINT                      NOT NULL,
+    last_sender_id       BIGINT                      NOT NULL,
+    last_message_preview VARCHAR(255)                NOT NULL,
+    last_activity_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    unread_count         INTEGER                     NOT NULL,
+    CONSTRAINT pk_inbox_entries PRIMARY KEY (conversation_id, user_id)
+);
+
+CREATE INDEX idx_inbox_entries_user_activity ON inbox_entries (user_id, last_activity_at, conversation_id);
+CREATE INDEX idx_inbox_entries_conversation ON inbox_entries (conversation_id);
@@ -0,0 +1,10 @@
+-- Role and join time only apply to group members, so participants of direct chats keep NULLs.
+ALTER TABLE conversation_participants ADD COLUMN role VARCHAR(16);
+ALTER TABLE conversation_participants ADD COLUMN joined_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE conversation_participants
+    ADD CONSTRAINT ck_conversation_participants_role CHECK (role IN ('OWNER', 'MEMBER'));
+
+CREATE INDEX idx_conversation_participants_user ON conversation_participants (user_id, conversation_id);
+
+-- Group ids are the negated next value, so they never collide with direct chat ids.
+CREATE SEQUENCE group_conversation_ids;
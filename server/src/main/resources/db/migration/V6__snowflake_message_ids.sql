@@ -0,0 +1,13 @@
+-- Message ids are assigned by SnowflakeIdGenerator. Existing identity ids are far below the
+-- first snowflake id, so they stay valid.
+ALTER TABLE messages ALTER COLUMN id DROP IDENTITY;
+
+-- Direct chats get snowflake ids too; this maps each pair of users to theirs.
+CREATE TABLE direct_conversations (
+    low_user_id     BIGINT NOT NULL,
+    high_user_id    BIGINT NOT NULL,
+    conversation_id BIGINT NOT NULL,
+    CONSTRAINT pk_direct_conversations PRIMARY KEY (high_user_id, low_user_id),
+    CONSTRAINT uk_direct_conversations_conversation UNIQUE (conversation_id),
+    CONSTRAINT fk_direct_conversations_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id)
+);
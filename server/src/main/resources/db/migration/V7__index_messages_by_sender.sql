@@ -0,0 +1,4 @@
+-- PostgreSQL does not index foreign keys by itself. Without these, looking up or deleting
+-- a user's messages scans the whole table.
+CREATE INDEX idx_messages_sender_id ON messages (sender_id);
+CREATE INDEX idx_historical_messages_sender_id ON historical_messages (sender_id);
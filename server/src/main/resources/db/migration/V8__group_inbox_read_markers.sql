@@ -0,0 +1,8 @@
+-- Group inbox rows are no longer written per message, so a member needs a row from the moment
+-- they join. Members of groups that have had no messages yet get one counting from their join.
+INSERT INTO inbox_entries (user_id, conversation_id, peer_id, last_message_id, last_sender_id,
+                           last_message_preview, last_activity_at, unread_count)
+SELECT p.user_id, p.conversation_id, NULL, 0, p.user_id, '', COALESCE(p.joined_at, CURRENT_TIMESTAMP), 0
+FROM conversation_participants p
+WHERE p.conversation_id < 0
+  AND NOT EXISTS (SELECT 1 FROM inbox_entries e WHERE e.conversation_id = p.conversation_id AND e.user_id = p.user_id);
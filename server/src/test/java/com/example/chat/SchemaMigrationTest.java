@@ -0,0 +1,101 @@
+package com.example.chat;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the JPA layer, with {@code ddl-auto=validate}, against a database shaped like one the
+ * last release created with {@code ddl-auto=update}: release tables and data, no Flyway history.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaMigrationTest {
+
+    private static final String URL =
+            "jdbc:h2:mem:released;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+
+    private static final String[] RELEASED_SCHEMA = {
+            "create table users (id bigint not null, display_name varchar(100) not null, password_hash varchar(100) not null,"
+                    + " username varchar(50) not null unique, primary key (id))",
+            "create table conversations (id bigint not null, created_at timestamp(6) with time zone not null,"
+                    + " title varchar(120) not null, primary key (id))",
+            "create table conversation_participants (conversation_id bigint not null, user_id bigint not null,"
+                    + " primary key (conversation_id, user_id))",
+            "create table messages (id bigint generated by default as identity, content text not null,"
+                    + " sent_at timestamp(6) with time zone not null, conversation_id bigint not null,"
+                    + " sender_id bigint not null, primary key (id))",
+            "alter table if exists conversation_participants add constraint FKhm8cnqdw5qfpb3kvdbb4ycy3n"
+                    + " foreign key (user_id) references users",
+            "alter table if exists conversation_participants add constraint FKkv6lu9vdyyu2kmwdj6bt0fi80"
+                    + " foreign key (conversation_id) references conversations",
+            "alter table if exists messages add constraint FKt492th6wsovh1nush5yl5jj8e"
+                    + " foreign key (conversation_id) references conversations",
+            "alter table if exists messages add constraint FK4ui4nnwntodh6wjvck53dbk9m"
+                    + " foreign key (sender_id) references users",
+            "insert into users (id, username, display_name, password_hash) values (1, 'user_1', 'User 1', '{noop}a')",
+            "insert into users (id, username, display_name, password_hash) values (2, 'user_2', 'User 2', '{noop}b')",
+            "insert into conversations (id, title, created_at) values (5, 'Chat 1 & 2', current_timestamp)",
+            "insert into conversation_participants (conversation_id, user_id) values (5, 1), (5, 2)",
+            "insert into messages (conversation_id, sender_id, content, sent_at) values (5, 1, 'before migrations', current_timestamp)"
+    };
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void releasedDatabase(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (String sql : RELEASED_SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+        registry.add("spring.datasource.url", () -> URL);
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    void baselinesReleasedDatabaseAndAppliesEveryLaterMigration() {
+        MigrationInfo[] applied = flyway.info().applied();
+
+        assertThat(applied[0].getVersion().getVersion()).isEqualTo("1");
+        assertThat(applied[0].getState()).isEqualTo(MigrationState.BASELINE);
+        assertThat(Arrays.stream(applied).skip(1).map(MigrationInfo::getState))
+                .isNotEmpty()
+                .containsOnly(MigrationState.SUCCESS);
+        assertThat(flyway.info().pending()).isEmpty();
+    }
+
+    @Test
+    void keepsReleasedDataUsable() {
+        assertThat(jdbcTemplate.queryForObject("select content from messages where conversation_id = 5", String.class))
+                .isEqualTo("before migrations");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from conversation_participants where role is null", Integer.class))
+                .isEqualTo(2);
+
+        jdbcTemplate.update("insert into messages (id, conversation_id, sender_id, content, sent_at)"
+                + " values (361112461004800, 5, 2, 'snowflake id', current_timestamp)");
+        jdbcTemplate.update("insert into direct_conversations (low_user_id, high_user_id, conversation_id) values (1, 2, 5)");
+        assertThat(jdbcTemplate.queryForObject("select next value for group_conversation_ids", Long.class)).isPositive();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.chat.cluster;
+
+import com.example.chat.config.ClusterProperties;
+import com.example.chat.config.IdGeneratorProperties;
+import com.example.chat.dto.MessageView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Two relays linked over loopback, with a list standing in for the shared database. */
+class TcpMeshClusterRelayTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final long CONVERSATION = 7;
+
+    private final List<MessageView> database = new CopyOnWriteArrayList<>();
+    private final List<MessageView> receivedByA = new CopyOnWriteArrayList<>();
+    private final List<Instant> replaysOnA = new CopyOnWriteArrayList<>();
+    private final List<TcpMeshClusterRelay> started = new ArrayList<>();
+    private final int portA = freePort();
+    private final int portB = freePort();
+
+    @AfterEach
+    void stop() {
+        started.forEach(TcpMeshClusterRelay::stop);
+    }
+
+    @Test
+    void interestCountsOnlyWhileThePeerHasAcknowledgedIt() throws Exception {
+        TcpMeshClusterRelay a = start(relayA());
+        Instant declared = Instant.now();
+        a.updateInterest(CONVERSATION, true);
+
+        Thread.sleep(300);
+        assertThat(a.isInterestAcknowledged(CONVERSATION)).isFalse();
+
+        TcpMeshClusterRelay b = start(relay("node-b", 2, portB, portA));
+        await(() -> a.isInterestAcknowledged(CONVERSATION));
+        assertThat(replaysOnA).hasSize(1);
+        assertThat(replaysOnA.get(0)).isBefore(declared);
+
+        b.stop();
+        await(() -> !a.isInterestAcknowledged(CONVERSATION));
+    }
+
+    @Test
+    void aMessagePublishedBeforeTheInterestArrivedIsReplayedOnce() throws Exception {
+        TcpMeshClusterRelay a = start(relayA());
+        TcpMeshClusterRelay b = start(relay("node-b", 2, portB, portA));
+        a.updateInterest(1L, true);
+        await(() -> a.isInterestAcknowledged(1L));
+
+        MessageView missed = commit(b, 1);
+        a.updateInterest(CONVERSATION, true);
+        await(() -> a.isInterestAcknowledged(CONVERSATION));
+        MessageView forwarded = commit(b, 2);
+        await(() -> receivedByA.size() == 2);
+
+        Thread.sleep(200);
+        assertThat(receivedByA).extracting(MessageView::getId).containsExactly(missed.getId(), forwarded.getId());
+    }
+
+    private TcpMeshClusterRelay relayA() {
+        TcpMeshClusterRelay relay = relay("node-a", 1, portA, portB);
+        relay.setListener(receivedByA::add);
+        relay.setReplaySource((conversationId, since) -> {
+            replaysOnA.add(since);
+            return database.stream()
+                    .filter(view -> view.getConversationId().equals(conversationId) && view.getSentAt().isAfter(since))
+                    .toList();
+        });
+        return relay;
+    }
+
+    private TcpMeshClusterRelay relay(String nodeId, int idNodeId, int port, int peerPort) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setNodeId(nodeId);
+        properties.setBindAddress("127.0.0.1");
+        properties.setPort(port);
+        properties.setSecret(SECRET);
+        properties.setPeers(List.of("127.0.0.1:" + peerPort));
+        properties.setReconnectInterval(Duration.ofMillis(50));
+        IdGeneratorProperties ids = new IdGeneratorProperties();
+        ids.setNodeId(idNodeId);
+        return new TcpMeshClusterRelay(properties, ids, new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+    }
+
+    private TcpMeshClusterRelay start(TcpMeshClusterRelay relay) {
+        relay.start();
+        started.add(relay);
+        return relay;
+    }
+
+    /** Stores a message the way a node does, then publishes it. */
+    private MessageView commit(TcpMeshClusterRelay relay, long id) {
+        MessageView view = new MessageView(id, CONVERSATION, 2L, "Bob", "message " + id, Instant.now());
+        database.add(view);
+        relay.publish(view);
+        return view;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 10s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
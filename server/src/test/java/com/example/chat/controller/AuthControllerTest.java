@@ -0,0 +1,61 @@
+package com.example.chat.controller;
+
+import com.example.chat.security.SessionTokenService;
+import com.example.chat.service.CredentialService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthControllerTest {
+
+    private final CredentialService credentialService = mock(CredentialService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new AuthController(credentialService, mock(SessionTokenService.class)))
+            .build();
+
+    @Test
+    void aShedLoginIsAnsweredWith503AndRetryAfter() throws Exception {
+        when(credentialService.authenticate(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Credential check waited too long")));
+        when(credentialService.retryAfterSeconds()).thenReturn(3L);
+
+        MvcResult started = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\": 1, \"password\": \"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+    }
+
+    @Test
+    void badCredentialsAreAnsweredWith400() throws Exception {
+        when(credentialService.authenticate(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Invalid credentials")));
+
+        MvcResult started = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\": 1, \"password\": \"guess\"}"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest());
+    }
+}
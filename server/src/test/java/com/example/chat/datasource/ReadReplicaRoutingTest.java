@@ -0,0 +1,139 @@
+package com.example.chat.datasource;
+
+import com.example.chat.dto.MessageCursor;
+import com.example.chat.dto.MessageView;
+import com.example.chat.model.ChatUser;
+import com.example.chat.service.ChatService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application against two H2 databases standing in for a primary and a replica. They
+ * are not replicated, so a row that differs between them shows which one a read went to.
+ */
+@SpringBootTest(properties = {
+        "chat.datasource.replica.enabled=true",
+        "chat.datasource.replica.read-your-writes-window=1s",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "chat.datasource.replica.username=sa",
+        "chat.datasource.replica.password="
+})
+class ReadReplicaRoutingTest {
+
+    private static final String OPTIONS = ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    private static final String PRIMARY_URL = "jdbc:h2:mem:primary" + OPTIONS;
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica" + OPTIONS;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void databases(DynamicPropertyRegistry registry) throws IOException {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        registry.add("spring.datasource.url", () -> PRIMARY_URL);
+        registry.add("chat.datasource.replica.url", () -> REPLICA_URL);
+        registry.add("chat.search.index-path", Files.createTempDirectory("search-index")::toString);
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaAndOthersThePrimary() {
+        insertUser(101, "on primary", "on replica");
+
+        assertThat(chatService.findUser(101L)).map(ChatUser::getDisplayName).contains("on replica");
+        String readWrite = new TransactionTemplate(transactionManager)
+                .execute(status -> chatService.findUser(101L).orElseThrow().getDisplayName());
+        assertThat(readWrite).isEqualTo("on primary");
+    }
+
+    @Test
+    void writersReadThePrimaryUntilTheWindowCloses() throws InterruptedException {
+        insertUser(201, "on primary", "on replica");
+        insertUser(202, "on primary", "on replica");
+
+        readYourWrites.recordWrite(201L);
+        assertThat(displayNameActingAs(201L)).isEqualTo("on primary");
+        assertThat(displayNameActingAs(202L)).isEqualTo("on replica");
+
+        Thread.sleep(1_500);
+        assertThat(displayNameActingAs(201L)).isEqualTo("on replica");
+    }
+
+    @Test
+    void recentMessageCacheIsFilledFromThePrimary() {
+        insertUser(301, "Sender", "Sender");
+        insertConversation(3_001);
+        for (int i = 0; i < 3; i++) {
+            insertMessage(primary, 3_001, 30_010 + i, 301, "message " + i, i);
+        }
+        insertMessage(replica, 3_001, 30_010, 301, "message 0", 0);
+
+        assertThat(latestContents(3_001)).containsExactly("message 0", "message 1", "message 2");
+        assertThat(latestContents(3_001)).containsExactly("message 0", "message 1", "message 2");
+    }
+
+    @Test
+    void historyPagesOutsideTheCachedTailUseTheReplica() {
+        insertUser(401, "Sender", "Sender");
+        insertConversation(4_001);
+        insertMessage(primary, 4_001, 40_010, 401, "on primary", 0);
+        insertMessage(replica, 4_001, 40_010, 401, "on replica", 0);
+
+        MessageCursor later = new MessageCursor(Instant.parse("2024-06-02T00:00:00Z"), Long.MAX_VALUE);
+        assertThat(chatService.getConversationMessages(4_001L, later, null, 50, false).getMessages())
+                .extracting(MessageView::getContent)
+                .containsExactly("on replica");
+    }
+
+    private String displayNameActingAs(long userId) {
+        return readYourWrites.actingAs(userId, () -> chatService.findUser(userId).orElseThrow().getDisplayName());
+    }
+
+    private List<String> latestContents(long conversationId) {
+        return chatService.getConversationMessages(conversationId, null, null, 50, false).getMessages().stream()
+                .map(MessageView::getContent)
+                .toList();
+    }
+
+    private void insertUser(long id, String primaryName, String replicaName) {
+        String sql = "insert into users (id, username, display_name, password_hash) values (?, ?, ?, '{noop}x')";
+        primary.update(sql, id, "user_" + id, primaryName);
+        replica.update(sql, id, "user_" + id, replicaName);
+    }
+
+    private void insertConversation(long id) {
+        String sql = "insert into conversations (id, title, created_at) values (?, 'Test', current_timestamp)";
+        primary.update(sql, id);
+        replica.update(sql, id);
+    }
+
+    private static void insertMessage(JdbcTemplate database, long conversationId, long id, long senderId, String content, int second) {
+        database.update("insert into messages (id, conversation_id, sender_id, content, sent_at) values (?, ?, ?, ?, ?)",
+                id, conversationId, senderId, content, Timestamp.from(Instant.parse("2024-06-01T00:00:00Z").plusSeconds(second)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.chat.repository;
+
+import com.example.chat.dto.MessageView;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * History pages are one statement each, whatever the conversation's size and however many
+ * senders it has: the {@link MessageView} projection joins the sender instead of loading it.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:history;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MessageHistoryQueryCountTest {
+
+    private static final long SMALL = 1;
+    private static final long LARGE = 2;
+    private static final int PAGE_SIZE = 50;
+    private static final int SENDERS = 20;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        for (long userId = 1; userId <= SENDERS; userId++) {
+            jdbcTemplate.update("insert into users (id, username, display_name, password_hash) values (?, ?, ?, '{noop}x')",
+                    userId, "user_" + userId, "User " + userId);
+        }
+        insertConversation(SMALL, 10);
+        insertConversation(LARGE, 1_000);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void latestPageIsOneStatementForSmallAndLargeConversations() {
+        assertThat(messageRepository.findLatest(SMALL, PageRequest.of(0, PAGE_SIZE))).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        assertThat(messageRepository.findLatest(LARGE, PageRequest.of(0, PAGE_SIZE))).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void pagingThroughAThousandMessagesTakesOneStatementPerPage() {
+        List<MessageView> all = new ArrayList<>();
+        List<MessageView> page = messageRepository.findLatest(LARGE, PageRequest.of(0, PAGE_SIZE));
+        int pages = 1;
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            MessageView oldest = page.get(page.size() - 1);
+            page = messageRepository.findBefore(LARGE, oldest.getSentAt(), oldest.getId(), PageRequest.of(0, PAGE_SIZE));
+            pages++;
+        }
+
+        assertThat(all).hasSize(1_000);
+        assertThat(all).extracting(MessageView::getSenderName).doesNotContainNull();
+        assertThat(pages).isEqualTo(1_000 / PAGE_SIZE + 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(pages);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void forwardPagingTakesOneStatementPerPage() {
+        MessageView first = messageRepository.findLatest(LARGE, PageRequest.of(0, 1_000)).get(999);
+        statistics.clear();
+
+        int pages = 0;
+        int seen = 0;
+        List<MessageView> page;
+        MessageView cursor = first;
+        do {
+            page = messageRepository.findAfter(LARGE, cursor.getSentAt(), cursor.getId(), PageRequest.of(0, PAGE_SIZE));
+            pages++;
+            seen += page.size();
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1);
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        assertThat(seen).isEqualTo(999);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(pages);
+    }
+
+    private void insertConversation(long conversationId, int messages) {
+        Instant start = Instant.parse("2024-06-01T00:00:00Z");
+        jdbcTemplate.update("insert into conversations (id, title, created_at) values (?, ?, ?)",
+                conversationId, "Conversation " + conversationId, Timestamp.from(start));
+        List<Object[]> rows = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            rows.add(new Object[]{conversationId * 1_000_000 + i, conversationId, (long) (i % SENDERS) + 1,
+                    "message " + i, Timestamp.from(start.plusSeconds(i))});
+        }
+        jdbcTemplate.batchUpdate("insert into messages (id, conversation_id, sender_id, content, sent_at) values (?, ?, ?, ?, ?)", rows);
+    }
+}
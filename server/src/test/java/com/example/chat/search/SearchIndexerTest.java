@@ -0,0 +1,144 @@
+package com.example.chat.search;
+
+import com.example.chat.config.SearchProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.repository.HistoricalMessageRepository;
+import com.example.chat.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The catch-up scans over a fake {@code messages} table whose rows show up only once
+ * {@link #commit} is called, so a row can commit long after its {@code sent_at}.
+ */
+class SearchIndexerTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final List<MessageView> committed = new CopyOnWriteArrayList<>();
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final HistoricalMessageRepository historicalMessageRepository = mock(HistoricalMessageRepository.class);
+    private final SearchProperties properties = new SearchProperties();
+    private final ManualClock clock = new ManualClock(T0);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties.setIndexPath(Files.createTempDirectory("search-index").toString());
+        properties.setCatchUpLag(Duration.ofSeconds(10));
+        properties.setLateCommitWindow(Duration.ofMinutes(1));
+        properties.setPauseBetweenBatches(Duration.ZERO);
+        index = new MessageSearchIndex(properties);
+        when(messageRepository.findAllAfter(any(), any(), any(), any())).thenAnswer(invocation -> committedAfter(
+                invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+        when(historicalMessageRepository.findAllAfter(any(), any(), any(), any())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.destroy();
+    }
+
+    @Test
+    void aMessageThatCommitsBehindTheCheckpointIsIndexedByTheTrailingScan() {
+        SearchIndexer indexer = indexer();
+        commit(1L, T0.minusSeconds(60));
+        commit(3L, T0.minusSeconds(20));
+        indexer.catchUp();
+        assertThat(index.documentCount()).isEqualTo(2);
+
+        commit(2L, T0.minusSeconds(30));
+        clock.advance(Duration.ofSeconds(5));
+        indexer.catchUp();
+        assertThat(index.documentCount()).isEqualTo(2);
+
+        clock.advance(Duration.ofMinutes(1));
+        indexer.catchUp();
+
+        assertThat(index.documentCount()).isEqualTo(3);
+        assertThat(lateCommits()).isEqualTo(1.0);
+    }
+
+    @Test
+    void afterARestartTheWindowBehindTheCommittedCheckpointIsReadAgain() {
+        commit(1L, T0.minusSeconds(60));
+        commit(3L, T0.minusSeconds(20));
+        indexer().catchUp();
+
+        commit(2L, T0.minusSeconds(30));
+        SearchIndexer restarted = indexer();
+        clock.advance(Duration.ofMinutes(2));
+        restarted.catchUp();
+
+        assertThat(index.documentCount()).isEqualTo(3);
+        assertThat(lateCommits()).isEqualTo(1.0);
+    }
+
+    private SearchIndexer indexer() {
+        return new SearchIndexer(index, messageRepository, historicalMessageRepository, properties, meterRegistry, clock);
+    }
+
+    private void commit(long id, Instant sentAt) {
+        committed.add(new MessageView(id, 1L, 1L, "Alice", "message " + id, sentAt));
+    }
+
+    private List<MessageView> committedAfter(Instant sentAt, Long id, Instant horizon, Pageable page) {
+        return committed.stream()
+                .filter(row -> row.getSentAt().isAfter(sentAt) || (row.getSentAt().equals(sentAt) && row.getId() > id))
+                .filter(row -> row.getSentAt().isBefore(horizon))
+                .sorted(Comparator.comparing(MessageView::getSentAt).thenComparing(MessageView::getId))
+                .limit(page.getPageSize())
+                .toList();
+    }
+
+    private double lateCommits() {
+        return meterRegistry.get("chat.search.indexed").tag("source", "late_commit").counter().count();
+    }
+
+    private static final class ManualClock extends Clock {
+        private volatile Instant now;
+
+        private ManualClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.chat.security;
+
+import com.example.chat.config.SessionTokenProperties;
+import com.example.chat.dto.UserSummary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionTokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+    private static final Instant ISSUED_AT = Instant.parse("2024-06-01T12:00:00Z");
+    private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+
+    private final SessionTokenService service = service(SECRET, ISSUED_AT);
+
+    @Test
+    void aTokenVerifiesToTheUserItWasIssuedFor() {
+        String token = service.issue(new UserSummary(42L, "Ann: admin")).getToken();
+
+        assertThat(service.verify(token)).map(UserSummary::getId).contains(42L);
+        assertThat(service.verify(token)).map(UserSummary::getDisplayName).contains("Ann: admin");
+        assertThat(service.verifyAuthorization("Bearer " + token)).map(UserSummary::getId).contains(42L);
+    }
+
+    @Test
+    void changedClaimsAreRejected() {
+        String token = service.issue(new UserSummary(42L, "Ann")).getToken();
+        String signature = token.substring(token.indexOf('.') + 1);
+        long expiresAt = ISSUED_AT.plus(TIME_TO_LIVE).getEpochSecond();
+
+        assertThat(service.verify(encode("43:" + expiresAt + ":Ann") + "." + signature)).isEmpty();
+        assertThat(service.verify(encode("42:" + (expiresAt + 86_400) + ":Ann") + "." + signature)).isEmpty();
+    }
+
+    @Test
+    void aChangedOrForeignSignatureIsRejected() {
+        String token = service.issue(new UserSummary(42L, "Ann")).getToken();
+        int first = token.indexOf('.') + 1;
+        String flipped = token.substring(0, first) + (token.charAt(first) == 'A' ? 'B' : 'A') + token.substring(first + 1);
+        String otherSecret = Base64.getEncoder().encodeToString(new byte[32]);
+        String foreign = service(otherSecret, ISSUED_AT).issue(new UserSummary(42L, "Ann")).getToken();
+
+        assertThat(service.verify(flipped)).isEmpty();
+        assertThat(service.verify(foreign)).isEmpty();
+    }
+
+    @Test
+    void aTokenIsRejectedOnceItExpires() {
+        String token = service.issue(new UserSummary(42L, "Ann")).getToken();
+
+        assertThat(service(SECRET, ISSUED_AT.plus(TIME_TO_LIVE)).verify(token)).isPresent();
+        assertThat(service(SECRET, ISSUED_AT.plus(TIME_TO_LIVE).plusSeconds(1)).verify(token)).isEmpty();
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThat(service.verify(null)).isEmpty();
+        assertThat(service.verifyAuthorization(null)).isEmpty();
+        assertThat(service.verify("")).isEmpty();
+        assertThat(service.verify("no-dot")).isEmpty();
+        assertThat(service.verify(".signature")).isEmpty();
+        assertThat(service.verify("claims.")).isEmpty();
+        assertThat(service.verify("not base64!.%%%")).isEmpty();
+        assertThat(service.verify(encode("42:soon:Ann") + "." + encode("x"))).isEmpty();
+    }
+
+    private static SessionTokenService service(String secret, Instant now) {
+        SessionTokenProperties properties = new SessionTokenProperties();
+        properties.setSecret(secret);
+        properties.setTimeToLive(TIME_TO_LIVE);
+        return new SessionTokenService(properties, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
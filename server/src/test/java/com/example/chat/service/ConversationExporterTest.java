@@ -0,0 +1,140 @@
+package com.example.chat.service;
+
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** NDJSON exports of a direct chat with both archived and live messages, against H2. */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "chat.export.fetch-size=2"
+})
+class ConversationExporterTest {
+
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(1);
+    private static final AtomicLong NEXT_ARCHIVED_ID = new AtomicLong(1);
+
+    @Autowired
+    private ConversationExporter exporter;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private DirectConversations directConversations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private UserSummary alice;
+    private UserSummary bob;
+    private long conversationId;
+
+    @DynamicPropertySource
+    static void searchIndex(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("chat.search.index-path", Files.createTempDirectory("search-index")::toString);
+    }
+
+    @BeforeEach
+    void setUp() {
+        alice = register("Alice");
+        bob = register("Bob");
+        conversationId = directConversations.resolve(alice.getId(), bob.getId());
+    }
+
+    @Test
+    void archivedMessagesComeFirstThenLiveOnesOnePerLine() throws IOException {
+        Instant longAgo = Instant.now().minus(400, ChronoUnit.DAYS);
+        archive(alice, "archived one", longAgo);
+        archive(bob, "archived two", longAgo.plusSeconds(1));
+        chatService.persistDirectMessage(conversationId, alice, bob, "live one");
+        chatService.persistDirectMessage(conversationId, bob, alice, "live two");
+        chatService.persistDirectMessage(conversationId, alice, bob, "line\nbreak");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = exporter.export(conversationId, out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertThat(written).isEqualTo(5);
+        assertThat(body).endsWith("\n");
+        List<MessageView> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(objectMapper.readValue(line, MessageView.class));
+        }
+        assertThat(lines).extracting(MessageView::getContent)
+                .containsExactly("archived one", "archived two", "live one", "live two", "line\nbreak");
+        assertThat(lines).extracting(MessageView::getSenderName).containsExactly("Alice", "Bob", "Alice", "Bob", "Alice");
+    }
+
+    @Test
+    void aClientThatGoesAwayAbortsTheExportWithoutBreakingTheNext() throws IOException {
+        String longContent = "x".repeat(1000);
+        for (int i = 0; i < 20; i++) {
+            chatService.persistDirectMessage(conversationId, alice, bob, longContent);
+        }
+        OutputStream gone = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> exporter.export(conversationId, gone)).isInstanceOf(IOException.class);
+
+        assertThat(exporter.export(conversationId, new ByteArrayOutputStream())).isEqualTo(20);
+    }
+
+    @Test
+    void onlyMembersMayExport() {
+        UserSummary carol = register("Carol");
+
+        assertThatThrownBy(() -> exporter.checkAccess(conversationId, carol.getId())).isInstanceOf(SecurityException.class);
+        exporter.checkAccess(conversationId, bob.getId());
+    }
+
+    private void archive(UserSummary sender, String content, Instant sentAt) {
+        jdbcTemplate.update("""
+                insert into historical_messages (id, conversation_id, sender_id, content, sent_at, archived_at)
+                values (?, ?, ?, ?, ?, ?)
+                """, NEXT_ARCHIVED_ID.getAndIncrement(), conversationId, sender.getId(), content,
+                Timestamp.from(sentAt), Timestamp.from(Instant.now()));
+    }
+
+    private UserSummary register(String name) {
+        long id = NEXT_USER_ID.getAndIncrement();
+        chatService.registerUser(id, "{noop}x", name);
+        return new UserSummary(id, name);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.chat.service;
+
+import com.example.chat.config.CredentialProperties;
+import com.example.chat.config.ReplicaProperties;
+import com.example.chat.datasource.ReadYourWrites;
+import com.example.chat.model.ChatUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** The credential pool with one thread and a one-slot queue, and an encoder the test can hold up. */
+class CredentialServiceTest {
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final GatedEncoder encoder = new GatedEncoder();
+    private final CredentialProperties properties = new CredentialProperties();
+    private CredentialService service;
+
+    @AfterEach
+    void stop() {
+        encoder.release.countDown();
+        if (service != null) {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void loginsBeyondThePoolAndQueueAreShedImmediately() throws Exception {
+        start(Duration.ofSeconds(5));
+        when(chatService.findUser(1L)).thenReturn(Optional.of(user(1L, "{gated}secret")));
+
+        CompletableFuture<ChatUser> running = service.authenticate(1L, "secret");
+        assertThat(encoder.started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<ChatUser> queued = service.authenticate(1L, "secret");
+        CompletableFuture<ChatUser> shed = service.authenticate(1L, "secret");
+
+        assertThat(shed).isCompletedExceptionally();
+        assertThatThrownBy(shed::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        encoder.release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThat(queued.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+    }
+
+    @Test
+    void aLoginThatWaitedPastTheLimitIsRejectedWithoutHashing() throws Exception {
+        start(Duration.ofMillis(50));
+        when(chatService.findUser(1L)).thenReturn(Optional.of(user(1L, "{gated}secret")));
+
+        CompletableFuture<ChatUser> running = service.authenticate(1L, "secret");
+        assertThat(encoder.started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<ChatUser> queued = service.authenticate(1L, "secret");
+        Thread.sleep(100);
+        encoder.release.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(encoder.matches).isEqualTo(1);
+    }
+
+    @Test
+    void aWrongPasswordFailsAsInvalidCredentials() {
+        start(Duration.ofSeconds(5));
+        encoder.release.countDown();
+        when(chatService.findUser(1L)).thenReturn(Optional.of(user(1L, "{gated}secret")));
+
+        assertThatThrownBy(() -> service.authenticate(1L, "guess").get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalArgumentException.class)
+                .hasRootCauseMessage("Invalid credentials");
+    }
+
+    @Test
+    void aLoginWhoseLookupRanPastTheLimitIsRejectedWithoutHashing() {
+        start(Duration.ofMillis(50));
+        encoder.release.countDown();
+        when(chatService.findUser(1L)).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return Optional.of(user(1L, "{gated}secret"));
+        });
+
+        assertThatThrownBy(() -> service.authenticate(1L, "secret").get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(encoder.matches).isZero();
+    }
+
+    @Test
+    void aHashAboveTheConfiguredCostIsRehashedDown() throws Exception {
+        String stored = new BCryptPasswordEncoder(5).encode("secret");
+        start(Duration.ofSeconds(5), new BCryptPasswordEncoder(4), 4);
+        when(chatService.findUser(1L)).thenReturn(Optional.of(user(1L, stored)));
+        when(chatService.updatePasswordHash(eq(1L), eq(stored), anyString())).thenReturn(true);
+
+        ChatUser user = service.authenticate(1L, "secret").get(5, TimeUnit.SECONDS);
+
+        assertThat(user.getPasswordHash()).startsWith("$2a$04$");
+    }
+
+    @Test
+    void aHashBelowTheConfiguredCostIsRehashedUp() throws Exception {
+        String stored = new BCryptPasswordEncoder(4).encode("secret");
+        start(Duration.ofSeconds(5), new BCryptPasswordEncoder(5), 5);
+        when(chatService.findUser(1L)).thenReturn(Optional.of(user(1L, stored)));
+        when(chatService.updatePasswordHash(eq(1L), eq(stored), anyString())).thenReturn(true);
+
+        ChatUser user = service.authenticate(1L, "secret").get(5, TimeUnit.SECONDS);
+
+        assertThat(user.getPasswordHash()).startsWith("$2a$05$");
+    }
+
+    @Test
+    void aHashAtTheConfiguredCostIsLeftAlone() throws Exception {
+        String stored = new BCryptPasswordEncoder(4).encode("secret");
+        start(Duration.ofSeconds(5), new BCryptPasswordEncoder(4), 4);
+        when(chatService.findUser(1L)).thenReturn(Optional.of(user(1L, stored)));
+
+        assertThat(service.authenticate(1L, "secret").get(5, TimeUnit.SECONDS).getPasswordHash()).isEqualTo(stored);
+        verify(chatService, never()).updatePasswordHash(anyLong(), anyString(), anyString());
+    }
+
+    private void start(Duration maxQueueWait) {
+        properties.setRehashOnLogin(false);
+        start(maxQueueWait, encoder, properties.getBcryptStrength());
+    }
+
+    private void start(Duration maxQueueWait, PasswordEncoder passwordEncoder, int bcryptStrength) {
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setMaxQueueWait(maxQueueWait);
+        properties.setBcryptStrength(bcryptStrength);
+        service = new CredentialService(chatService, passwordEncoder, properties,
+                new ReadYourWrites(new ReplicaProperties()), new SimpleMeterRegistry());
+    }
+
+    private static ChatUser user(Long id, String passwordHash) {
+        return new ChatUser(id, "user_" + id, "User " + id, passwordHash);
+    }
+
+    /** Plain-text hashes prefixed with {@code {gated}}; every check waits for {@link #release}. */
+    private static final class GatedEncoder implements PasswordEncoder {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile int matches;
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "{gated}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            matches++;
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.chat.service;
+
+import com.example.chat.config.GroupCommitProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Group commit against a mocked store, looking at where and in which order the futures complete. */
+class GroupCommitMessageWriterTest {
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final UserSummary alice = new UserSummary(1L, "Alice");
+    private final UserSummary bob = new UserSummary(2L, "Bob");
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final CountDownLatch firstInsert = new CountDownLatch(1);
+    private GroupCommitMessageWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(1);
+        when(chatService.insertMessage(any(), any(), any())).thenAnswer(invocation -> {
+            if ("first".equals(invocation.getArgument(2))) {
+                await(firstInsert);
+            }
+            return new MessageView(nextId.getAndIncrement(), invocation.getArgument(0), alice.getId(),
+                    alice.getDisplayName(), invocation.getArgument(2), Instant.now());
+        });
+        writer = new GroupCommitMessageWriter(chatService, mock(PlatformTransactionManager.class), properties);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstInsert.countDown();
+        writer.stop();
+    }
+
+    @Test
+    void aSlowCallbackDoesNotHoldUpTheNextCommit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> callbackThreads = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> slow = writer.submit(7L, alice, bob, "first").thenAccept(view -> {
+            callbackThreads.add(Thread.currentThread().getName());
+            await(release);
+        });
+        firstInsert.countDown();
+
+        writer.submit(7L, alice, bob, "second");
+
+        verify(chatService, timeout(5000)).insertMessage(eq(7L), eq(alice), eq("second"));
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+        assertThat(callbackThreads).containsExactly("message-group-commit-callbacks");
+    }
+
+    @Test
+    void callbacksRunInCommitOrder() throws Exception {
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        CompletableFuture<?> last = null;
+        for (int i = 0; i < 50; i++) {
+            last = writer.submit(7L, alice, bob, "message " + i).thenAccept(view -> delivered.add(view.getContent()));
+        }
+
+        last.get(5, TimeUnit.SECONDS);
+
+        assertThat(delivered).hasSize(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(delivered.get(i)).isEqualTo("message " + i);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
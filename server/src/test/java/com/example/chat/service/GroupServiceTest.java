@@ -0,0 +1,147 @@
+package com.example.chat.service;
+
+import com.example.chat.dto.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Membership changes against H2: who may read and change a group, and the membership cache that
+ * authorizes sends.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:groups;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class GroupServiceTest {
+
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(1);
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ConversationMembership membership;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserSummary owner;
+    private UserSummary first;
+    private UserSummary second;
+
+    @DynamicPropertySource
+    static void searchIndex(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("chat.search.index-path", Files.createTempDirectory("search-index")::toString);
+    }
+
+    @BeforeEach
+    void users() {
+        owner = register("Owner");
+        first = register("First");
+        second = register("Second");
+    }
+
+    @Test
+    void outsidersCannotSeeAGroupOrItsMembers() {
+        long groupId = groupService.createGroup(owner, "Team", List.of(first.getId())).getId();
+
+        assertThatThrownBy(() -> groupService.getGroup(second, groupId)).isInstanceOf(SecurityException.class);
+        assertThatThrownBy(() -> groupService.listMembers(second, groupId, null, null)).isInstanceOf(SecurityException.class);
+        assertThat(groupService.getGroup(first, groupId).getMemberCount()).isEqualTo(2);
+    }
+
+    @Test
+    void onlyTheOwnerCanAddMembers() {
+        long groupId = groupService.createGroup(owner, "Team", List.of(first.getId())).getId();
+
+        assertThatThrownBy(() -> groupService.addMembers(first, groupId, List.of(second.getId())))
+                .isInstanceOf(SecurityException.class);
+        assertThatThrownBy(() -> groupService.addMembers(second, groupId, List.of(second.getId())))
+                .isInstanceOf(SecurityException.class);
+        assertThat(membership.isMember(groupId, second.getId())).isFalse();
+    }
+
+    @Test
+    void membersMayRemoveOnlyThemselvesAndTheOwnerCannotLeave() {
+        long groupId = groupService.createGroup(owner, "Team", List.of(first.getId(), second.getId())).getId();
+
+        assertThatThrownBy(() -> groupService.removeMember(first, groupId, second.getId()))
+                .isInstanceOf(SecurityException.class);
+        assertThatThrownBy(() -> groupService.removeMember(owner, groupId, owner.getId()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        groupService.removeMember(owner, groupId, second.getId());
+
+        assertThatThrownBy(() -> groupService.getGroup(second, groupId)).isInstanceOf(SecurityException.class);
+        assertThatThrownBy(() -> groupService.removeMember(second, groupId, second.getId()))
+                .isInstanceOf(SecurityException.class);
+    }
+
+    @Test
+    void overlappingMembershipChangesLeaveBothInTheCache() throws Exception {
+        long groupId = groupService.createGroup(owner, "Team", List.of()).getId();
+        assertThat(membership.members(groupId)).containsExactly(owner.getId());
+
+        CountDownLatch added = new CountDownLatch(1);
+        CountDownLatch otherCommitted = new CountDownLatch(1);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    groupService.addMembers(owner, groupId, List.of(first.getId()));
+                    added.countDown();
+                    await(otherCommitted);
+                }));
+        await(added);
+        groupService.addMembers(owner, groupId, List.of(second.getId()));
+        otherCommitted.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+
+        assertThat(membership.members(groupId)).containsExactly(owner.getId(), first.getId(), second.getId());
+    }
+
+    @Test
+    void aRemovedMemberIsDroppedFromTheCache() {
+        long groupId = groupService.createGroup(owner, "Team", List.of(first.getId(), second.getId())).getId();
+        assertThat(membership.isMember(groupId, first.getId())).isTrue();
+
+        groupService.removeMember(first, groupId, first.getId());
+
+        assertThat(membership.isMember(groupId, first.getId())).isFalse();
+        assertThat(membership.memberCount(groupId)).isEqualTo(2);
+    }
+
+    private UserSummary register(String name) {
+        long id = NEXT_USER_ID.getAndIncrement();
+        chatService.registerUser(id, "{noop}x", name);
+        return new UserSummary(id, name);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
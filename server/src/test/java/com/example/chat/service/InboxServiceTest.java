@@ -0,0 +1,203 @@
+package com.example.chat.service;
+
+import com.example.chat.dto.InboxEntryView;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Direct rows keep a running unread count that every send updates for both participants.
+ * Group rows are read markers: a send writes only the sender's row, and members' unread counts
+ * are worked out from {@code messages} when their inbox is read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inbox;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class InboxServiceTest {
+
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(1);
+
+    @Autowired
+    private InboxService inboxService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private DirectConversations directConversations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserSummary alice;
+    private UserSummary bob;
+    private UserSummary carol;
+
+    @DynamicPropertySource
+    static void searchIndex(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("chat.search.index-path", Files.createTempDirectory("search-index")::toString);
+    }
+
+    @BeforeEach
+    void users() {
+        alice = register("Alice");
+        bob = register("Bob");
+        carol = register("Carol");
+    }
+
+    @Test
+    void directMessagesAreUnreadForTheRecipientUntilTheyReply() {
+        long conversationId = directConversations.resolve(alice.getId(), bob.getId());
+        chatService.persistDirectMessage(conversationId, alice, bob, "one");
+        chatService.persistDirectMessage(conversationId, alice, bob, "two");
+
+        assertThat(entry(alice, conversationId).getUnreadCount()).isZero();
+        InboxEntryView bobs = entry(bob, conversationId);
+        assertThat(bobs.getUnreadCount()).isEqualTo(2);
+        assertThat(bobs.getLastMessagePreview()).isEqualTo("two");
+
+        MessageView reply = chatService.persistDirectMessage(conversationId, bob, alice, "three");
+
+        assertThat(entry(bob, conversationId).getUnreadCount()).isZero();
+        InboxEntryView alices = entry(alice, conversationId);
+        assertThat(alices.getUnreadCount()).isEqualTo(1);
+        assertThat(alices.getLastMessageId()).isEqualTo(reply.getId());
+    }
+
+    @Test
+    void markingADirectChatReadCountsOnlyLaterMessagesFromThePeer() {
+        long conversationId = directConversations.resolve(alice.getId(), bob.getId());
+        MessageView first = chatService.persistDirectMessage(conversationId, alice, bob, "one");
+        chatService.persistDirectMessage(conversationId, bob, alice, "mine");
+        chatService.persistDirectMessage(conversationId, alice, bob, "two");
+        MessageView last = chatService.persistDirectMessage(conversationId, alice, bob, "three");
+
+        inboxService.markRead(bob.getId(), conversationId, first.getId());
+        assertThat(entry(bob, conversationId).getUnreadCount()).isEqualTo(2);
+
+        inboxService.markRead(bob.getId(), conversationId, last.getId());
+        assertThat(entry(bob, conversationId).getUnreadCount()).isZero();
+
+        chatService.persistDirectMessage(conversationId, alice, bob, "four");
+        assertThat(entry(bob, conversationId).getUnreadCount()).isEqualTo(1);
+
+        inboxService.markRead(bob.getId(), conversationId, null);
+        assertThat(entry(bob, conversationId).getUnreadCount()).isZero();
+    }
+
+    @Test
+    void aNoteToSelfIsNeverUnread() {
+        long conversationId = directConversations.resolve(alice.getId(), alice.getId());
+        chatService.persistDirectMessage(conversationId, alice, alice, "note");
+
+        assertThat(entry(alice, conversationId).getUnreadCount()).isZero();
+    }
+
+    @Test
+    void groupMessagesAreUnreadForEveryMemberButTheSender() {
+        long groupId = groupService.createGroup(alice, "Team", List.of(bob.getId(), carol.getId())).getId();
+        chatService.persistGroupMessage(groupId, alice, "one");
+        chatService.persistGroupMessage(groupId, alice, "two");
+        MessageView last = chatService.persistGroupMessage(groupId, bob, "three");
+
+        assertThat(entry(alice, groupId).getUnreadCount()).isEqualTo(1);
+        assertThat(entry(bob, groupId).getUnreadCount()).isZero();
+        InboxEntryView carols = entry(carol, groupId);
+        assertThat(carols.getUnreadCount()).isEqualTo(3);
+        assertThat(carols.getLastMessageId()).isEqualTo(last.getId());
+        assertThat(carols.getLastMessagePreview()).isEqualTo("three");
+        assertThat(carols.getTitle()).isEqualTo("Team");
+    }
+
+    @Test
+    void aGroupSendWritesOnlyTheSendersRow() {
+        long groupId = groupService.createGroup(alice, "Team", List.of(bob.getId(), carol.getId())).getId();
+        List<Long> before = activity(groupId);
+
+        chatService.persistGroupMessage(groupId, alice, "hello");
+
+        List<Long> after = activity(groupId);
+        assertThat(after.get(0)).isNotEqualTo(before.get(0));
+        assertThat(after.subList(1, 3)).isEqualTo(before.subList(1, 3));
+    }
+
+    @Test
+    void markingAGroupReadCountsOnlyLaterMessages() {
+        long groupId = groupService.createGroup(alice, "Team", List.of(bob.getId(), carol.getId())).getId();
+        MessageView first = chatService.persistGroupMessage(groupId, alice, "one");
+        MessageView second = chatService.persistGroupMessage(groupId, bob, "two");
+        chatService.persistGroupMessage(groupId, alice, "three");
+
+        inboxService.markRead(carol.getId(), groupId, first.getId());
+        assertThat(entry(carol, groupId).getUnreadCount()).isEqualTo(2);
+
+        inboxService.markRead(carol.getId(), groupId, second.getId());
+        inboxService.markRead(carol.getId(), groupId, first.getId());
+        assertThat(entry(carol, groupId).getUnreadCount()).isEqualTo(1);
+
+        inboxService.markRead(carol.getId(), groupId, null);
+        assertThat(entry(carol, groupId).getUnreadCount()).isZero();
+    }
+
+    @Test
+    void aMemberAddedLaterCountsOnlyMessagesSentAfterJoining() {
+        long groupId = groupService.createGroup(alice, "Team", List.of(bob.getId())).getId();
+        chatService.persistGroupMessage(groupId, alice, "before");
+
+        groupService.addMembers(alice, groupId, List.of(carol.getId()));
+        assertThat(entry(carol, groupId).getUnreadCount()).isZero();
+
+        chatService.persistGroupMessage(groupId, bob, "after");
+        assertThat(entry(carol, groupId).getUnreadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void groupAndDirectEntriesShareOneNewestFirstPage() {
+        long groupId = groupService.createGroup(alice, "Team", List.of(bob.getId())).getId();
+        chatService.persistGroupMessage(groupId, bob, "group");
+        MessageView direct = chatService.persistDirectMessage(
+                directConversations.resolve(alice.getId(), carol.getId()), alice, carol, "direct");
+        chatService.persistGroupMessage(groupId, bob, "group again");
+
+        List<InboxEntryView> entries = inboxService.getInbox(alice.getId(), null, null).getEntries();
+
+        assertThat(entries).extracting(InboxEntryView::getConversationId).containsExactly(groupId, direct.getConversationId());
+        assertThat(entries).extracting(InboxEntryView::getUnreadCount).containsExactly(2, 0);
+    }
+
+    private UserSummary register(String name) {
+        long id = NEXT_USER_ID.getAndIncrement();
+        chatService.registerUser(id, "{noop}x", name);
+        return new UserSummary(id, name);
+    }
+
+    private InboxEntryView entry(UserSummary user, long conversationId) {
+        return inboxService.getInbox(user.getId(), null, null).getEntries().stream()
+                .filter(entry -> entry.getConversationId() == conversationId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<Long> activity(long conversationId) {
+        return jdbcTemplate.queryForList(
+                "select last_message_id from inbox_entries where conversation_id = ? order by user_id", Long.class, conversationId);
+    }
+}
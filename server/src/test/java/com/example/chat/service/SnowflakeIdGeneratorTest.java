@@ -0,0 +1,189 @@
+package com.example.chat.service;
+
+import com.example.chat.config.IdGeneratorProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+    private static final long MAX_TIMESTAMP = (1L << 41) - 1;
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    private final ManualClock clock = new ManualClock(EPOCH.toEpochMilli() + 1_000);
+
+    @Test
+    void idsCarryTimestampNodeAndSequence() {
+        long id = generator(5).nextId();
+
+        assertThat(timestamp(id)).isEqualTo(1_000);
+        assertThat(node(id)).isEqualTo(5);
+        assertThat(sequence(id)).isZero();
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIdsThatRiseOnEachThread() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(properties(3), Clock.systemUTC());
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<long[]>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    long[] ids = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                });
+            }
+            Set<Long> unique = new HashSet<>();
+            for (Future<long[]> result : executor.invokeAll(tasks)) {
+                long[] ids = result.get();
+                for (int i = 0; i < ids.length; i++) {
+                    if (i > 0) {
+                        assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+                    }
+                    unique.add(ids[i]);
+                }
+            }
+            assertThat(unique).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void theSixtyFifthIdOfAMillisecondBorrowsTheNext() {
+        SnowflakeIdGenerator generator = generator(1);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 65; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids.subList(0, 64)).allSatisfy(id -> assertThat(timestamp(id)).isEqualTo(1_000));
+        assertThat(ids.subList(0, 64)).extracting(SnowflakeIdGeneratorTest::sequence).doesNotHaveDuplicates();
+        assertThat(timestamp(ids.get(64))).isEqualTo(1_001);
+        assertThat(sequence(ids.get(64))).isZero();
+        assertThat(ids).isSorted();
+
+        clock.set(EPOCH.toEpochMilli() + 1_001);
+        long next = generator.nextId();
+        assertThat(next).isGreaterThan(ids.get(64));
+        assertThat(sequence(next)).isEqualTo(1);
+    }
+
+    @Test
+    void aClockThatStepsBackNeverProducesASmallerId() {
+        SnowflakeIdGenerator generator = generator(1);
+        long before = generator.nextId();
+
+        clock.set(EPOCH.toEpochMilli() + 400);
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(timestamp(after)).isEqualTo(1_000);
+        assertThat(sequence(after)).isEqualTo(1);
+
+        clock.set(EPOCH.toEpochMilli() + 2_000);
+        assertThat(timestamp(generator.nextId())).isEqualTo(2_000);
+    }
+
+    @Test
+    void idsStayWithinFiftyThreeBits() {
+        clock.set(EPOCH.toEpochMilli() + MAX_TIMESTAMP);
+        SnowflakeIdGenerator generator = generator(63);
+        long last = 0;
+        for (int i = 0; i < 64; i++) {
+            last = generator.nextId();
+            assertThat(last).isPositive().isLessThanOrEqualTo(MAX_SAFE_INTEGER);
+        }
+
+        assertThat(last).isEqualTo(MAX_SAFE_INTEGER);
+        assertThatThrownBy(generator::nextId).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void aClockBeforeTheEpochIsRejected() {
+        clock.set(EPOCH.toEpochMilli() - 1);
+
+        assertThatThrownBy(generator(1)::nextId).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void nodeIdsOutsideSixBitsAreRejected() {
+        assertThatThrownBy(() -> generator(64)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> generator(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private SnowflakeIdGenerator generator(int nodeId) {
+        return new SnowflakeIdGenerator(properties(nodeId), clock);
+    }
+
+    private static IdGeneratorProperties properties(int nodeId) {
+        IdGeneratorProperties properties = new IdGeneratorProperties();
+        properties.setNodeId(nodeId);
+        properties.setEpoch(EPOCH);
+        return properties;
+    }
+
+    private static long timestamp(long id) {
+        return id >>> 12;
+    }
+
+    private static long node(long id) {
+        return (id >>> 6) & 63;
+    }
+
+    private static long sequence(long id) {
+        return id & 63;
+    }
+
+    private static final class ManualClock extends Clock {
+        private volatile long millis;
+
+        private ManualClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
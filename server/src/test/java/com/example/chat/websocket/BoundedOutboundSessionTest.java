@@ -0,0 +1,216 @@
+package com.example.chat.websocket;
+
+import com.example.chat.config.OutboundQueueProperties;
+import com.example.chat.config.OutboundQueueProperties.OverflowPolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Overflow policies of a session whose first write stalls, so that everything sent after it
+ * piles up in the outbound queue (bounded to three messages here), and the send time limit
+ * that keeps stalled sessions from starving the flush pool.
+ */
+class BoundedOutboundSessionTest {
+
+    private static final String SESSION_ID = "session-1";
+
+    private final CborCodec cborCodec = new CborCodec();
+    private final BinaryEncodingNegotiator negotiator = new BinaryEncodingNegotiator(cborCodec, new ObjectMapper());
+    private final List<WebSocketMessage<?>> written = new CopyOnWriteArrayList<>();
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private WebSocketSession delegate;
+    private OutboundQueueRegistry registry;
+
+    @BeforeEach
+    void stallFirstWrite() throws Exception {
+        delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn(SESSION_ID);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            written.add(invocation.getArgument(0));
+            return null;
+        }).when(delegate).sendMessage(any());
+    }
+
+    @AfterEach
+    void shutDown() {
+        release.countDown();
+        if (registry != null) {
+            registry.destroy();
+        }
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestMessages() throws Exception {
+        BoundedOutboundSession session = register(OverflowPolicy.DROP_OLDEST);
+
+        sendBacklog(session, 5, false);
+        assertThat(session.queuedMessages()).isEqualTo(3);
+        assertThat(session.droppedMessages()).isEqualTo(2);
+
+        release.countDown();
+        verify(delegate, timeout(5_000).times(4)).sendMessage(any());
+        assertThat(written).extracting(this::messageId).containsExactly("0", "3", "4", "5");
+    }
+
+    @Test
+    void disconnectClosesTheSessionAndDiscardsTheBacklog() throws Exception {
+        BoundedOutboundSession session = register(OverflowPolicy.DISCONNECT);
+
+        sendBacklog(session, 4, false);
+        session.sendMessage(frame(5, false));
+        assertThat(session.queuedMessages()).isZero();
+        assertThat(session.droppedMessages()).isEqualTo(4);
+
+        release.countDown();
+        verify(delegate, timeout(5_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(written).extracting(this::messageId).containsExactly("0");
+    }
+
+    @Test
+    void resyncReplacesTheBacklogWithAJsonMarker() throws Exception {
+        BoundedOutboundSession session = register(OverflowPolicy.RESYNC);
+
+        sendBacklog(session, 4, false);
+        assertThat(session.resyncsSent()).isEqualTo(1);
+
+        release.countDown();
+        verify(delegate, timeout(5_000).times(2)).sendMessage(any());
+        assertThat(written.get(1)).isInstanceOf(TextMessage.class);
+        Message<byte[]> marker = decode(written.get(1));
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(marker);
+        assertThat(headers.getFirstNativeHeader(BoundedOutboundSession.RESYNC_HEADER)).isEqualTo("true");
+        assertThat(headers.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(headers.getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+        assertThat(new String(marker.getPayload(), StandardCharsets.UTF_8)).isEqualTo("{\"resync\":true}");
+    }
+
+    @Test
+    void resyncEncodesTheMarkerAsCborForCborSessions() throws Exception {
+        negotiateCbor();
+        BoundedOutboundSession session = register(OverflowPolicy.RESYNC);
+
+        sendBacklog(session, 4, true);
+
+        release.countDown();
+        verify(delegate, timeout(5_000).times(2)).sendMessage(any());
+        assertThat(written.get(1)).isInstanceOf(BinaryMessage.class);
+        Message<byte[]> marker = decode(written.get(1));
+        assertThat(StompHeaderAccessor.wrap(marker).getContentType()).isEqualTo(CborCodec.APPLICATION_CBOR);
+        assertThat(cborCodec.decode(marker.getPayload(), Map.class)).isEqualTo(Map.of("resync", true));
+    }
+
+    @Test
+    void stalledSessionsDoNotDelayAHealthyOne() throws Exception {
+        registry = newRegistry(OverflowPolicy.RESYNC, 2, Duration.ofMillis(200));
+        List<WebSocketSession> stalled = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            WebSocketSession session = mock(WebSocketSession.class);
+            when(session.getId()).thenReturn("stalled-" + i);
+            doAnswer(invocation -> release.await(10, TimeUnit.SECONDS)).when(session).sendMessage(any());
+            registry.register(session).sendMessage(frame(i, false));
+            stalled.add(session);
+        }
+        WebSocketSession healthy = mock(WebSocketSession.class);
+        when(healthy.getId()).thenReturn("healthy");
+        registry.register(healthy).sendMessage(frame(9, false));
+
+        verify(healthy, timeout(2_000)).sendMessage(any());
+        for (WebSocketSession session : stalled) {
+            verify(session, timeout(2_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        }
+        assertThat(registry.stalledWrites()).isEqualTo(4);
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.stalledWrites() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.stalledWrites()).isZero();
+    }
+
+    private BoundedOutboundSession register(OverflowPolicy policy) {
+        registry = newRegistry(policy, 1, Duration.ofSeconds(30));
+        return registry.register(delegate);
+    }
+
+    private OutboundQueueRegistry newRegistry(OverflowPolicy policy, int flushThreads, Duration sendTimeLimit) {
+        OutboundQueueProperties properties = new OutboundQueueProperties();
+        properties.setMaxMessages(3);
+        properties.setOverflowPolicy(policy);
+        properties.setFlushThreads(flushThreads);
+        properties.setSendTimeLimit(sendTimeLimit);
+        return new OutboundQueueRegistry(properties, negotiator, cborCodec, new SimpleMeterRegistry());
+    }
+
+    /** Sends frame 0, waits until its write stalls, then queues frames 1 to {@code count}. */
+    private void sendBacklog(BoundedOutboundSession session, int count, boolean binary) throws Exception {
+        session.sendMessage(frame(0, binary));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= count; i++) {
+            session.sendMessage(frame(i, binary));
+        }
+    }
+
+    private void negotiateCbor() {
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId(SESSION_ID);
+        connect.setNativeHeader(BinaryEncodingNegotiator.ACCEPT_HEADER, "application/cbor");
+        connect.setSessionAttributes(Map.of(BinaryEncodingNegotiator.BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE));
+        connect.setLeaveMutable(true);
+        negotiator.inboundInterceptor().preSend(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()), null);
+        assertThat(negotiator.isBinary(SESSION_ID)).isTrue();
+    }
+
+    private static WebSocketMessage<?> frame(int id, boolean binary) {
+        String frame = "MESSAGE\nsubscription:sub-0\ndestination:/topic/conversations/5\nmessage-id:" + id
+                + "\ncontent-type:application/json\n\n{\"id\":" + id + "}\0";
+        byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+        return binary ? new BinaryMessage(bytes) : new TextMessage(bytes);
+    }
+
+    private String messageId(WebSocketMessage<?> message) {
+        return StompHeaderAccessor.wrap(decode(message)).getMessageId();
+    }
+
+    private static Message<byte[]> decode(WebSocketMessage<?> message) {
+        ByteBuffer payload = message instanceof TextMessage text
+                ? ByteBuffer.wrap(text.asBytes())
+                : ((BinaryMessage) message).getPayload().duplicate();
+        return new StompDecoder().decode(payload).get(0);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.chat.websocket;
+
+import com.example.chat.config.ReplayProperties;
+import com.example.chat.dto.MessageView;
+import com.example.chat.dto.UserSummary;
+import com.example.chat.service.ChatService;
+import com.example.chat.service.ConversationLocks;
+import com.example.chat.service.ConversationSubscriptions;
+import com.example.chat.service.DirectConversations;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * A SUBSCRIBE carrying {@code last-seen-id} handled by the interceptor against the real message
+ * store; the frames it hands to the outbound channel are collected in {@link #sent}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replay;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class SubscriptionReplayInterceptorTest {
+
+    private static final AtomicLong NEXT_USER_ID = new AtomicLong(1);
+    private static final int MAX_MESSAGES = 3;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private DirectConversations directConversations;
+
+    @Autowired
+    private ConversationLocks locks;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private BinaryEncodingNegotiator binaryEncoding;
+
+    @Autowired
+    private CborCodec cborCodec;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ExecutorSubscribableChannel inboundChannel = new ExecutorSubscribableChannel();
+    private final MessageHandler broker = mock(SimpleBrokerMessageHandler.class);
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+    private SubscriptionReplayInterceptor interceptor;
+    private UserSummary alice;
+    private UserSummary bob;
+    private long conversationId;
+
+    @DynamicPropertySource
+    static void searchIndex(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("chat.search.index-path", Files.createTempDirectory("search-index")::toString);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReplayProperties properties = new ReplayProperties();
+        properties.setMaxMessages(MAX_MESSAGES);
+        ExecutorSubscribableChannel outboundChannel = new ExecutorSubscribableChannel();
+        outboundChannel.subscribe(sent::add);
+        interceptor = new SubscriptionReplayInterceptor(chatService, locks, properties, messagingTemplate,
+                binaryEncoding, cborCodec, inboundChannel, outboundChannel, new SimpleMeterRegistry());
+        alice = register("Alice");
+        bob = register("Bob");
+        conversationId = directConversations.resolve(alice.getId(), bob.getId());
+    }
+
+    @Test
+    void theGapAfterTheLastSeenMessageIsReplayedInOrder() throws IOException {
+        MessageView seen = send("one");
+        send("two");
+        send("three");
+
+        subscribe(seen.getId(), () -> { });
+
+        assertThat(contents()).containsExactly("two", "three");
+        assertThat(sent).allSatisfy(frame -> {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(frame);
+            assertThat(headers.getSubscriptionId()).isEqualTo("sub-1");
+            assertThat(headers.getDestination()).isEqualTo(ConversationSubscriptions.TOPIC_PREFIX + conversationId);
+        });
+    }
+
+    @Test
+    void aMessageDeliveredWhileTheReplayWasFetchedIsAppended() throws IOException {
+        MessageView seen = send("one");
+        send("two");
+
+        subscribe(seen.getId(), () -> {
+            send("three");
+            locks.recordDelivery(conversationId);
+        });
+
+        assertThat(contents()).containsExactly("two", "three");
+    }
+
+    @Test
+    void aSubscriberThatMissedMoreThanTheLimitIsToldToResync() {
+        MessageView seen = send("seen");
+        for (int i = 0; i <= MAX_MESSAGES; i++) {
+            send("missed " + i);
+        }
+
+        subscribe(seen.getId(), () -> { });
+
+        assertResync();
+    }
+
+    @Test
+    void aSubscriberWhoseLastMessageIsUnknownIsToldToResync() {
+        send("one");
+
+        subscribe(Long.MAX_VALUE, () -> { });
+
+        assertResync();
+    }
+
+    @Test
+    void aSubscriberThatIsUpToDateGetsNothing() {
+        MessageView seen = send("one");
+
+        subscribe(seen.getId(), () -> { });
+
+        assertThat(sent).isEmpty();
+    }
+
+    /** Runs {@code whileBrokerHandles} between the fetch and the replay, where the broker registers the subscription. */
+    private void subscribe(long lastSeenId, Runnable whileBrokerHandles) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        headers.setSessionId("session-1");
+        headers.setSubscriptionId("sub-1");
+        headers.setDestination(ConversationSubscriptions.TOPIC_PREFIX + conversationId);
+        headers.setNativeHeader(SubscriptionReplayInterceptor.LAST_SEEN_HEADER, Long.toString(lastSeenId));
+        Message<byte[]> subscribe = MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+
+        Message<?> handled = interceptor.beforeHandle(subscribe, inboundChannel, broker);
+        whileBrokerHandles.run();
+        interceptor.afterMessageHandled(handled, inboundChannel, broker, null);
+        assertThat(locks.forConversation(conversationId).isHeldByCurrentThread()).isFalse();
+    }
+
+    private void assertResync() {
+        assertThat(sent).hasSize(1);
+        assertThat(SimpMessageHeaderAccessor.wrap(sent.get(0)).getFirstNativeHeader(BoundedOutboundSession.RESYNC_HEADER))
+                .isEqualTo("true");
+    }
+
+    private List<String> contents() throws IOException {
+        List<String> contents = new ArrayList<>();
+        for (Message<?> frame : sent) {
+            contents.add(objectMapper.readValue((byte[]) frame.getPayload(), MessageView.class).getContent());
+        }
+        return contents;
+    }
+
+    private MessageView send(String content) {
+        return chatService.persistDirectMessage(conversationId, alice, bob, content);
+    }
+
+    private UserSummary register(String name) {
+        long id = NEXT_USER_ID.getAndIncrement();
+        chatService.registerUser(id, "{noop}x", name);
+        return new UserSummary(id, name);
+    }
+}